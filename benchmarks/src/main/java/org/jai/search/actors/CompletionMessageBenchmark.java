@@ -0,0 +1,162 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.IndexDocumentType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.pattern.Patterns;
+import akka.routing.RoundRobinPool;
+import akka.util.Timeout;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Completion messages sent by a routee to the coordinator above its router, the way the setup workers report done document types.
+ * Compares resolving the "../../" actor selection on every message with replying to an actor ref carried by the request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CompletionMessageBenchmark
+{
+    private static final int MESSAGES = 1000;
+
+    private static final Timeout TIMEOUT = new Timeout(Duration.create(1, TimeUnit.MINUTES));
+
+    @Param({ "actorSelection", "actorRef" })
+    public String replyMode;
+
+    private ActorSystem system;
+
+    private ActorRef coordinator;
+
+    @Setup
+    public void prepare()
+    {
+        system = ActorSystem.create("CompletionMessageBenchmark");
+        coordinator = system.actorOf(Props.create(CoordinatorActor.class, "actorSelection".equals(replyMode)), "coordinator");
+    }
+
+    @TearDown
+    public void close()
+    {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public Object sendCompletionMessages() throws Exception
+    {
+        return Await.result(Patterns.ask(coordinator, Integer.valueOf(MESSAGES), TIMEOUT), TIMEOUT.duration());
+    }
+
+    public static class CompletionRequest
+    {
+        private final int count;
+
+        private final ActorRef replyTo;
+
+        public CompletionRequest(final int count, final ActorRef replyTo)
+        {
+            this.count = count;
+            this.replyTo = replyTo;
+        }
+    }
+
+    /**
+     * Asks the routee for the given number of completion messages and answers the requester once all of them arrived.
+     */
+    public static class CoordinatorActor extends UntypedActor
+    {
+        private final ActorRef workerRouter;
+
+        private ActorRef requester;
+
+        private int completionsPending;
+
+        public CoordinatorActor(final boolean useActorSelection)
+        {
+            workerRouter = getContext().actorOf(Props.create(WorkerActor.class, useActorSelection).withRouter(new RoundRobinPool(1)),
+                    "worker");
+        }
+
+        @Override
+        public void onReceive(final Object message)
+        {
+            if (message instanceof Integer)
+            {
+                requester = getSender();
+                completionsPending = (Integer) message;
+                workerRouter.tell(new CompletionRequest(completionsPending, getSelf()), getSelf());
+            }
+            else if (message instanceof IndexDocumentType)
+            {
+                completionsPending--;
+                if (completionsPending == 0)
+                {
+                    requester.tell(message, getSelf());
+                }
+            }
+            else
+            {
+                unhandled(message);
+            }
+        }
+    }
+
+    public static class WorkerActor extends UntypedActor
+    {
+        private final boolean useActorSelection;
+
+        public WorkerActor(final boolean useActorSelection)
+        {
+            this.useActorSelection = useActorSelection;
+        }
+
+        @Override
+        public void onReceive(final Object message)
+        {
+            if (message instanceof CompletionRequest)
+            {
+                final CompletionRequest completionRequest = (CompletionRequest) message;
+                for (int index = 0; index < completionRequest.count; index++)
+                {
+                    if (useActorSelection)
+                    {
+                        getContext().actorSelection("../../").tell(IndexDocumentType.PRODUCT, null);
+                    }
+                    else
+                    {
+                        completionRequest.replyTo.tell(IndexDocumentType.PRODUCT, getSelf());
+                    }
+                }
+            }
+            else
+            {
+                unhandled(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.model.Product;
+import org.jai.search.model.ProductGroup;
+import org.jai.search.model.ProductProperty;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+
+/**
+ * Messages allocated by the data generator per demanded batch of generated documents, the score is per document. Compares the former
+ * document message with a boxed id and a field per payload type, the compact document message and ranges of ids. Run with -prof gc and
+ * compare gc.alloc.rate.norm, the bytes allocated per document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DocumentMessageAllocationBenchmark
+{
+    private static final int DOCUMENTS = 500;
+
+    private static final int RANGE_SIZE = 50;
+
+    private static final String INDEX_NAME = "trialindexName";
+
+    // Ids above the Long cache, as in a large rebuild.
+    private static final long FIRST_DOCUMENT_ID = 1000000;
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public void boxedDocumentMessages(final Blackhole blackhole)
+    {
+        for (long documentId = FIRST_DOCUMENT_ID; documentId < FIRST_DOCUMENT_ID + DOCUMENTS; documentId++)
+        {
+            blackhole.consume(new BoxedIndexDocumentVO(ElasticSearchIndexConfig.COM_WEBSITE, IndexDocumentType.PRODUCT, INDEX_NAME, Long
+                    .valueOf(documentId)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public void documentMessages(final Blackhole blackhole)
+    {
+        for (long documentId = FIRST_DOCUMENT_ID; documentId < FIRST_DOCUMENT_ID + DOCUMENTS; documentId++)
+        {
+            blackhole.consume(new IndexDocumentVO().config(ElasticSearchIndexConfig.COM_WEBSITE).documentType(IndexDocumentType.PRODUCT)
+                    .newIndexName(INDEX_NAME).documentId(documentId));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public void documentRangeMessages(final Blackhole blackhole)
+    {
+        for (long documentId = FIRST_DOCUMENT_ID; documentId < FIRST_DOCUMENT_ID + DOCUMENTS; documentId += RANGE_SIZE)
+        {
+            blackhole.consume(new IndexDocumentRangeVO().config(ElasticSearchIndexConfig.COM_WEBSITE)
+                    .documentType(IndexDocumentType.PRODUCT).newIndexName(INDEX_NAME).fromDocumentId(documentId)
+                    .toDocumentId(documentId + RANGE_SIZE - 1));
+        }
+    }
+
+    /**
+     * Shape of the document message before it was made compact.
+     */
+    private static class BoxedIndexDocumentVO
+    {
+        private final ElasticSearchIndexConfig config;
+
+        private final IndexDocumentType documentType;
+
+        private final String newIndexName;
+
+        private final Long documentId;
+
+        private Product product;
+
+        private ProductProperty productProperty;
+
+        private ProductGroup productGroup;
+
+        private boolean indexDone;
+
+        private String indexFailure;
+
+        private ActorRef replyTo;
+
+        private ActorRef documentIndexer;
+
+        private BoxedIndexDocumentVO(final ElasticSearchIndexConfig config, final IndexDocumentType documentType, final String newIndexName,
+                final Long documentId)
+        {
+            this.config = config;
+            this.documentType = documentType;
+            this.newIndexName = newIndexName;
+            this.documentId = documentId;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.jai.search.actors;
+
+import org.jai.search.client.SearchClientService;
+import org.jai.search.config.ElasticSearchIndexConfig;
+
+import org.elasticsearch.client.Requests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end rebuild of all indices through the setup index master actor against the local in memory node, the score is the time per
+ * rebuild. The number of documents indexed per rebuild is printed at tear down to turn it into documents per second. Run from the
+ * project root, the node reads the analysis files from there. Use it to compare dispatcher and indexing settings of application.conf.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RebuildIndicesBenchmark
+{
+    private ClassPathXmlApplicationContext applicationContext;
+
+    private BootStrapIndexService bootStrapIndexService;
+
+    @Setup
+    public void prepare()
+    {
+        applicationContext = new ClassPathXmlApplicationContext("applicationContext-elasticsearch.xml");
+        bootStrapIndexService = applicationContext.getBean(BootStrapIndexService.class);
+    }
+
+    @TearDown
+    public void close()
+    {
+        final SearchClientService searchClientService = applicationContext.getBean("searchClientService", SearchClientService.class);
+        searchClientService.getClient().admin().indices().refresh(Requests.refreshRequest()).actionGet();
+        for (final ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            final long count = searchClientService.getClient().prepareCount(config.getIndexAliasName()).execute().actionGet().getCount();
+            System.out.println(String.format("%s: %d documents per rebuild", config.getIndexAliasName(), count));
+        }
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void rebuildAllIndices()
+    {
+        bootStrapIndexService.preparingIndexes();
+    }
+}
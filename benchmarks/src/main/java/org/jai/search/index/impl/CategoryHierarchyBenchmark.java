@@ -0,0 +1,144 @@
+package org.jai.search.index.impl;
+
+import org.jai.search.data.impl.SampleDataGeneratorServiceImpl;
+import org.jai.search.model.Category;
+import org.jai.search.model.Product;
+import org.jai.search.model.SearchDocumentFieldName;
+import org.jai.search.model.SearchFacetName;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per product cost of writing the categories array, the level map built by walking the parent chains (as it used to be done) versus
+ * the precomputed category hierarchy. Run with -prof gc to compare allocation per product.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CategoryHierarchyBenchmark
+{
+    private final ProductDocumentEncoder productDocumentEncoder = new ProductDocumentEncoder();
+
+    private final BytesStreamOutput buffer = new BytesStreamOutput();
+
+    private List<Product> products;
+
+    private int position = 0;
+
+    @Setup
+    public void prepare()
+    {
+        products = new SampleDataGeneratorServiceImpl().generateProductsSampleData();
+    }
+
+    @Benchmark
+    public int levelMap() throws IOException
+    {
+        final XContentBuilder contentBuilder = newContentBuilder();
+        final Map<Integer, Set<Category>> levelMap = getContentCategoryLevelMap(nextProduct().getCategories());
+        contentBuilder.startArray(SearchDocumentFieldName.CATEGORIES_ARRAY.getFieldName());
+        for (final Entry<Integer, Set<Category>> contentCategoryEntrySet : levelMap.entrySet())
+        {
+            for (final Category category : contentCategoryEntrySet.getValue())
+            {
+                final String name = category.getType() + SearchFacetName.HIERARCHICAL_DATA_LEVEL_STRING + contentCategoryEntrySet.getKey();
+                final String lowerCaseName = category.getName().toLowerCase();
+                contentBuilder.startObject().field(name + "." + SearchDocumentFieldName.FACET.getFieldName(), category.getName())
+                        .field(name + "." + SearchDocumentFieldName.FACETFILTER.getFieldName(), lowerCaseName)
+                        .field(name + "." + SearchDocumentFieldName.SUGGEST.getFieldName(), lowerCaseName).endObject();
+            }
+        }
+        contentBuilder.endArray().endObject().flush();
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int precomputedHierarchy() throws IOException
+    {
+        final XContentBuilder contentBuilder = newContentBuilder();
+        productDocumentEncoder.writeCategories(contentBuilder, nextProduct().getCategories());
+        contentBuilder.endObject().flush();
+        return buffer.size();
+    }
+
+    private XContentBuilder newContentBuilder() throws IOException
+    {
+        buffer.reset();
+        return new XContentBuilder(JsonXContent.jsonXContent, buffer).startObject();
+    }
+
+    private Product nextProduct()
+    {
+        position = (position + 1) % products.size();
+        return products.get(position);
+    }
+
+    private Map<Integer, Set<Category>> getContentCategoryLevelMap(final List<Category> categories)
+    {
+        final Map<Integer, Set<Category>> levelMap = new HashMap<Integer, Set<Category>>();
+        for (final Category contentCategory : categories)
+        {
+            final int levelInHierarchy = getCategoryLevelInHierarchy(contentCategory, 1);
+            for (int categoryLevelCounter = levelInHierarchy; categoryLevelCounter >= 1; categoryLevelCounter--)
+            {
+                getCategoryLevelSet(levelMap, categoryLevelCounter).add(
+                        findCategoryAtLevel(contentCategory, levelInHierarchy, categoryLevelCounter));
+            }
+        }
+        return levelMap;
+    }
+
+    private Category findCategoryAtLevel(final Category contentCategory, final int currentCategoryLevel, final int counter)
+    {
+        if (currentCategoryLevel == counter)
+        {
+            return contentCategory;
+        }
+        return findCategoryAtLevel(contentCategory.getParentCategory(), currentCategoryLevel, counter + 1);
+    }
+
+    private int getCategoryLevelInHierarchy(final Category contentCategory, final int level)
+    {
+        if (contentCategory.getParentCategory() == null)
+        {
+            return level;
+        }
+        return getCategoryLevelInHierarchy(contentCategory.getParentCategory(), level + 1);
+    }
+
+    private Set<Category> getCategoryLevelSet(final Map<Integer, Set<Category>> levelMap, final int level)
+    {
+        final Integer valueOf = Integer.valueOf(level);
+        Set<Category> set = levelMap.get(valueOf);
+        if (set == null)
+        {
+            set = new HashSet<Category>();
+            levelMap.put(valueOf, set);
+        }
+        return set;
+    }
+}
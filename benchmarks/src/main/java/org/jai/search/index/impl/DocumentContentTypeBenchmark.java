@@ -0,0 +1,63 @@
+package org.jai.search.index.impl;
+
+import org.jai.search.data.impl.SampleDataGeneratorServiceImpl;
+import org.jai.search.model.Product;
+
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product documents encoded per content type, the score is documents per millisecond. The average encoded document size for the
+ * content type is printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DocumentContentTypeBenchmark
+{
+    @Param({ "JSON", "SMILE" })
+    private XContentType contentType;
+
+    private final ProductDocumentEncoder productDocumentEncoder = new ProductDocumentEncoder();
+
+    private List<Product> products;
+
+    private int position = 0;
+
+    @Setup
+    public void prepare() throws IOException
+    {
+        products = new SampleDataGeneratorServiceImpl().generateProductsSampleData();
+        long totalBytes = 0;
+        for (final Product product : products)
+        {
+            totalBytes += productDocumentEncoder.encodeProduct(product, contentType).length;
+        }
+        System.out.println(String.format("%s: %d documents, %.1f bytes per document", contentType, products.size(),
+                (double) totalBytes / products.size()));
+    }
+
+    @Benchmark
+    public byte[] encodeProduct() throws IOException
+    {
+        position = (position + 1) % products.size();
+        return productDocumentEncoder.encodeProduct(products.get(position), contentType);
+    }
+}
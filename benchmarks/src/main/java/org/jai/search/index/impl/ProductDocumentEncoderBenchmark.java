@@ -0,0 +1,69 @@
+package org.jai.search.index.impl;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+
+import org.jai.search.data.impl.SampleDataGeneratorServiceImpl;
+import org.jai.search.model.Product;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product document encoding, pretty printed builder with the eager debug string as it used to be done versus the pooled compact
+ * encoder. Run with -prof gc to compare allocation per document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProductDocumentEncoderBenchmark
+{
+    private final ProductDocumentEncoder productDocumentEncoder = new ProductDocumentEncoder();
+
+    private List<Product> products;
+
+    private int position = 0;
+
+    @Setup
+    public void prepare()
+    {
+        products = new SampleDataGeneratorServiceImpl().generateProductsSampleData();
+    }
+
+    @Benchmark
+    public byte[] prettyPrintBuilder(final Blackhole blackhole) throws IOException
+    {
+        final XContentBuilder contentBuilder = productDocumentEncoder.writeProduct(jsonBuilder().prettyPrint(), nextProduct());
+        blackhole.consume(contentBuilder.string());
+        return contentBuilder.bytes().toBytes();
+    }
+
+    @Benchmark
+    public byte[] compactEncoder() throws IOException
+    {
+        return productDocumentEncoder.encodeProduct(nextProduct(), XContentType.JSON);
+    }
+
+    private Product nextProduct()
+    {
+        position = (position + 1) % products.size();
+        return products.get(position);
+    }
+}
@@ -0,0 +1,76 @@
+package org.jai.search.query.impl;
+
+import org.jai.search.actors.BootStrapIndexService;
+import org.jai.search.client.SearchClientService;
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.model.ProductSearchResult;
+import org.jai.search.model.SearchCriteria;
+import org.jai.search.model.SearchFacetName;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Requests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a search response with hits and facets into a product search result. The response is taken once from the local in
+ * memory node after the indices are rebuilt, only the mapping is measured. Run from the project root, the node reads the analysis
+ * files from there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProductSearchResultsBenchmark
+{
+    private ClassPathXmlApplicationContext applicationContext;
+
+    private ProductQueryServiceImpl productQueryService;
+
+    private SearchResponse searchResponse;
+
+    @Setup
+    public void prepare()
+    {
+        applicationContext = new ClassPathXmlApplicationContext("applicationContext-elasticsearch.xml");
+        applicationContext.getBean(BootStrapIndexService.class).preparingIndexes();
+        final SearchClientService searchClientService = applicationContext.getBean("searchClientService", SearchClientService.class);
+        searchClientService.getClient().admin().indices().refresh(Requests.refreshRequest()).actionGet();
+        productQueryService = applicationContext.getBean(ProductQueryServiceImpl.class);
+        final ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        final SearchCriteria searchCriteria = new SearchCriteria().indices(config.getIndexAliasName())
+                .documentTypes(config.getDocumentType()).size(50);
+        for (final String facetField : SearchFacetName.categoryFacetFields)
+        {
+            searchCriteria.facets(facetField);
+        }
+        searchCriteria.facets(SearchFacetName.PRODUCT_PRICE_RANGE.getCode());
+        searchResponse = productQueryService.prepareSearchRequest(searchCriteria).execute().actionGet();
+    }
+
+    @TearDown
+    public void close()
+    {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public ProductSearchResult mapSearchResponse()
+    {
+        return productQueryService.getProductSearchResults(searchResponse);
+    }
+}
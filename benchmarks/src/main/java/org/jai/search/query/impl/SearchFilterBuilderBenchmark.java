@@ -0,0 +1,87 @@
+package org.jai.search.query.impl;
+
+import static org.jai.search.data.SampleDataGeneratorService.APPLE;
+import static org.jai.search.data.SampleDataGeneratorService.DELL;
+import static org.jai.search.data.SampleDataGeneratorService.LAPTOPS;
+import static org.jai.search.data.SampleDataGeneratorService.MEMORY_8_GB;
+import static org.jai.search.data.SampleDataGeneratorService.PRODUCTPROPERTY_COLOR_BLACK;
+import static org.jai.search.data.SampleDataGeneratorService.PRODUCTPROPERTY_COLOR_BROWN;
+import static org.jai.search.data.SampleDataGeneratorService.PRODUCTPROPERTY_SIZE_12_INCH;
+import static org.jai.search.data.SampleDataGeneratorService.PRODUCTPROPERTY_SIZE_21_INCH;
+import static org.jai.search.data.SampleDataGeneratorService.RESOLUTON_1920_1080;
+import static org.jai.search.data.SampleDataGeneratorService.RESOLUTON_3200_1800;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.model.ProductProperty;
+import org.jai.search.model.SearchCriteria;
+import org.jai.search.model.SearchDocumentFieldName;
+import org.jai.search.model.SearchFacetName;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.index.query.AndFilterBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter construction for a search criteria using single select, multi select, price range, specification and product property
+ * filters, building the filter only and building plus rendering it as sent with the search request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SearchFilterBuilderBenchmark
+{
+    private final ProductQueryServiceImpl productQueryService = new ProductQueryServiceImpl();
+
+    private SearchCriteria searchCriteria;
+
+    @Setup
+    public void prepare()
+    {
+        final ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        searchCriteria = new SearchCriteria().indices(config.getIndexAliasName()).documentTypes(config.getDocumentType());
+        searchCriteria.addSingleSelectFilter(SearchFacetName.SEARCH_FACET_TYPE_PRODUCT_TYPE.getFacetFieldNameAtLevel(2), LAPTOPS);
+        searchCriteria.addMultiSelectFilter(SearchFacetName.SEARCH_FACET_TYPE_BRAND.getFacetFieldNameAtLevel(2), APPLE);
+        searchCriteria.addMultiSelectFilter(SearchFacetName.SEARCH_FACET_TYPE_BRAND.getFacetFieldNameAtLevel(2), DELL);
+        searchCriteria.addMultiSelectFilter(SearchFacetName.PRODUCT_PRICE_RANGE.getCode(), "0-100");
+        searchCriteria.addMultiSelectFilter(SearchFacetName.SPECIFICATION_RESOLUTION.getCode(), RESOLUTON_3200_1800);
+        searchCriteria.addMultiSelectFilter(SearchFacetName.SPECIFICATION_RESOLUTION.getCode(), RESOLUTON_1920_1080);
+        searchCriteria.addMultiSelectFilter(SearchFacetName.SPECIFICATION_MEMORY.getCode(), MEMORY_8_GB);
+        searchCriteria.addFiledValueFilter(SearchDocumentFieldName.SOLD_OUT.getFieldName(), false);
+        searchCriteria.addProductProperty(newProductProperty(PRODUCTPROPERTY_SIZE_12_INCH, PRODUCTPROPERTY_COLOR_BLACK));
+        searchCriteria.addProductProperty(newProductProperty(PRODUCTPROPERTY_SIZE_21_INCH, PRODUCTPROPERTY_COLOR_BROWN));
+    }
+
+    @Benchmark
+    public AndFilterBuilder buildFilter()
+    {
+        return productQueryService.getFilterBuilderForSearchCriteria(searchCriteria);
+    }
+
+    @Benchmark
+    public BytesReference buildAndRenderFilter()
+    {
+        return productQueryService.getFilterBuilderForSearchCriteria(searchCriteria).buildAsBytes();
+    }
+
+    private ProductProperty newProductProperty(final String size, final String color)
+    {
+        final ProductProperty productProperty = new ProductProperty();
+        productProperty.setSize(size);
+        productProperty.setColor(color);
+        return productProperty;
+    }
+}
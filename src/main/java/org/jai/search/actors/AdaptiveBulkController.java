@@ -0,0 +1,83 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.IndexingSettings;
+
+/**
+ * Additive increase, multiplicative decrease control of the bulk requests a bulk worker keeps in flight and of their number of actions.
+ * Every bulk response faster than the target latency allows one more request in flight and a larger batch, a slow response or a
+ * rejection by the cluster cuts both by the decrease factor. Probes for the cluster's saturation point instead of fixed limits. When
+ * disabled the configured bulk actions are used and the requests in flight are not limited.
+ */
+public class AdaptiveBulkController
+{
+    private final boolean enabled;
+
+    private final long targetLatencyMillis;
+
+    private final int minInFlightRequests;
+
+    private final int maxInFlightRequests;
+
+    private final int minActions;
+
+    private final int maxActions;
+
+    private final int actionsIncrement;
+
+    private final double decreaseFactor;
+
+    private int inFlightRequestsLimit;
+
+    private int actions;
+
+    public AdaptiveBulkController(final IndexingSettings indexingSettings)
+    {
+        enabled = indexingSettings.isAdaptiveBulkEnabled();
+        targetLatencyMillis = indexingSettings.getAdaptiveBulkTargetLatency().toMillis();
+        minInFlightRequests = Math.max(1, indexingSettings.getAdaptiveBulkMinInFlightRequests());
+        maxInFlightRequests = Math.max(minInFlightRequests, indexingSettings.getAdaptiveBulkMaxInFlightRequests());
+        maxActions = indexingSettings.getBulkActions();
+        minActions = Math.max(1, Math.min(indexingSettings.getAdaptiveBulkMinActions(), maxActions));
+        actionsIncrement = indexingSettings.getAdaptiveBulkActionsIncrement();
+        decreaseFactor = indexingSettings.getAdaptiveBulkDecreaseFactor();
+        // Start low and grow, the first responses tell how much the cluster takes.
+        inFlightRequestsLimit = enabled ? minInFlightRequests : Integer.MAX_VALUE;
+        actions = maxActions;
+    }
+
+    /**
+     * Feeds back the outcome of a bulk request, latency measured from handing it to the indexers until its response.
+     */
+    public void onBulkRequestCompleted(final long latencyMillis, final boolean rejected)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        if (rejected || latencyMillis > targetLatencyMillis)
+        {
+            inFlightRequestsLimit = Math.max(minInFlightRequests, (int) (inFlightRequestsLimit * decreaseFactor));
+            actions = Math.max(minActions, (int) (actions * decreaseFactor));
+        }
+        else
+        {
+            inFlightRequestsLimit = Math.min(maxInFlightRequests, inFlightRequestsLimit + 1);
+            actions = Math.min(maxActions, actions + actionsIncrement);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public int getInFlightRequestsLimit()
+    {
+        return inFlightRequestsLimit;
+    }
+
+    public int getActions()
+    {
+        return actions;
+    }
+}
@@ -2,5 +2,18 @@ package org.jai.search.actors;
 
 public interface BootStrapIndexService
 {
+    /**
+     * Rebuilds all indices and waits for completion.
+     */
     void preparingIndexes();
+
+    /**
+     * Starts rebuilding all indices without waiting, joins the running rebuild if there is one.
+     */
+    IndexRebuildHandle rebuildIndexes();
+
+    /**
+     * Starts indexing the products modified since the last rebuild or update into the live indices, without waiting.
+     */
+    IndexRebuildHandle updateIndexes();
 }
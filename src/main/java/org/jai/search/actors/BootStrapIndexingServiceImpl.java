@@ -1,5 +1,6 @@
 package org.jai.search.actors;
 
+import org.jai.search.config.IndexingSettings;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.setup.SetupIndexService;
 
@@ -7,14 +8,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StopWatch;
 
 import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
 import akka.pattern.Patterns;
 import akka.util.Timeout;
-import scala.concurrent.Await;
 import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 
 @Service
 public class BootStrapIndexingServiceImpl implements BootStrapIndexService
@@ -30,31 +29,44 @@ public class BootStrapIndexingServiceImpl implements BootStrapIndexService
     @Autowired
     private ActorRef setupIndexMasterActor;
 
+    @Autowired
+    private ActorSystem actorSystem;
+
     @Override
     public void preparingIndexes()
     {
-        logger.info("Starting index preparation for {}", IndexingMessage.REBUILD_ALL_INDICES);
-        setupIndexMasterActor.tell(IndexingMessage.REBUILD_ALL_INDICES, null);
-        final Timeout timeout = new Timeout(Duration.create(10, "seconds"));
-        final StopWatch stopWatch = new StopWatch();
-        Future<Object> future = Patterns.ask(setupIndexMasterActor, IndexingMessage.REBUILD_ALL_INDICES_DONE, timeout);
+        final IndexingSettings indexingSettings = new IndexingSettings(actorSystem.settings().config());
         try
         {
-            // Allow only to run for max 5 min. and check every few sec usign thread sleep.
-            stopWatch.start();
-            while (!(Boolean) Await.result(future, timeout.duration()) && stopWatch.getTotalTimeSeconds() < 5 * 60)
-            {
-                future = Patterns.ask(setupIndexMasterActor, IndexingMessage.REBUILD_ALL_INDICES_DONE, timeout);
-                logger.debug("Index setup status check, Got back " + false);
-                // TODO: use this, based on your time taken by ur env. here, 100 ms
-                Thread.sleep(100);
-            }
-            logger.debug("Index setup status check, Got back " + true);
+            rebuildIndexes().awaitCompletion(indexingSettings.getRebuildTimeout());
+            logger.debug("Index setup finished");
         }
         catch (final Exception e)
         {
-            logger.debug("Index setup status check, Failed getting result: " + e.getMessage());
+            logger.error("Index setup did not finish within " + indexingSettings.getRebuildTimeout() + ": " + e.getMessage());
         }
         logger.debug("All indexing setup finished using Akka system, Enjoy!");
     }
+
+    @Override
+    public IndexRebuildHandle rebuildIndexes()
+    {
+        logger.info("Starting index preparation for {}", IndexingMessage.REBUILD_ALL_INDICES);
+        return askSetupIndexMaster(IndexingMessage.REBUILD_ALL_INDICES);
+    }
+
+    @Override
+    public IndexRebuildHandle updateIndexes()
+    {
+        logger.info("Starting index update for {}", IndexingMessage.INCREMENTAL_UPDATE);
+        return askSetupIndexMaster(IndexingMessage.INCREMENTAL_UPDATE);
+    }
+
+    private IndexRebuildHandle askSetupIndexMaster(final IndexingMessage indexingMessage)
+    {
+        final IndexingSettings indexingSettings = new IndexingSettings(actorSystem.settings().config());
+        final Future<Object> completion = Patterns.ask(setupIndexMasterActor, indexingMessage,
+                new Timeout(indexingSettings.getRebuildTimeout()));
+        return new IndexRebuildHandle(actorSystem, completion);
+    }
 }
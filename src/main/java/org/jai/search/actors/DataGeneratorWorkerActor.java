@@ -1,22 +1,61 @@
 package org.jai.search.actors;
 
+import org.jai.search.config.IndexingSettings;
+import org.jai.search.data.ProductCursor;
+import org.jai.search.data.ProductSource;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.exception.DocumentTypeDataGenerationException;
+import org.jai.search.model.Product;
 
-import akka.actor.UntypedActor;
+import java.io.IOException;
+import java.util.List;
+
+import akka.actor.ActorRef;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import scala.Option;
 
-public class DataGeneratorWorkerActor extends UntypedActor
+public class DataGeneratorWorkerActor extends MeteredUntypedActor
 {
     final LoggingAdapter LOG = Logging.getLogger(getContext().system(), this);
 
     private final SampleDataGeneratorService sampleDataGeneratorService;
 
-    public DataGeneratorWorkerActor(final SampleDataGeneratorService sampleDataGeneratorService)
+    private final ProductSource productSource;
+
+    private final IndexingSettings indexingSettings;
+
+    // Document type being generated, documents are only emitted as demanded by the requester.
+    private IndexDocumentTypeMessageVO indexDocumentTypeMessageVO;
+
+    private ActorRef requester;
+
+    // Next stages of the pipeline, documents go there directly and only their ids are reported to the requester.
+    private ActorRef documentGenerator;
+
+    private ActorRef documentIndexer;
+
+    private IndexDocumentsEmittedVO emittedDocumentIds = new IndexDocumentsEmittedVO();
+
+    private int totalDocuments = 0;
+
+    private int nextDocumentId = 1;
+
+    private int demandedDocuments = 0;
+
+    // Products streamed from the product source, total is only known once the cursor is exhausted.
+    private ProductCursor productCursor;
+
+    private int emittedDocuments = 0;
+
+    // Resumed rebuild, products are skipped up to and including this id. Sources stream products in a stable order.
+    private Long skipUntilDocumentId;
+
+    public DataGeneratorWorkerActor(final SampleDataGeneratorService sampleDataGeneratorService, final ProductSource productSource)
     {
         this.sampleDataGeneratorService = sampleDataGeneratorService;
+        this.productSource = productSource;
+        indexingSettings = new IndexingSettings(getContext().system().settings().config());
     }
 
     @Override
@@ -32,7 +71,14 @@ public class DataGeneratorWorkerActor extends UntypedActor
                 switch (indexDocumentTypeMessageVO.getIndexDocumentType())
                 {
                     case PRODUCT:
-                        generateData(indexDocumentTypeMessageVO, sampleDataGeneratorService.generateProductsSampleData().size());
+                        if (productSource != null)
+                        {
+                            streamData(indexDocumentTypeMessageVO);
+                        }
+                        else
+                        {
+                            generateData(indexDocumentTypeMessageVO, sampleDataGeneratorService.generateProductsSampleData().size());
+                        }
                         break;
                     case PRODUCT_PROPERTY:
                         generateData(indexDocumentTypeMessageVO, sampleDataGeneratorService.generateProductPropertySampleData().size());
@@ -53,6 +99,19 @@ public class DataGeneratorWorkerActor extends UntypedActor
                 getSender().tell(dataGenerationException, getSelf());
             }
         }
+        // demand from the document type worker
+        else if (message instanceof IndexDocumentDemandVO)
+        {
+            demandedDocuments += ((IndexDocumentDemandVO) message).getCount();
+            if (productCursor != null)
+            {
+                emitDemandedProducts();
+            }
+            else
+            {
+                emitDemandedDocuments();
+            }
+        }
         else
         {
             handleUnhandledMessage(message);
@@ -61,28 +120,197 @@ public class DataGeneratorWorkerActor extends UntypedActor
 
     private void handleUnhandledMessage(final Object message)
     {
-        // No local state the Actor, so can be restarted etc. no issues.
         LOG.error("Unhandled message encountered in DataGeneratorWorkerActor: {}", message);
         unhandled(message);
     }
 
     private void generateData(final IndexDocumentTypeMessageVO indexDocumentTypeMessageVO, final int size)
     {
+        closeProductCursor();
+        // Generated documents have ids 1 to size, a resumed rebuild starts after the checkpoint.
+        final Long resumeAfterDocumentId = indexDocumentTypeMessageVO.getResumeAfterDocumentId();
+        final int firstDocumentId = resumeAfterDocumentId == null ? 1 : (int) Math.min(resumeAfterDocumentId.longValue(), size) + 1;
         // Before starting data generation, send how much data will be generated, which is size.
-        getSender().tell(Integer.valueOf(size), getSelf());
-        
-//        getSender().tell()
-//        IntStream.range(1, size +1).parallel().forEach(i -> getSender().tell(new IndexDocumentVO().config(indexDocumentTypeMessageVO.getConfig())
-//                .documentType(indexDocumentTypeMessageVO.getIndexDocumentType())
-//                .newIndexName(indexDocumentTypeMessageVO.getNewIndexName()).documentId(Long.valueOf(i)), getSelf()));
-         LOG.debug("Generating data for IndexDocumentTypeMessageVO: {}, for size: {}", new Object[]{indexDocumentTypeMessageVO, size});
-         for (int i = 1; i <= size; i++)
-         {
-         final IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(indexDocumentTypeMessageVO.getConfig())
-         .documentType(indexDocumentTypeMessageVO.getIndexDocumentType())
-         .newIndexName(indexDocumentTypeMessageVO.getNewIndexName()).documentId(Long.valueOf(i));
-         getSender().tell(indexDocumentVO, getSelf());
-         }
+        getSender().tell(Integer.valueOf(size - firstDocumentId + 1), getSelf());
+        LOG.debug("Generating data for IndexDocumentTypeMessageVO: {}, for size: {}, starting at: {}", new Object[] {
+                indexDocumentTypeMessageVO, size, firstDocumentId });
+        this.indexDocumentTypeMessageVO = indexDocumentTypeMessageVO;
+        requester = getSender();
+        documentGenerator = indexDocumentTypeMessageVO.getDocumentGenerator();
+        documentIndexer = indexDocumentTypeMessageVO.getDocumentIndexer();
+        totalDocuments = size;
+        nextDocumentId = firstDocumentId;
+        demandedDocuments = 0;
+    }
+
+    private void streamData(final IndexDocumentTypeMessageVO indexDocumentTypeMessageVO) throws IOException
+    {
+        closeProductCursor();
+        LOG.debug("Streaming data for IndexDocumentTypeMessageVO: {}, estimated size: {}", new Object[] { indexDocumentTypeMessageVO,
+                productSource.estimateCount() });
+        productCursor = indexDocumentTypeMessageVO.isIncrementalUpdate() ? productSource.openCursor(indexDocumentTypeMessageVO
+                .getModifiedSince()) : productSource.openCursor();
+        this.indexDocumentTypeMessageVO = indexDocumentTypeMessageVO;
+        requester = getSender();
+        documentGenerator = indexDocumentTypeMessageVO.getDocumentGenerator();
+        documentIndexer = indexDocumentTypeMessageVO.getDocumentIndexer();
+        emittedDocuments = 0;
+        demandedDocuments = 0;
+        skipUntilDocumentId = indexDocumentTypeMessageVO.getResumeAfterDocumentId();
+    }
+
+    private void emitDemandedProducts()
+    {
+        try
+        {
+            while (demandedDocuments > 0 && productCursor != null)
+            {
+                final List<Product> products = productCursor.nextPage(demandedDocuments);
+                if (products.isEmpty() && skipUntilDocumentId != null)
+                {
+                    // Checkpointed product is gone from the source, index all of it again.
+                    LOG.warning("Checkpointed product {} not found, streaming all products for IndexDocumentTypeMessageVO: {}",
+                            new Object[] { skipUntilDocumentId, indexDocumentTypeMessageVO });
+                    closeProductCursor();
+                    productCursor = productSource.openCursor();
+                    skipUntilDocumentId = null;
+                    continue;
+                }
+                if (products.isEmpty())
+                {
+                    // Source exhausted, now the exact size is known.
+                    LOG.debug("Data streaming done for IndexDocumentTypeMessageVO: {}, size: {}", new Object[] {
+                            indexDocumentTypeMessageVO, emittedDocuments });
+                    reportEmittedDocuments();
+                    requester.tell(Integer.valueOf(emittedDocuments), getSelf());
+                    closeProductCursor();
+                    indexDocumentTypeMessageVO = null;
+                    requester = null;
+                    demandedDocuments = 0;
+                    break;
+                }
+                for (final Product product : products)
+                {
+                    if (skipUntilDocumentId != null)
+                    {
+                        if (skipUntilDocumentId.equals(product.getId()))
+                        {
+                            skipUntilDocumentId = null;
+                        }
+                        continue;
+                    }
+                    final IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(indexDocumentTypeMessageVO.getConfig())
+                            .documentType(indexDocumentTypeMessageVO.getIndexDocumentType())
+                            .newIndexName(indexDocumentTypeMessageVO.getNewIndexName()).documentId(product.getId()).product(product);
+                    emitDocument(indexDocumentVO, documentIndexer);
+                    emittedDocuments++;
+                    demandedDocuments--;
+                }
+            }
+            reportEmittedDocuments();
+        }
+        catch (final IOException ex)
+        {
+            final String errorMessage = "Error occurred while streaming data for message" + indexDocumentTypeMessageVO;
+            LOG.error(ex, errorMessage);
+            requester.tell(new DocumentTypeDataGenerationException(indexDocumentTypeMessageVO.getIndexDocumentType(), errorMessage, ex),
+                    getSelf());
+            closeProductCursor();
+            indexDocumentTypeMessageVO = null;
+            requester = null;
+            demandedDocuments = 0;
+        }
+    }
+
+    private void closeProductCursor()
+    {
+        if (productCursor != null)
+        {
+            try
+            {
+                productCursor.close();
+            }
+            catch (final IOException ex)
+            {
+                LOG.error(ex, "Error occurred while closing product cursor!");
+            }
+            productCursor = null;
+        }
+    }
+
+    private void emitDemandedDocuments()
+    {
+        while (demandedDocuments > 0 && nextDocumentId <= totalDocuments)
+        {
+            if (documentGenerator == null)
+            {
+                final IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(indexDocumentTypeMessageVO.getConfig())
+                        .documentType(indexDocumentTypeMessageVO.getIndexDocumentType())
+                        .newIndexName(indexDocumentTypeMessageVO.getNewIndexName()).documentId(nextDocumentId);
+                emitDocument(indexDocumentVO, null);
+                nextDocumentId++;
+                demandedDocuments--;
+            }
+            else
+            {
+                // Documents are only materialized by the document generator, ids are sent as ranges spread over its routees.
+                final int toDocumentId = Math.min(nextDocumentId + Math.min(demandedDocuments, indexingSettings.getRangeSize()) - 1,
+                        totalDocuments);
+                emitDocumentRange(nextDocumentId, toDocumentId);
+                demandedDocuments -= toDocumentId - nextDocumentId + 1;
+                nextDocumentId = toDocumentId + 1;
+            }
+        }
+        if (requester != null)
+        {
+            reportEmittedDocuments();
+        }
+        if (indexDocumentTypeMessageVO != null && nextDocumentId > totalDocuments)
+        {
+            LOG.debug("Data generation done for IndexDocumentTypeMessageVO: {}", indexDocumentTypeMessageVO);
+            indexDocumentTypeMessageVO = null;
+            requester = null;
+            totalDocuments = 0;
+            demandedDocuments = 0;
+        }
+    }
+
+    private void emitDocument(final IndexDocumentVO indexDocumentVO, final ActorRef nextStage)
+    {
+        indexDocumentVO.replyTo(requester).documentIndexer(documentIndexer);
+        if (nextStage == null)
+        {
+            // Not chained, the requester routes the document itself.
+            requester.tell(indexDocumentVO, getSelf());
+        }
+        else
+        {
+            nextStage.tell(indexDocumentVO, getSelf());
+            emittedDocumentIds.addDocumentId(indexDocumentVO.getDocumentId());
+        }
+    }
+
+    private void emitDocumentRange(final int fromDocumentId, final int toDocumentId)
+    {
+        documentGenerator.tell(new IndexDocumentRangeVO().config(indexDocumentTypeMessageVO.getConfig())
+                .documentType(indexDocumentTypeMessageVO.getIndexDocumentType()).newIndexName(indexDocumentTypeMessageVO.getNewIndexName())
+                .fromDocumentId(fromDocumentId).toDocumentId(toDocumentId).replyTo(requester).documentIndexer(documentIndexer), getSelf());
+        emittedDocumentIds.addDocumentRange(fromDocumentId, toDocumentId);
+    }
+
+    private void reportEmittedDocuments()
+    {
+        if (!emittedDocumentIds.isEmpty())
+        {
+            requester.tell(emittedDocumentIds, getSelf());
+            emittedDocumentIds = new IndexDocumentsEmittedVO();
+        }
+    }
+
+    @Override
+    public void postStop()
+    {
+        closeProductCursor();
     }
 
     @Override
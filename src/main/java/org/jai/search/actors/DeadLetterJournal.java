@@ -0,0 +1,190 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.config.IndexingSettings;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * Append only file per index config of the documents which could not be indexed, after retries for transient failures. One tab
+ * separated line per document: time, index name, document type, document id, retries and failure, enough to generate or read the
+ * document again for a replay. Also counts the failed and retried documents of the running rebuild per index config and document type.
+ * Shared by all the actors of the system, see {@link #get(ActorSystem)}.
+ */
+public class DeadLetterJournal implements Extension
+{
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterJournal.class);
+
+    private static final Id ID = new Id();
+
+    private final boolean enabled;
+
+    private final File directory;
+
+    private final Map<ElasticSearchIndexConfig, Map<IndexDocumentType, Integer>> documentsFailed =
+            new EnumMap<ElasticSearchIndexConfig, Map<IndexDocumentType, Integer>>(ElasticSearchIndexConfig.class);
+
+    private final Map<ElasticSearchIndexConfig, Map<IndexDocumentType, Integer>> documentsRetried =
+            new EnumMap<ElasticSearchIndexConfig, Map<IndexDocumentType, Integer>>(ElasticSearchIndexConfig.class);
+
+    public DeadLetterJournal(final IndexingSettings indexingSettings)
+    {
+        enabled = indexingSettings.isDeadLetterEnabled();
+        directory = new File(indexingSettings.getDeadLetterDirectory());
+    }
+
+    public static DeadLetterJournal get(final ActorSystem system)
+    {
+        return ID.get(system);
+    }
+
+    public synchronized void append(final IndexDocumentVO indexDocumentVO, final String failure)
+    {
+        append(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(), indexDocumentVO.getDocumentType(),
+                indexDocumentVO.getDocumentId(), indexDocumentVO.getRetries(), failure);
+    }
+
+    public synchronized void append(final ElasticSearchIndexConfig config, final String indexName, final IndexDocumentType documentType,
+            final long documentId, final int retries, final String failure)
+    {
+        if (config == null)
+        {
+            logger.error("Dead letter of document {} without index config: {}", documentId, failure);
+            return;
+        }
+        increment(documentsFailed, config, documentType, 1);
+        if (!enabled)
+        {
+            return;
+        }
+        final File file = getFile(config);
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                throw new IOException("Dead letter directory could not be created: " + directory);
+            }
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+            try
+            {
+                writer.write(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date()) + "\t" + indexName + "\t" + documentType
+                        + "\t" + documentId + "\t" + retries + "\t" + String.valueOf(failure).replaceAll("\\s+", " ") + "\n");
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch (final IOException ex)
+        {
+            logger.error("Error occurred while writing dead letter of document " + documentId + " to: " + file, ex);
+        }
+    }
+
+    public synchronized void recordRetries(final ElasticSearchIndexConfig config, final IndexDocumentType documentType, final int retries)
+    {
+        if (config != null)
+        {
+            increment(documentsRetried, config, documentType, retries);
+        }
+    }
+
+    /**
+     * Resets the counts at the start of a rebuild, the file is kept.
+     */
+    public synchronized void reset(final ElasticSearchIndexConfig config)
+    {
+        documentsFailed.remove(config);
+        documentsRetried.remove(config);
+    }
+
+    public synchronized int getDocumentsFailed(final ElasticSearchIndexConfig config)
+    {
+        return sum(documentsFailed, config);
+    }
+
+    public synchronized int getDocumentsFailed(final ElasticSearchIndexConfig config, final IndexDocumentType documentType)
+    {
+        return get(documentsFailed, config, documentType);
+    }
+
+    public synchronized int getDocumentsRetried(final ElasticSearchIndexConfig config)
+    {
+        return sum(documentsRetried, config);
+    }
+
+    public synchronized int getDocumentsRetried(final ElasticSearchIndexConfig config, final IndexDocumentType documentType)
+    {
+        return get(documentsRetried, config, documentType);
+    }
+
+    public File getFile(final ElasticSearchIndexConfig config)
+    {
+        return new File(directory, config.name() + ".deadletter");
+    }
+
+    private void increment(final Map<ElasticSearchIndexConfig, Map<IndexDocumentType, Integer>> counts,
+            final ElasticSearchIndexConfig config, final IndexDocumentType documentType, final int count)
+    {
+        Map<IndexDocumentType, Integer> countsOfConfig = counts.get(config);
+        if (countsOfConfig == null)
+        {
+            countsOfConfig = new EnumMap<IndexDocumentType, Integer>(IndexDocumentType.class);
+            counts.put(config, countsOfConfig);
+        }
+        countsOfConfig.put(documentType, get(counts, config, documentType) + count);
+    }
+
+    private int get(final Map<ElasticSearchIndexConfig, Map<IndexDocumentType, Integer>> counts, final ElasticSearchIndexConfig config,
+            final IndexDocumentType documentType)
+    {
+        final Map<IndexDocumentType, Integer> countsOfConfig = counts.get(config);
+        return countsOfConfig != null && countsOfConfig.containsKey(documentType) ? countsOfConfig.get(documentType) : 0;
+    }
+
+    private int sum(final Map<ElasticSearchIndexConfig, Map<IndexDocumentType, Integer>> counts, final ElasticSearchIndexConfig config)
+    {
+        int sum = 0;
+        if (counts.containsKey(config))
+        {
+            for (final Integer count : counts.get(config).values())
+            {
+                sum += count;
+            }
+        }
+        return sum;
+    }
+
+    private static class Id extends AbstractExtensionId<DeadLetterJournal> implements ExtensionIdProvider
+    {
+        @Override
+        public Id lookup()
+        {
+            return ID;
+        }
+
+        @Override
+        public DeadLetterJournal createExtension(final ExtendedActorSystem system)
+        {
+            return new DeadLetterJournal(new IndexingSettings(system.settings().config()));
+        }
+    }
+}
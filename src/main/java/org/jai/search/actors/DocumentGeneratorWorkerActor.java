@@ -1,26 +1,40 @@
 package org.jai.search.actors;
 
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.exception.DocumentGenerationException;
 import org.jai.search.model.Product;
 import org.jai.search.model.ProductGroup;
 import org.jai.search.model.ProductProperty;
+import org.jai.search.util.LatencyHistogram;
 
 import org.springframework.util.Assert;
 
-import akka.actor.UntypedActor;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 
-public class DocumentGeneratorWorkerActor extends UntypedActor
+public class DocumentGeneratorWorkerActor extends MeteredUntypedActor
 {
     final LoggingAdapter LOG = Logging.getLogger(getContext().system(), this);
 
     private final SampleDataGeneratorService sampleDataGenerator;
 
+    private final DeadLetterJournal deadLetterJournal;
+
+    private final RebuildStatistics rebuildStatistics;
+
+    // Generation latencies of the current message, added to the rebuild statistics once per message.
+    private final LatencyHistogram generationLatencyMicros = RebuildStatistics.createGenerationLatencyHistogram();
+
     public DocumentGeneratorWorkerActor(final SampleDataGeneratorService sampleDataGenerator)
     {
         this.sampleDataGenerator = sampleDataGenerator;
+        deadLetterJournal = DeadLetterJournal.get(getContext().system());
+        rebuildStatistics = RebuildStatistics.get(getContext().system());
     }
 
     @Override
@@ -29,48 +43,102 @@ public class DocumentGeneratorWorkerActor extends UntypedActor
         // LOG.debug("Worker Actor message for DocumentGeneratorWorkerActor is:" + message);
         if (message instanceof IndexDocumentVO)
         {
+            final IndexDocumentVO indexDocumentVO = (IndexDocumentVO) message;
             try
             {
-                final IndexDocumentVO indexDocumentVO = (IndexDocumentVO) message;
-                switch (indexDocumentVO.getDocumentType())
-                {
-                    case PRODUCT:
-                        final Product product = sampleDataGenerator.generateProductSampleDataFor(indexDocumentVO.getDocumentId());
-                        Assert.notNull(product);
-                        indexDocumentVO.product(product);
-                        getSender().tell(indexDocumentVO, null);
-                        break;
-                    case PRODUCT_PROPERTY:
-                        final ProductProperty productProperty = sampleDataGenerator.generateProductPropertySampleDataFor(indexDocumentVO
-                                .getDocumentId());
-                        Assert.notNull(productProperty);
-                        indexDocumentVO.productProperty(productProperty);
-                        getSender().tell(indexDocumentVO, null);
-                        break;
-                    case PRODUCT_GROUP:
-                        final ProductGroup productGroup = sampleDataGenerator.generateProductGroupSampleDataFor(indexDocumentVO
-                                .getDocumentId());
-                        Assert.notNull(productGroup);
-                        indexDocumentVO.productGroup(productGroup);
-                        getSender().tell(indexDocumentVO, null);
-                        break;
-                    default:
-                        handleUnhandledMessage(message);
-                }
+                generateDocument(indexDocumentVO);
+                recordGenerationLatency(indexDocumentVO.getConfig(), indexDocumentVO.getDocumentType());
+                getNextStage(indexDocumentVO).tell(indexDocumentVO, getSelf());
             }
             catch (final Exception e)
             {
                 LOG.error(e, "Error occurred while generating document for message: {}", message);
+                deadLetterJournal.append(indexDocumentVO, e.getMessage());
                 final DocumentGenerationException documentGenerationException = new DocumentGenerationException(e);
-                getSender().tell(documentGenerationException, getSelf());
+                getReplyTo(indexDocumentVO).tell(documentGenerationException, getSelf());
             }
         }
+        else if (message instanceof IndexDocumentRangeVO)
+        {
+            generateDocumentRange((IndexDocumentRangeVO) message);
+        }
         else
         {
             handleUnhandledMessage(message);
         }
     }
 
+    private void generateDocumentRange(final IndexDocumentRangeVO indexDocumentRangeVO)
+    {
+        for (long documentId = indexDocumentRangeVO.getFromDocumentId(); documentId <= indexDocumentRangeVO.getToDocumentId(); documentId++)
+        {
+            final IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(indexDocumentRangeVO.getConfig())
+                    .documentType(indexDocumentRangeVO.getDocumentType()).newIndexName(indexDocumentRangeVO.getNewIndexName())
+                    .documentId(documentId).replyTo(indexDocumentRangeVO.getReplyTo())
+                    .documentIndexer(indexDocumentRangeVO.getDocumentIndexer());
+            try
+            {
+                generateDocument(indexDocumentVO);
+                getNextStage(indexDocumentVO).tell(indexDocumentVO, getSelf());
+            }
+            catch (final Exception e)
+            {
+                // Only this document fails, the rest of the range is still generated.
+                LOG.error(e, "Error occurred while generating document {} for message: {}", new Object[] { documentId,
+                        indexDocumentRangeVO });
+                deadLetterJournal.append(indexDocumentVO, e.getMessage());
+                getReplyTo(indexDocumentVO).tell(new DocumentGenerationException(e), getSelf());
+            }
+        }
+        recordGenerationLatency(indexDocumentRangeVO.getConfig(), indexDocumentRangeVO.getDocumentType());
+    }
+
+    private void recordGenerationLatency(final ElasticSearchIndexConfig config, final IndexDocumentType documentType)
+    {
+        rebuildStatistics.recordGeneration(config, documentType, generationLatencyMicros);
+        generationLatencyMicros.reset();
+    }
+
+    private void generateDocument(final IndexDocumentVO indexDocumentVO)
+    {
+        final long startTime = System.nanoTime();
+        switch (indexDocumentVO.getDocumentType())
+        {
+            case PRODUCT:
+                final Product product = sampleDataGenerator.generateProductSampleDataFor(indexDocumentVO.getDocumentId());
+                Assert.notNull(product);
+                indexDocumentVO.product(product);
+                break;
+            case PRODUCT_PROPERTY:
+                final ProductProperty productProperty = sampleDataGenerator.generateProductPropertySampleDataFor(indexDocumentVO
+                        .getDocumentId());
+                Assert.notNull(productProperty);
+                indexDocumentVO.productProperty(productProperty);
+                break;
+            case PRODUCT_GROUP:
+                final ProductGroup productGroup = sampleDataGenerator.generateProductGroupSampleDataFor(indexDocumentVO
+                        .getDocumentId());
+                Assert.notNull(productGroup);
+                indexDocumentVO.productGroup(productGroup);
+                break;
+            default:
+                throw new IllegalArgumentException("Document type not supported: " + indexDocumentVO.getDocumentType());
+        }
+        // Failed documents are not timed.
+        generationLatencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    }
+
+    private ActorRef getNextStage(final IndexDocumentVO indexDocumentVO)
+    {
+        // Generated document goes straight to indexing, the document type worker only gets the completion counts.
+        return indexDocumentVO.getDocumentIndexer() != null ? indexDocumentVO.getDocumentIndexer() : getReplyTo(indexDocumentVO);
+    }
+
+    private ActorRef getReplyTo(final IndexDocumentVO indexDocumentVO)
+    {
+        return indexDocumentVO.getReplyTo() != null ? indexDocumentVO.getReplyTo() : getSender();
+    }
+
     private void handleUnhandledMessage(final Object message)
     {
         // No local state the Actor, so can be restarted etc. no issues.
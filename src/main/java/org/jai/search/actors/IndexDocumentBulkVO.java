@@ -0,0 +1,166 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import akka.actor.ActorRef;
+
+/**
+ * Batch of generated documents of a single index and document type, indexed using one bulk request. Documents are kept in the same
+ * order as the bulk request items, so bulk item responses can be matched back to the documents using the item id.
+ */
+public class IndexDocumentBulkVO
+{
+    private ElasticSearchIndexConfig config;
+
+    private IndexDocumentType documentType;
+
+    private String newIndexName;
+
+    private BulkRequestBuilder bulkRequestBuilder;
+
+    private final List<IndexDocumentVO> documents = new ArrayList<IndexDocumentVO>();
+
+    private final long createdTime = System.currentTimeMillis();
+
+    private boolean indexDone;
+
+    // Document type worker the completion counts are reported to.
+    private ActorRef replyTo;
+
+    // Bulk worker the completed bulk request is handed back to, for its latency and rejections.
+    private ActorRef bulkWorker;
+
+    private long sentTime;
+
+    // Cluster rejected the request or some of its items for being overloaded.
+    private boolean rejected;
+
+    public IndexDocumentBulkVO config(final ElasticSearchIndexConfig elasticSearchIndexConfig)
+    {
+        this.config = elasticSearchIndexConfig;
+        return this;
+    }
+
+    public IndexDocumentBulkVO documentType(final IndexDocumentType documentType)
+    {
+        this.documentType = documentType;
+        return this;
+    }
+
+    public IndexDocumentBulkVO newIndexName(final String indexName)
+    {
+        this.newIndexName = indexName;
+        return this;
+    }
+
+    public IndexDocumentBulkVO bulkRequestBuilder(final BulkRequestBuilder bulkRequestBuilder)
+    {
+        this.bulkRequestBuilder = bulkRequestBuilder;
+        return this;
+    }
+
+    public IndexDocumentBulkVO addDocument(final IndexDocumentVO indexDocumentVO)
+    {
+        documents.add(indexDocumentVO);
+        return this;
+    }
+
+    public IndexDocumentBulkVO indexDone(final boolean indexDone)
+    {
+        this.indexDone = indexDone;
+        return this;
+    }
+
+    public IndexDocumentBulkVO replyTo(final ActorRef replyTo)
+    {
+        this.replyTo = replyTo;
+        return this;
+    }
+
+    public IndexDocumentBulkVO bulkWorker(final ActorRef bulkWorker)
+    {
+        this.bulkWorker = bulkWorker;
+        return this;
+    }
+
+    public IndexDocumentBulkVO sentTime(final long sentTime)
+    {
+        this.sentTime = sentTime;
+        return this;
+    }
+
+    public IndexDocumentBulkVO rejected(final boolean rejected)
+    {
+        this.rejected = rejected;
+        return this;
+    }
+
+    public ElasticSearchIndexConfig getConfig()
+    {
+        return config;
+    }
+
+    public IndexDocumentType getDocumentType()
+    {
+        return documentType;
+    }
+
+    public String getNewIndexName()
+    {
+        return newIndexName;
+    }
+
+    public BulkRequestBuilder getBulkRequestBuilder()
+    {
+        return bulkRequestBuilder;
+    }
+
+    public List<IndexDocumentVO> getDocuments()
+    {
+        return documents;
+    }
+
+    public long getCreatedTime()
+    {
+        return createdTime;
+    }
+
+    public boolean isIndexDone()
+    {
+        return indexDone;
+    }
+
+    public ActorRef getReplyTo()
+    {
+        return replyTo;
+    }
+
+    public ActorRef getBulkWorker()
+    {
+        return bulkWorker;
+    }
+
+    public long getSentTime()
+    {
+        return sentTime;
+    }
+
+    public boolean isRejected()
+    {
+        return rejected;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(config).append(documentType).append(newIndexName).append(documents.size())
+                .append(indexDone).append(rejected).toString();
+    }
+}
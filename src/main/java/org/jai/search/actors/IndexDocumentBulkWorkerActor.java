@@ -0,0 +1,373 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.config.IndexingSettings;
+import org.jai.search.exception.IndexDataException;
+import org.jai.search.index.IndexProductDataService;
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Collects generated documents into bulk requests per index name and document type. A batch is handed to the indexers when it
+ * reaches the configured number of actions or size in bytes, when it gets older than the flush interval, when all the documents the
+ * parent expects have arrived or failed generation, or when the parent asks for all pending batches to be flushed. The parent announces
+ * each document type, the bulk worker is reused across document types. Indexers report the outcome to the parent and hand the completed
+ * batch back, its latency and rejections drive the {@link AdaptiveBulkController} limiting the batches in flight and their size.
+ * Documents of the batch which failed transiently are indexed again in a new batch after a backoff.
+ */
+public class IndexDocumentBulkWorkerActor extends MeteredUntypedActor
+{
+    final LoggingAdapter LOG = Logging.getLogger(getContext().system(), this);
+
+    private final IndexProductDataService indexProductDataService;
+
+    private final IndexingSettings indexingSettings;
+
+    private final ActorRef indexDocumentWorkerRouter;
+
+    // Documents of the current document type, all pending batches are flushed once the expected number arrived or failed generation.
+    private IndexDocumentType documentType;
+
+    private String newIndexName;
+
+    private int expectedDocuments = -1;
+
+    private int receivedDocuments = 0;
+
+    private final Map<String, IndexDocumentBulkVO> pendingBulkRequests = new HashMap<String, IndexDocumentBulkVO>();
+
+    private Cancellable flushSchedule;
+
+    private final AdaptiveBulkController adaptiveBulkController;
+
+    // Batches ready to be indexed, waiting for an in-flight slot.
+    private final Queue<IndexDocumentBulkVO> readyBulkRequests = new ArrayDeque<IndexDocumentBulkVO>();
+
+    private int inFlightBulkRequests = 0;
+
+    private final IndexRetryPolicy indexRetryPolicy;
+
+    private final DeadLetterJournal deadLetterJournal;
+
+    private final RebuildStatistics rebuildStatistics;
+
+    public IndexDocumentBulkWorkerActor(final IndexProductDataService indexProductDataService, final ActorRef indexDocumentWorkerRouter)
+    {
+        this.indexProductDataService = indexProductDataService;
+        this.indexDocumentWorkerRouter = indexDocumentWorkerRouter;
+        indexingSettings = new IndexingSettings(getContext().system().settings().config());
+        adaptiveBulkController = new AdaptiveBulkController(indexingSettings);
+        indexRetryPolicy = new IndexRetryPolicy(indexingSettings);
+        deadLetterJournal = DeadLetterJournal.get(getContext().system());
+        rebuildStatistics = RebuildStatistics.get(getContext().system());
+    }
+
+    @Override
+    public void preStart()
+    {
+        flushSchedule = getContext()
+                .system()
+                .scheduler()
+                .schedule(indexingSettings.getBulkFlushInterval(), indexingSettings.getBulkFlushInterval(), getSelf(),
+                        IndexingMessage.FLUSH_EXPIRED_BULK_REQUESTS, getContext().dispatcher(), null);
+    }
+
+    @Override
+    public void postStop()
+    {
+        if (flushSchedule != null)
+        {
+            flushSchedule.cancel();
+        }
+    }
+
+    @Override
+    public void onReceive(final Object message)
+    {
+        if (message instanceof IndexDocumentVO)
+        {
+            final IndexDocumentVO indexDocumentVO = (IndexDocumentVO) message;
+            if (isOfCurrentDocumentType(indexDocumentVO))
+            {
+                receivedDocuments++;
+            }
+            try
+            {
+                addDocumentToBulkRequest(indexDocumentVO);
+            }
+            catch (final Exception e)
+            {
+                failDocument(indexDocumentVO, e);
+            }
+            flushBulkRequestsIfAllDocumentsReceived();
+        }
+        else if (message instanceof IndexDocumentBulkVO)
+        {
+            handleBulkRequestCompleted((IndexDocumentBulkVO) message);
+        }
+        else if (message instanceof IndexDocumentsRetryVO)
+        {
+            retryDocuments((IndexDocumentsRetryVO) message);
+        }
+        else if (message instanceof IndexDocumentTypeMessageVO)
+        {
+            startDocumentType((IndexDocumentTypeMessageVO) message);
+        }
+        else if (message instanceof Integer)
+        {
+            expectedDocuments = (Integer) message;
+            flushBulkRequestsIfAllDocumentsReceived();
+        }
+        else if (IndexingMessage.DOCUMENT_GENERATION_FAILED == message)
+        {
+            // The failed document never arrives here, counted so the last batches are still flushed once the rest arrived.
+            receivedDocuments++;
+            flushBulkRequestsIfAllDocumentsReceived();
+        }
+        else if (IndexingMessage.FLUSH_BULK_REQUESTS == message)
+        {
+            flushBulkRequests(false);
+            resetDocumentType();
+        }
+        else if (IndexingMessage.FLUSH_EXPIRED_BULK_REQUESTS == message)
+        {
+            flushBulkRequests(true);
+        }
+        else
+        {
+            handleUnhandledMessage(message);
+        }
+    }
+
+    private void startDocumentType(final IndexDocumentTypeMessageVO indexDocumentTypeMessageVO)
+    {
+        // Documents left over from a document type which did not complete are not waited for any more.
+        flushBulkRequests(false);
+        resetDocumentType();
+        documentType = indexDocumentTypeMessageVO.getIndexDocumentType();
+        newIndexName = indexDocumentTypeMessageVO.getNewIndexName();
+    }
+
+    private void resetDocumentType()
+    {
+        documentType = null;
+        newIndexName = null;
+        expectedDocuments = -1;
+        receivedDocuments = 0;
+    }
+
+    private boolean isOfCurrentDocumentType(final IndexDocumentVO indexDocumentVO)
+    {
+        // Counted as well if the parent did not announce the document type.
+        return documentType == null
+                || (documentType == indexDocumentVO.getDocumentType() && ObjectUtils.nullSafeEquals(newIndexName,
+                        indexDocumentVO.getNewIndexName()));
+    }
+
+    private void addDocumentToBulkRequest(final IndexDocumentVO indexDocumentVO)
+    {
+        final String bulkRequestKey = indexDocumentVO.getNewIndexName() + "/" + indexDocumentVO.getDocumentType();
+        IndexDocumentBulkVO indexDocumentBulkVO = pendingBulkRequests.get(bulkRequestKey);
+        if (indexDocumentBulkVO == null)
+        {
+            indexDocumentBulkVO = createBulkRequest(indexDocumentVO);
+            pendingBulkRequests.put(bulkRequestKey, indexDocumentBulkVO);
+        }
+        if (!addDocument(indexDocumentBulkVO, indexDocumentVO))
+        {
+            return;
+        }
+        if (indexDocumentBulkVO.getBulkRequestBuilder().numberOfActions() >= adaptiveBulkController.getActions()
+                || indexDocumentBulkVO.getBulkRequestBuilder().request().estimatedSizeInBytes() >= indexingSettings.getBulkSizeInBytes())
+        {
+            pendingBulkRequests.remove(bulkRequestKey);
+            sendBulkRequestToIndexer(indexDocumentBulkVO);
+        }
+    }
+
+    private IndexDocumentBulkVO createBulkRequest(final IndexDocumentVO indexDocumentVO)
+    {
+        return new IndexDocumentBulkVO().config(indexDocumentVO.getConfig()).documentType(indexDocumentVO.getDocumentType())
+                .newIndexName(indexDocumentVO.getNewIndexName()).bulkRequestBuilder(indexProductDataService.prepareBulkRequest());
+    }
+
+    private boolean addDocument(final IndexDocumentBulkVO indexDocumentBulkVO, final IndexDocumentVO indexDocumentVO)
+    {
+        switch (indexDocumentVO.getDocumentType())
+        {
+            case PRODUCT:
+                indexProductDataService.addProductToBulkRequest(indexDocumentBulkVO.getBulkRequestBuilder(), indexDocumentVO.getConfig(),
+                        indexDocumentVO.getNewIndexName(), indexDocumentVO.getProduct());
+                break;
+            case PRODUCT_PROPERTY:
+                indexProductDataService.addProductPropertyToBulkRequest(indexDocumentBulkVO.getBulkRequestBuilder(),
+                        indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(), indexDocumentVO.getProductProperty());
+                break;
+            case PRODUCT_GROUP:
+                indexProductDataService.addProductGroupToBulkRequest(indexDocumentBulkVO.getBulkRequestBuilder(),
+                        indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(), indexDocumentVO.getProductGroup());
+                break;
+            default:
+                handleUnhandledMessage(indexDocumentVO);
+                return false;
+        }
+        // Added in the same order as the bulk request items.
+        indexDocumentBulkVO.addDocument(indexDocumentVO);
+        return true;
+    }
+
+    private void failDocument(final IndexDocumentVO indexDocumentVO, final Exception e)
+    {
+        LOG.error(e, "Error occured while adding document to bulk request for message: {}", indexDocumentVO);
+        deadLetterJournal.append(indexDocumentVO, e.getMessage());
+        final IndexDataException indexDataException = new IndexDataException(e);
+        getContext().parent().tell(indexDataException, getSelf());
+    }
+
+    private void flushBulkRequestsIfAllDocumentsReceived()
+    {
+        // No more documents will arrive for the pending bulk requests, don't wait for the flush interval.
+        if (expectedDocuments >= 0 && receivedDocuments >= expectedDocuments)
+        {
+            flushBulkRequests(false);
+            resetDocumentType();
+        }
+    }
+
+    private void flushBulkRequests(final boolean expiredOnly)
+    {
+        final long expiryTime = System.currentTimeMillis() - indexingSettings.getBulkFlushInterval().toMillis();
+        final List<String> flushedBulkRequestKeys = new ArrayList<String>();
+        for (final Entry<String, IndexDocumentBulkVO> entry : pendingBulkRequests.entrySet())
+        {
+            if (!expiredOnly || entry.getValue().getCreatedTime() <= expiryTime)
+            {
+                flushedBulkRequestKeys.add(entry.getKey());
+                sendBulkRequestToIndexer(entry.getValue());
+            }
+        }
+        for (final String bulkRequestKey : flushedBulkRequestKeys)
+        {
+            pendingBulkRequests.remove(bulkRequestKey);
+        }
+    }
+
+    private void sendBulkRequestToIndexer(final IndexDocumentBulkVO indexDocumentBulkVO)
+    {
+        readyBulkRequests.add(indexDocumentBulkVO);
+        sendReadyBulkRequests();
+    }
+
+    private void sendReadyBulkRequests()
+    {
+        while (inFlightBulkRequests < adaptiveBulkController.getInFlightRequestsLimit() && !readyBulkRequests.isEmpty())
+        {
+            final IndexDocumentBulkVO indexDocumentBulkVO = readyBulkRequests.poll();
+            LOG.debug("Flushing bulk request for index {} and document type {} with documents: {}", new Object[] {
+                    indexDocumentBulkVO.getNewIndexName(), indexDocumentBulkVO.getDocumentType(),
+                    indexDocumentBulkVO.getDocuments().size() });
+            // The indexer reports the completion counts to the parent and hands the bulk back here.
+            indexDocumentBulkVO.replyTo(getContext().parent()).bulkWorker(getSelf()).sentTime(System.currentTimeMillis());
+            indexDocumentWorkerRouter.tell(indexDocumentBulkVO, getSelf());
+            inFlightBulkRequests++;
+        }
+    }
+
+    private void handleBulkRequestCompleted(final IndexDocumentBulkVO indexDocumentBulkVO)
+    {
+        inFlightBulkRequests--;
+        final long latencyMillis = System.currentTimeMillis() - indexDocumentBulkVO.getSentTime();
+        adaptiveBulkController.onBulkRequestCompleted(latencyMillis, indexDocumentBulkVO.isRejected());
+        rebuildStatistics.recordBulkRequest(indexDocumentBulkVO.getConfig(), indexDocumentBulkVO.getDocumentType(), latencyMillis);
+        LOG.debug("Bulk request completed in {} ms, rejected: {}, bulk requests in flight limit: {}, bulk actions: {}", new Object[] {
+                latencyMillis, indexDocumentBulkVO.isRejected(), adaptiveBulkController.getInFlightRequestsLimit(),
+                adaptiveBulkController.getActions() });
+        scheduleRetryOfFailedDocuments(indexDocumentBulkVO);
+        sendReadyBulkRequests();
+    }
+
+    private void scheduleRetryOfFailedDocuments(final IndexDocumentBulkVO indexDocumentBulkVO)
+    {
+        // The indexer leaves the documents to retry not done, the others are reported already.
+        final IndexDocumentsRetryVO indexDocumentsRetryVO = new IndexDocumentsRetryVO();
+        int retries = 0;
+        for (final IndexDocumentVO indexDocumentVO : indexDocumentBulkVO.getDocuments())
+        {
+            if (!indexDocumentVO.isIndexDone())
+            {
+                indexDocumentsRetryVO.addDocument(indexDocumentVO);
+                retries = Math.max(retries, indexDocumentVO.getRetries());
+            }
+        }
+        if (indexDocumentsRetryVO.isEmpty())
+        {
+            return;
+        }
+        final FiniteDuration backoff = indexRetryPolicy.getBackoff(retries);
+        LOG.debug("Retrying {} documents of bulk request in {}, retries: {}", new Object[] { indexDocumentsRetryVO.getDocuments().size(),
+                backoff, retries });
+        deadLetterJournal.recordRetries(indexDocumentBulkVO.getConfig(), indexDocumentBulkVO.getDocumentType(), indexDocumentsRetryVO
+                .getDocuments().size());
+        getContext().system().scheduler().scheduleOnce(backoff, getSelf(), indexDocumentsRetryVO, getContext().dispatcher(), null);
+    }
+
+    private void retryDocuments(final IndexDocumentsRetryVO indexDocumentsRetryVO)
+    {
+        // Own bulk request, not counted as received and not waiting for new documents to fill up.
+        IndexDocumentBulkVO indexDocumentBulkVO = null;
+        for (final IndexDocumentVO indexDocumentVO : indexDocumentsRetryVO.getDocuments())
+        {
+            indexDocumentVO.retries(indexDocumentVO.getRetries() + 1).indexFailure(null);
+            try
+            {
+                if (indexDocumentBulkVO == null)
+                {
+                    indexDocumentBulkVO = createBulkRequest(indexDocumentVO);
+                }
+                addDocument(indexDocumentBulkVO, indexDocumentVO);
+            }
+            catch (final Exception e)
+            {
+                failDocument(indexDocumentVO, e);
+            }
+        }
+        if (indexDocumentBulkVO != null && !indexDocumentBulkVO.getDocuments().isEmpty())
+        {
+            sendBulkRequestToIndexer(indexDocumentBulkVO);
+        }
+    }
+
+    private void handleUnhandledMessage(final Object message)
+    {
+        LOG.error("Unhandled message encountered in IndexDocumentBulkWorkerActor: {}", message);
+        unhandled(message);
+    }
+
+    // /
+    // / For testing purpose
+    // /
+    public int getInFlightBulkRequests()
+    {
+        return inFlightBulkRequests;
+    }
+
+    public int getReadyBulkRequests()
+    {
+        return readyBulkRequests.size();
+    }
+}
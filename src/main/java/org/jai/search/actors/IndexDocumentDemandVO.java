@@ -0,0 +1,27 @@
+package org.jai.search.actors;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Number of further documents the document type worker is ready to accept from the data generator.
+ */
+public class IndexDocumentDemandVO
+{
+    private final int count;
+
+    public IndexDocumentDemandVO(final int count)
+    {
+        this.count = count;
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(count).toString();
+    }
+}
@@ -0,0 +1,120 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import akka.actor.ActorRef;
+
+/**
+ * Consecutive document ids, both inclusive, handed by the data generator to the document generator in one message instead of one
+ * message per document.
+ */
+public class IndexDocumentRangeVO
+{
+    private ElasticSearchIndexConfig config;
+
+    private IndexDocumentType documentType;
+
+    private String newIndexName;
+
+    private long fromDocumentId;
+
+    private long toDocumentId;
+
+    // Document type worker to report failures to.
+    private ActorRef replyTo;
+
+    // Bulk worker or indexer the generated documents are handed to.
+    private ActorRef documentIndexer;
+
+    public IndexDocumentRangeVO config(final ElasticSearchIndexConfig config)
+    {
+        this.config = config;
+        return this;
+    }
+
+    public IndexDocumentRangeVO documentType(final IndexDocumentType documentType)
+    {
+        this.documentType = documentType;
+        return this;
+    }
+
+    public IndexDocumentRangeVO newIndexName(final String newIndexName)
+    {
+        this.newIndexName = newIndexName;
+        return this;
+    }
+
+    public IndexDocumentRangeVO fromDocumentId(final long fromDocumentId)
+    {
+        this.fromDocumentId = fromDocumentId;
+        return this;
+    }
+
+    public IndexDocumentRangeVO toDocumentId(final long toDocumentId)
+    {
+        this.toDocumentId = toDocumentId;
+        return this;
+    }
+
+    public IndexDocumentRangeVO replyTo(final ActorRef replyTo)
+    {
+        this.replyTo = replyTo;
+        return this;
+    }
+
+    public IndexDocumentRangeVO documentIndexer(final ActorRef documentIndexer)
+    {
+        this.documentIndexer = documentIndexer;
+        return this;
+    }
+
+    public ElasticSearchIndexConfig getConfig()
+    {
+        return config;
+    }
+
+    public IndexDocumentType getDocumentType()
+    {
+        return documentType;
+    }
+
+    public String getNewIndexName()
+    {
+        return newIndexName;
+    }
+
+    public long getFromDocumentId()
+    {
+        return fromDocumentId;
+    }
+
+    public long getToDocumentId()
+    {
+        return toDocumentId;
+    }
+
+    public ActorRef getReplyTo()
+    {
+        return replyTo;
+    }
+
+    public ActorRef getDocumentIndexer()
+    {
+        return documentIndexer;
+    }
+
+    public int getSize()
+    {
+        return (int) (toDocumentId - fromDocumentId + 1);
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(config).append(documentType).append(newIndexName).append(fromDocumentId)
+                .append(toDocumentId).toString();
+    }
+}
@@ -3,6 +3,10 @@ package org.jai.search.actors;
 import org.jai.search.config.ElasticSearchIndexConfig;
 import org.jai.search.config.IndexDocumentType;
 
+import java.util.Date;
+
+import akka.actor.ActorRef;
+
 public class IndexDocumentTypeMessageVO
 {
     private ElasticSearchIndexConfig config;
@@ -11,6 +15,20 @@ public class IndexDocumentTypeMessageVO
 
     private String newIndexName;
 
+    // Incremental update only, index the products modified after this date.
+    private Date modifiedSince;
+
+    // Resumed rebuild only, documents up to and including this id are already indexed.
+    private Long resumeAfterDocumentId;
+
+    // Coordinator to report the document type completion or failure to.
+    private ActorRef replyTo;
+
+    // Stages the data generator hands documents to, documents without content are generated first.
+    private ActorRef documentGenerator;
+
+    private ActorRef documentIndexer;
+
     public IndexDocumentTypeMessageVO config(final ElasticSearchIndexConfig elasticSearchIndexConfig)
     {
         config = elasticSearchIndexConfig;
@@ -29,6 +47,36 @@ public class IndexDocumentTypeMessageVO
         return this;
     }
 
+    public IndexDocumentTypeMessageVO modifiedSince(final Date modifiedSince)
+    {
+        this.modifiedSince = modifiedSince;
+        return this;
+    }
+
+    public IndexDocumentTypeMessageVO resumeAfterDocumentId(final Long documentId)
+    {
+        this.resumeAfterDocumentId = documentId;
+        return this;
+    }
+
+    public IndexDocumentTypeMessageVO replyTo(final ActorRef replyTo)
+    {
+        this.replyTo = replyTo;
+        return this;
+    }
+
+    public IndexDocumentTypeMessageVO documentGenerator(final ActorRef documentGenerator)
+    {
+        this.documentGenerator = documentGenerator;
+        return this;
+    }
+
+    public IndexDocumentTypeMessageVO documentIndexer(final ActorRef documentIndexer)
+    {
+        this.documentIndexer = documentIndexer;
+        return this;
+    }
+
     public ElasticSearchIndexConfig getConfig()
     {
         return config;
@@ -43,4 +91,34 @@ public class IndexDocumentTypeMessageVO
     {
         return newIndexName;
     }
+
+    public Date getModifiedSince()
+    {
+        return modifiedSince;
+    }
+
+    public boolean isIncrementalUpdate()
+    {
+        return modifiedSince != null;
+    }
+
+    public Long getResumeAfterDocumentId()
+    {
+        return resumeAfterDocumentId;
+    }
+
+    public ActorRef getReplyTo()
+    {
+        return replyTo;
+    }
+
+    public ActorRef getDocumentGenerator()
+    {
+        return documentGenerator;
+    }
+
+    public ActorRef getDocumentIndexer()
+    {
+        return documentIndexer;
+    }
 }
@@ -8,24 +8,38 @@ import org.jai.search.model.ProductProperty;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
 
+import akka.actor.ActorRef;
+
+/**
+ * Single document flowing through the indexing pipeline. Kept compact as one is allocated per indexed document: the id is a primitive
+ * and the generated document lives in a single payload slot interpreted by the document type.
+ */
 public class IndexDocumentVO
 {
     private ElasticSearchIndexConfig config;
 
     private IndexDocumentType documentType;
 
-    private Long documentId;
-
-    private Product product;
-
-    private ProductProperty productProperty;
+    private long documentId;
 
-    private ProductGroup productGroup;
+    // Product, product property or product group, depending on the document type.
+    private Object document;
 
     private boolean indexDone;
 
     private String newIndexName;
 
+    private String indexFailure;
+
+    // Times indexing was retried after a transient failure.
+    private int retries;
+
+    // Document type worker to send the generated or indexed document back to.
+    private ActorRef replyTo;
+
+    // Bulk worker or indexer the generated document is handed to.
+    private ActorRef documentIndexer;
+
     public IndexDocumentVO config(final ElasticSearchIndexConfig elasticSearchIndexConfig)
     {
         this.config = elasticSearchIndexConfig;
@@ -46,33 +60,33 @@ public class IndexDocumentVO
 
     public IndexDocumentVO product(final Product product)
     {
-        this.product = product;
+        this.document = product;
         return this;
     }
 
     public IndexDocumentVO productGroup(final ProductGroup productGroup)
     {
-        this.productGroup = productGroup;
+        this.document = productGroup;
         return this;
     }
 
     public ProductProperty getProductProperty()
     {
-        return productProperty;
+        return documentType == IndexDocumentType.PRODUCT_PROPERTY ? (ProductProperty) document : null;
     }
 
     public ProductGroup getProductGroup()
     {
-        return productGroup;
+        return documentType == IndexDocumentType.PRODUCT_GROUP ? (ProductGroup) document : null;
     }
 
     public IndexDocumentVO productProperty(final ProductProperty productProperty)
     {
-        this.productProperty = productProperty;
+        this.document = productProperty;
         return this;
     }
 
-    public IndexDocumentVO documentId(final Long documentId)
+    public IndexDocumentVO documentId(final long documentId)
     {
         this.documentId = documentId;
         return this;
@@ -84,6 +98,50 @@ public class IndexDocumentVO
         return this;
     }
 
+    public IndexDocumentVO indexFailure(final String indexFailure)
+    {
+        this.indexFailure = indexFailure;
+        return this;
+    }
+
+    public IndexDocumentVO retries(final int retries)
+    {
+        this.retries = retries;
+        return this;
+    }
+
+    public int getRetries()
+    {
+        return retries;
+    }
+
+    public IndexDocumentVO replyTo(final ActorRef replyTo)
+    {
+        this.replyTo = replyTo;
+        return this;
+    }
+
+    public ActorRef getReplyTo()
+    {
+        return replyTo;
+    }
+
+    public IndexDocumentVO documentIndexer(final ActorRef documentIndexer)
+    {
+        this.documentIndexer = documentIndexer;
+        return this;
+    }
+
+    public ActorRef getDocumentIndexer()
+    {
+        return documentIndexer;
+    }
+
+    public String getIndexFailure()
+    {
+        return indexFailure;
+    }
+
     public boolean isIndexDone()
     {
         return indexDone;
@@ -96,10 +154,10 @@ public class IndexDocumentVO
 
     public Product getProduct()
     {
-        return product;
+        return documentType == IndexDocumentType.PRODUCT ? (Product) document : null;
     }
 
-    public Long getDocumentId()
+    public long getDocumentId()
     {
         return documentId;
     }
@@ -117,7 +175,7 @@ public class IndexDocumentVO
     @Override
     public String toString()
     {
-        return new ToStringBuilder(this).append(config).append(documentType).append(documentId).append(indexDone).append(product)
-                .append(productProperty).toString();
+        return new ToStringBuilder(this).append(config).append(documentType).append(documentId).append(indexDone).append(indexFailure).append(document)
+                .toString();
     }
 }
@@ -0,0 +1,66 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.IndexDocumentType;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Indexing outcome of a batch of documents, reported by the indexers to the document type worker instead of one message per document.
+ * Ids of the documents indexed successfully are kept for checkpointing, failed documents are only counted.
+ */
+public class IndexDocumentsDoneVO
+{
+    private IndexDocumentType documentType;
+
+    private final List<Long> documentIds = new ArrayList<Long>();
+
+    private int documentsFailed;
+
+    public IndexDocumentsDoneVO documentType(final IndexDocumentType documentType)
+    {
+        this.documentType = documentType;
+        return this;
+    }
+
+    public IndexDocumentsDoneVO addDocument(final IndexDocumentVO indexDocumentVO)
+    {
+        if (indexDocumentVO.getIndexFailure() == null)
+        {
+            documentIds.add(indexDocumentVO.getDocumentId());
+        }
+        else
+        {
+            documentsFailed++;
+        }
+        return this;
+    }
+
+    public IndexDocumentType getDocumentType()
+    {
+        return documentType;
+    }
+
+    public List<Long> getDocumentIds()
+    {
+        return documentIds;
+    }
+
+    public int getDocumentsFailed()
+    {
+        return documentsFailed;
+    }
+
+    public int getDocumentsDone()
+    {
+        return documentIds.size() + documentsFailed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(documentType).append(documentIds.size()).append(documentsFailed).toString();
+    }
+}
@@ -0,0 +1,95 @@
+package org.jai.search.actors;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ids of the documents the data generator handed to the next stage for one demand, as ranges in emission order. Lets the document type
+ * worker checkpoint without seeing every document. Ranges handed to the document generator are kept as is, consecutive single ids are
+ * merged into one range.
+ */
+public class IndexDocumentsEmittedVO
+{
+    private final List<DocumentIdRange> documentIdRanges = new ArrayList<DocumentIdRange>();
+
+    private int documentsEmitted;
+
+    public IndexDocumentsEmittedVO addDocumentId(final long documentId)
+    {
+        final DocumentIdRange lastRange = documentIdRanges.isEmpty() ? null : documentIdRanges.get(documentIdRanges.size() - 1);
+        if (lastRange != null && lastRange.getToDocumentId() + 1 == documentId)
+        {
+            lastRange.toDocumentId = documentId;
+            documentsEmitted++;
+            return this;
+        }
+        return addDocumentRange(documentId, documentId);
+    }
+
+    public IndexDocumentsEmittedVO addDocumentRange(final long fromDocumentId, final long toDocumentId)
+    {
+        documentIdRanges.add(new DocumentIdRange(fromDocumentId, toDocumentId));
+        documentsEmitted += toDocumentId - fromDocumentId + 1;
+        return this;
+    }
+
+    public List<DocumentIdRange> getDocumentIdRanges()
+    {
+        return documentIdRanges;
+    }
+
+    public int getDocumentsEmitted()
+    {
+        return documentsEmitted;
+    }
+
+    public boolean isEmpty()
+    {
+        return documentIdRanges.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(documentIdRanges.size()).append(documentsEmitted).toString();
+    }
+
+    /**
+     * Consecutive document ids, both inclusive.
+     */
+    public static class DocumentIdRange
+    {
+        private final long fromDocumentId;
+
+        private long toDocumentId;
+
+        public DocumentIdRange(final long fromDocumentId, final long toDocumentId)
+        {
+            this.fromDocumentId = fromDocumentId;
+            this.toDocumentId = toDocumentId;
+        }
+
+        public long getFromDocumentId()
+        {
+            return fromDocumentId;
+        }
+
+        public long getToDocumentId()
+        {
+            return toDocumentId;
+        }
+
+        public int getSize()
+        {
+            return (int) (toDocumentId - fromDocumentId + 1);
+        }
+
+        @Override
+        public String toString()
+        {
+            return new ToStringBuilder(this).append(fromDocumentId).append(toDocumentId).toString();
+        }
+    }
+}
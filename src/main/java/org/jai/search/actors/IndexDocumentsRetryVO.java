@@ -0,0 +1,37 @@
+package org.jai.search.actors;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Documents of a completed bulk request which failed transiently, sent by the bulk worker to itself after a backoff to index them again
+ * in a new bulk request.
+ */
+public class IndexDocumentsRetryVO
+{
+    private final List<IndexDocumentVO> documents = new ArrayList<IndexDocumentVO>();
+
+    public IndexDocumentsRetryVO addDocument(final IndexDocumentVO indexDocumentVO)
+    {
+        documents.add(indexDocumentVO);
+        return this;
+    }
+
+    public List<IndexDocumentVO> getDocuments()
+    {
+        return documents;
+    }
+
+    public boolean isEmpty()
+    {
+        return documents.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(documents.size()).toString();
+    }
+}
@@ -1,28 +1,76 @@
 package org.jai.search.actors;
 
-import org.jai.search.exception.IndexDataException;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.config.IndexingSettings;
 import org.jai.search.index.IndexProductDataService;
+import org.jai.search.model.Product;
 
-import akka.actor.UntypedActor;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+
+import akka.actor.ActorRef;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 
-public class IndexProductDataWorkerActor extends UntypedActor
+import scala.concurrent.duration.FiniteDuration;
+
+public class IndexProductDataWorkerActor extends MeteredUntypedActor
 {
     final LoggingAdapter LOG = Logging.getLogger(getContext().system(), this);
 
     private final IndexProductDataService indexProductDataService;
 
+    private final IndexingSettings indexingSettings;
+
+    // Async mode only, requests waiting for an in-flight slot with their original sender.
+    private final Queue<IndexRequestCompletedVO> pendingRequests = new ArrayDeque<IndexRequestCompletedVO>();
+
+    private int inFlightRequests = 0;
+
+    // Async mode only, completions of single documents batched per document type worker until idle or max in-flight reached.
+    private final Map<ActorRef, IndexDocumentsDoneVO> pendingCompletions = new HashMap<ActorRef, IndexDocumentsDoneVO>();
+
+    private final IndexRetryPolicy indexRetryPolicy;
+
+    private final DeadLetterJournal deadLetterJournal;
+
     public IndexProductDataWorkerActor(final IndexProductDataService indexProductDataService)
     {
         this.indexProductDataService = indexProductDataService;
+        indexingSettings = new IndexingSettings(getContext().system().settings().config());
+        indexRetryPolicy = new IndexRetryPolicy(indexingSettings);
+        deadLetterJournal = DeadLetterJournal.get(getContext().system());
     }
 
     @Override
     public void onReceive(final Object message)
     {
         // LOG.debug("Worker Actor message for IndexProductDataWorkerActor is:" + message);
-        if (message instanceof IndexDocumentVO)
+        if (message instanceof IndexRequestCompletedVO)
+        {
+            handleIndexRequestCompleted((IndexRequestCompletedVO) message);
+        }
+        else if ((message instanceof IndexDocumentVO || message instanceof IndexDocumentBulkVO) && indexingSettings.isAsyncEnabled())
+        {
+            pendingRequests.add(new IndexRequestCompletedVO(message, getReplyTo(message)));
+            executePendingRequests();
+        }
+        else if (message instanceof IndexDocumentVO)
         {
             try
             {
@@ -33,30 +81,51 @@ public class IndexProductDataWorkerActor extends UntypedActor
                         indexProductDataService.indexProduct(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(),
                                 indexDocumentVO.getProduct());
                         indexDocumentVO.indexDone(true);
-                        getSender().tell(indexDocumentVO, getSelf());
+                        reportProductIndexed(indexDocumentVO);
                         break;
                     case PRODUCT_PROPERTY:
                         indexProductDataService.indexProductPropterty(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(),
                                 indexDocumentVO.getProductProperty());
                         indexDocumentVO.indexDone(true);
-                        getSender().tell(indexDocumentVO, getSelf());
                         break;
                     case PRODUCT_GROUP:
                         indexProductDataService.indexProductGroup(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(),
                                 indexDocumentVO.getProductGroup());
                         indexDocumentVO.indexDone(true);
-                        getSender().tell(indexDocumentVO, getSelf());
                         break;
                     default:
                         handleUnhandledMessage(message);
+                        return;
                 }
             }
             catch (final Exception e)
             {
+                if (indexRetryPolicy.isRetryable(e) && indexRetryPolicy.canRetry((IndexDocumentVO) message))
+                {
+                    scheduleRetry((IndexDocumentVO) message, getReplyTo(message));
+                    return;
+                }
                 LOG.error(e, "Error occured while indexing document data for message: {}", message);
-                final IndexDataException indexDataException = new IndexDataException(e);
-                getSender().tell(indexDataException, getSelf());
+                failDocument((IndexDocumentVO) message, e.getMessage());
             }
+            // Blocking mode can't tell when more documents follow, report each one.
+            getReplyTo(message).tell(
+                    new IndexDocumentsDoneVO().documentType(((IndexDocumentVO) message).getDocumentType()).addDocument(
+                            (IndexDocumentVO) message), getSelf());
+        }
+        else if (message instanceof IndexDocumentBulkVO)
+        {
+            final IndexDocumentBulkVO indexDocumentBulkVO = (IndexDocumentBulkVO) message;
+            try
+            {
+                completeIndexDocumentBulk(indexDocumentBulkVO,
+                        indexProductDataService.executeBulkRequest(indexDocumentBulkVO.getBulkRequestBuilder()), null);
+            }
+            catch (final Exception e)
+            {
+                completeIndexDocumentBulk(indexDocumentBulkVO, null, e);
+            }
+            reportIndexDocumentBulkDone(indexDocumentBulkVO, getReplyTo(message));
         }
         else
         {
@@ -64,6 +133,290 @@ public class IndexProductDataWorkerActor extends UntypedActor
         }
     }
 
+    private ActorRef getReplyTo(final Object message)
+    {
+        // Single documents and bulk requests carry the document type worker, else it is the sender.
+        if (message instanceof IndexDocumentVO && ((IndexDocumentVO) message).getReplyTo() != null)
+        {
+            return ((IndexDocumentVO) message).getReplyTo();
+        }
+        if (message instanceof IndexDocumentBulkVO && ((IndexDocumentBulkVO) message).getReplyTo() != null)
+        {
+            return ((IndexDocumentBulkVO) message).getReplyTo();
+        }
+        return getSender();
+    }
+
+    private void reportIndexDocumentBulkDone(final IndexDocumentBulkVO indexDocumentBulkVO, final ActorRef replyTo)
+    {
+        final IndexDocumentsDoneVO indexDocumentsDoneVO = getDocumentsDone(indexDocumentBulkVO);
+        // Documents left to retry are reported once the bulk worker retried them.
+        if (indexDocumentsDoneVO.getDocumentsDone() > 0)
+        {
+            replyTo.tell(indexDocumentsDoneVO, getSelf());
+        }
+        if (indexDocumentBulkVO.getBulkWorker() != null)
+        {
+            // Latency and rejections of the bulk drive the bulk worker's in-flight limit and batch size.
+            indexDocumentBulkVO.getBulkWorker().tell(indexDocumentBulkVO, getSelf());
+        }
+    }
+
+    private void flushPendingCompletionsIfIdle()
+    {
+        if (inFlightRequests == 0 && pendingRequests.isEmpty())
+        {
+            // Idle, nothing more to batch the completions with.
+            for (final Entry<ActorRef, IndexDocumentsDoneVO> entry : pendingCompletions.entrySet())
+            {
+                entry.getKey().tell(entry.getValue(), getSelf());
+            }
+            pendingCompletions.clear();
+        }
+    }
+
+    private void executePendingRequests()
+    {
+        while (inFlightRequests < indexingSettings.getMaxInFlightRequests() && !pendingRequests.isEmpty())
+        {
+            final IndexRequestCompletedVO pendingRequest = pendingRequests.poll();
+            try
+            {
+                executeRequestAsync(pendingRequest.getRequest(), pendingRequest.getReplyTo());
+                inFlightRequests++;
+            }
+            catch (final Exception e)
+            {
+                // Request could not be started, complete it right away.
+                handleIndexRequestCompleted(new IndexRequestCompletedVO(pendingRequest.getRequest(), pendingRequest.getReplyTo())
+                        .failure(e), false);
+            }
+        }
+        flushPendingCompletionsIfIdle();
+    }
+
+    private void executeRequestAsync(final Object request, final ActorRef replyTo)
+    {
+        // Listener is called on an elasticsearch thread, pipe the completion back to self instead of touching actor state.
+        final ActorRef self = getSelf();
+        if (request instanceof IndexDocumentBulkVO)
+        {
+            indexProductDataService.executeBulkRequest(((IndexDocumentBulkVO) request).getBulkRequestBuilder(),
+                    new ActionListener<BulkResponse>()
+                    {
+                        @Override
+                        public void onResponse(final BulkResponse response)
+                        {
+                            self.tell(new IndexRequestCompletedVO(request, replyTo).bulkResponse(response), self);
+                        }
+
+                        @Override
+                        public void onFailure(final Throwable e)
+                        {
+                            self.tell(new IndexRequestCompletedVO(request, replyTo).failure(e), self);
+                        }
+                    });
+            return;
+        }
+        final ActionListener<IndexResponse> listener = new ActionListener<IndexResponse>()
+        {
+            @Override
+            public void onResponse(final IndexResponse response)
+            {
+                self.tell(new IndexRequestCompletedVO(request, replyTo), self);
+            }
+
+            @Override
+            public void onFailure(final Throwable e)
+            {
+                self.tell(new IndexRequestCompletedVO(request, replyTo).failure(e), self);
+            }
+        };
+        final IndexDocumentVO indexDocumentVO = (IndexDocumentVO) request;
+        switch (indexDocumentVO.getDocumentType())
+        {
+            case PRODUCT:
+                indexProductDataService.indexProduct(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(),
+                        indexDocumentVO.getProduct(), listener);
+                break;
+            case PRODUCT_PROPERTY:
+                indexProductDataService.indexProductPropterty(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(),
+                        indexDocumentVO.getProductProperty(), listener);
+                break;
+            case PRODUCT_GROUP:
+                indexProductDataService.indexProductGroup(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(),
+                        indexDocumentVO.getProductGroup(), listener);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported document type: " + indexDocumentVO.getDocumentType());
+        }
+    }
+
+    private void handleIndexRequestCompleted(final IndexRequestCompletedVO indexRequestCompletedVO)
+    {
+        handleIndexRequestCompleted(indexRequestCompletedVO, true);
+        executePendingRequests();
+    }
+
+    private void handleIndexRequestCompleted(final IndexRequestCompletedVO indexRequestCompletedVO, final boolean inFlight)
+    {
+        if (inFlight)
+        {
+            inFlightRequests--;
+        }
+        final Object request = indexRequestCompletedVO.getRequest();
+        if (request instanceof IndexDocumentBulkVO)
+        {
+            final IndexDocumentBulkVO indexDocumentBulkVO = (IndexDocumentBulkVO) request;
+            completeIndexDocumentBulk(indexDocumentBulkVO, indexRequestCompletedVO.getBulkResponse(), indexRequestCompletedVO.getFailure());
+            reportIndexDocumentBulkDone(indexDocumentBulkVO, indexRequestCompletedVO.getReplyTo());
+            return;
+        }
+        final IndexDocumentVO indexDocumentVO = (IndexDocumentVO) request;
+        if (indexRequestCompletedVO.getFailure() != null && !isVersionConflict(indexRequestCompletedVO.getFailure()))
+        {
+            if (indexRetryPolicy.isRetryable(indexRequestCompletedVO.getFailure()) && indexRetryPolicy.canRetry(indexDocumentVO))
+            {
+                scheduleRetry(indexDocumentVO, indexRequestCompletedVO.getReplyTo());
+                return;
+            }
+            LOG.error(indexRequestCompletedVO.getFailure(), "Error occured while indexing document data for message: {}", request);
+            failDocument(indexDocumentVO, indexRequestCompletedVO.getFailure().getMessage());
+        }
+        else if (indexRequestCompletedVO.getFailure() == null)
+        {
+            reportProductIndexed(indexDocumentVO);
+        }
+        indexDocumentVO.indexDone(true);
+        IndexDocumentsDoneVO indexDocumentsDoneVO = pendingCompletions.get(indexRequestCompletedVO.getReplyTo());
+        if (indexDocumentsDoneVO == null)
+        {
+            indexDocumentsDoneVO = new IndexDocumentsDoneVO().documentType(indexDocumentVO.getDocumentType());
+            pendingCompletions.put(indexRequestCompletedVO.getReplyTo(), indexDocumentsDoneVO);
+        }
+        indexDocumentsDoneVO.addDocument(indexDocumentVO);
+        if (indexDocumentsDoneVO.getDocumentsDone() >= indexingSettings.getMaxInFlightRequests())
+        {
+            pendingCompletions.remove(indexRequestCompletedVO.getReplyTo());
+            indexRequestCompletedVO.getReplyTo().tell(indexDocumentsDoneVO, getSelf());
+        }
+    }
+
+    private IndexDocumentsDoneVO getDocumentsDone(final IndexDocumentBulkVO indexDocumentBulkVO)
+    {
+        final IndexDocumentsDoneVO indexDocumentsDoneVO = new IndexDocumentsDoneVO().documentType(indexDocumentBulkVO.getDocumentType());
+        for (final IndexDocumentVO indexDocumentVO : indexDocumentBulkVO.getDocuments())
+        {
+            if (indexDocumentVO.isIndexDone())
+            {
+                indexDocumentsDoneVO.addDocument(indexDocumentVO);
+            }
+        }
+        return indexDocumentsDoneVO;
+    }
+
+    private void completeIndexDocumentBulk(final IndexDocumentBulkVO indexDocumentBulkVO, final BulkResponse bulkResponse,
+            final Throwable failure)
+    {
+        if (failure == null)
+        {
+            final List<Product> productsIndexed = new ArrayList<Product>();
+            for (final BulkItemResponse bulkItemResponse : bulkResponse.getItems())
+            {
+                final IndexDocumentVO indexDocumentVO = indexDocumentBulkVO.getDocuments().get(bulkItemResponse.getItemId());
+                if (bulkItemResponse.isFailed() && bulkItemResponse.getFailure().getStatus() == RestStatus.CONFLICT)
+                {
+                    LOG.debug("Newer version of document {} already indexed, ignoring update.", indexDocumentVO.getDocumentId());
+                }
+                else if (bulkItemResponse.isFailed())
+                {
+                    final RestStatus status = bulkItemResponse.getFailure().getStatus();
+                    if (isRejection(status))
+                    {
+                        indexDocumentBulkVO.rejected(true);
+                    }
+                    failBulkDocument(indexDocumentBulkVO, indexDocumentVO, bulkItemResponse.getFailureMessage(),
+                            indexRetryPolicy.isRetryable(status));
+                    continue;
+                }
+                else if (indexDocumentVO.getDocumentType() == IndexDocumentType.PRODUCT)
+                {
+                    productsIndexed.add(indexDocumentVO.getProduct());
+                }
+                indexDocumentVO.indexDone(true);
+            }
+            indexProductDataService.productsIndexed(indexDocumentBulkVO.getConfig(), indexDocumentBulkVO.getNewIndexName(),
+                    productsIndexed);
+        }
+        else
+        {
+            LOG.error(failure, "Error occured while bulk indexing document data for message: {}", indexDocumentBulkVO);
+            indexDocumentBulkVO.rejected(isRejection(failure));
+            // Whole bulk failed, fail or retry every document so that the document counts stay correct.
+            final boolean retryable = indexRetryPolicy.isRetryable(failure);
+            for (final IndexDocumentVO indexDocumentVO : indexDocumentBulkVO.getDocuments())
+            {
+                failBulkDocument(indexDocumentBulkVO, indexDocumentVO, failure.getMessage(), retryable);
+            }
+        }
+        indexDocumentBulkVO.indexDone(true);
+    }
+
+    private void reportProductIndexed(final IndexDocumentVO indexDocumentVO)
+    {
+        if (indexDocumentVO.getDocumentType() == IndexDocumentType.PRODUCT)
+        {
+            indexProductDataService.productsIndexed(indexDocumentVO.getConfig(), indexDocumentVO.getNewIndexName(),
+                    Collections.singletonList(indexDocumentVO.getProduct()));
+        }
+    }
+
+    private void failBulkDocument(final IndexDocumentBulkVO indexDocumentBulkVO, final IndexDocumentVO indexDocumentVO,
+            final String failure, final boolean retryable)
+    {
+        indexDocumentVO.indexFailure(failure);
+        if (retryable && indexRetryPolicy.canRetry(indexDocumentVO) && indexDocumentBulkVO.getBulkWorker() != null)
+        {
+            // Left not done, the bulk worker retries it after a backoff.
+            return;
+        }
+        failDocument(indexDocumentVO, failure);
+    }
+
+    private void failDocument(final IndexDocumentVO indexDocumentVO, final String failure)
+    {
+        indexDocumentVO.indexFailure(failure).indexDone(true);
+        deadLetterJournal.append(indexDocumentVO, failure);
+    }
+
+    private void scheduleRetry(final IndexDocumentVO indexDocumentVO, final ActorRef replyTo)
+    {
+        final FiniteDuration backoff = indexRetryPolicy.getBackoff(indexDocumentVO.getRetries());
+        LOG.debug("Retrying indexing of document {} in {}, retries: {}", new Object[] { indexDocumentVO.getDocumentId(), backoff,
+                indexDocumentVO.getRetries() });
+        indexDocumentVO.retries(indexDocumentVO.getRetries() + 1).indexFailure(null);
+        deadLetterJournal.recordRetries(indexDocumentVO.getConfig(), indexDocumentVO.getDocumentType(), 1);
+        // Sent again with the original sender, so the completion goes to the same document type worker.
+        getContext().system().scheduler().scheduleOnce(backoff, getSelf(), indexDocumentVO, getContext().dispatcher(), replyTo);
+    }
+
+    private boolean isRejection(final RestStatus status)
+    {
+        // Full thread pool queue on the node, EsRejectedExecutionException is reported as 503 by this elasticsearch version.
+        return status == RestStatus.SERVICE_UNAVAILABLE;
+    }
+
+    private boolean isRejection(final Throwable failure)
+    {
+        return ExceptionsHelper.unwrapCause(failure) instanceof EsRejectedExecutionException;
+    }
+
+    private boolean isVersionConflict(final Throwable failure)
+    {
+        // Versioned writes, an older update than the indexed document is not a failure.
+        return ExceptionsHelper.unwrapCause(failure) instanceof VersionConflictEngineException;
+    }
+
     private void handleUnhandledMessage(final Object message)
     {
         // No local state the Actor, so can be restarted etc. no issues.
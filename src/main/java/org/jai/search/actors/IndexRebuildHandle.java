@@ -0,0 +1,104 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Mapper;
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+import scala.util.Try;
+
+/**
+ * Handle of a running rebuild of all indices. The setup index master actor replies with a {@link RebuildDoneVO} once all indices are
+ * rebuilt, the completion future is completed with REBUILD_ALL_INDICES_DONE then, progress is published as {@link IndexingProgressVO} on
+ * the event stream. Documents which failed and were dead lettered, and the retries of transient failures, are counted in the
+ * {@link DeadLetterJournal}. Once completed the {@link RebuildReport} of the run, carried by the reply, gives the counts, throughput and
+ * latencies per index and document type.
+ */
+public class IndexRebuildHandle
+{
+    private final ActorSystem actorSystem;
+
+    private final Future<Object> reply;
+
+    private final Future<Object> completion;
+
+    public IndexRebuildHandle(final ActorSystem actorSystem, final Future<Object> reply)
+    {
+        this.actorSystem = actorSystem;
+        this.reply = reply;
+        completion = reply.map(new Mapper<Object, Object>()
+        {
+            @Override
+            public Object apply(final Object rebuildDone)
+            {
+                return IndexingMessage.REBUILD_ALL_INDICES_DONE;
+            }
+        }, actorSystem.dispatcher());
+    }
+
+    public Future<Object> getCompletion()
+    {
+        return completion;
+    }
+
+    public boolean isDone()
+    {
+        return completion.isCompleted();
+    }
+
+    public Object awaitCompletion(final Duration timeout) throws Exception
+    {
+        return Await.result(completion, timeout);
+    }
+
+    /**
+     * Report of the rebuild, null as long as it is not done or if it failed.
+     */
+    public RebuildReport getReport()
+    {
+        if (!reply.isCompleted())
+        {
+            return null;
+        }
+        final Try<Object> rebuildDone = reply.value().get();
+        return rebuildDone.isSuccess() ? ((RebuildDoneVO) rebuildDone.get()).getReport() : null;
+    }
+
+    public RebuildReport awaitReport(final Duration timeout) throws Exception
+    {
+        return ((RebuildDoneVO) Await.result(reply, timeout)).getReport();
+    }
+
+    public int getDocumentsFailed()
+    {
+        int documentsFailed = 0;
+        for (final ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            documentsFailed += DeadLetterJournal.get(actorSystem).getDocumentsFailed(config);
+        }
+        return documentsFailed;
+    }
+
+    public int getDocumentsRetried()
+    {
+        int documentsRetried = 0;
+        for (final ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            documentsRetried += DeadLetterJournal.get(actorSystem).getDocumentsRetried(config);
+        }
+        return documentsRetried;
+    }
+
+    public void subscribeToProgress(final ActorRef subscriber)
+    {
+        actorSystem.eventStream().subscribe(subscriber, IndexingProgressVO.class);
+    }
+
+    public void unsubscribeFromProgress(final ActorRef subscriber)
+    {
+        actorSystem.eventStream().unsubscribe(subscriber, IndexingProgressVO.class);
+    }
+}
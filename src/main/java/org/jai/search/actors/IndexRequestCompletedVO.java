@@ -0,0 +1,64 @@
+package org.jai.search.actors;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+
+import akka.actor.ActorRef;
+
+/**
+ * Completion of an asynchronous index request, sent by the request listener back to the indexing actor which executed it.
+ */
+public class IndexRequestCompletedVO
+{
+    private final Object request;
+
+    private final ActorRef replyTo;
+
+    private BulkResponse bulkResponse;
+
+    private Throwable failure;
+
+    public IndexRequestCompletedVO(final Object request, final ActorRef replyTo)
+    {
+        this.request = request;
+        this.replyTo = replyTo;
+    }
+
+    public IndexRequestCompletedVO bulkResponse(final BulkResponse bulkResponse)
+    {
+        this.bulkResponse = bulkResponse;
+        return this;
+    }
+
+    public IndexRequestCompletedVO failure(final Throwable failure)
+    {
+        this.failure = failure;
+        return this;
+    }
+
+    public Object getRequest()
+    {
+        return request;
+    }
+
+    public ActorRef getReplyTo()
+    {
+        return replyTo;
+    }
+
+    public BulkResponse getBulkResponse()
+    {
+        return bulkResponse;
+    }
+
+    public Throwable getFailure()
+    {
+        return failure;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(request).append(failure).toString();
+    }
+}
@@ -0,0 +1,80 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.IndexingSettings;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.node.NodeClosedException;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.ReceiveTimeoutTransportException;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Decides which indexing failures are transient and how long to back off before indexing a document again. The backoff doubles with
+ * every retry up to the maximum, a random half of it is added so that documents rejected together are not retried together.
+ */
+public class IndexRetryPolicy
+{
+    private final int maxRetries;
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final Random random = new Random();
+
+    public IndexRetryPolicy(final IndexingSettings indexingSettings)
+    {
+        maxRetries = indexingSettings.getMaxRetries();
+        initialBackoffMillis = indexingSettings.getRetryInitialBackoff().toMillis();
+        maxBackoffMillis = indexingSettings.getRetryMaxBackoff().toMillis();
+    }
+
+    /**
+     * Failure of a bulk item, the cluster was overloaded or timed out.
+     */
+    public boolean isRetryable(final RestStatus status)
+    {
+        // This elasticsearch version reports rejected executions as 503.
+        return status == RestStatus.SERVICE_UNAVAILABLE || status == RestStatus.REQUEST_TIMEOUT || status == RestStatus.GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Failure of a whole request.
+     */
+    public boolean isRetryable(final Throwable failure)
+    {
+        final Throwable cause = ExceptionsHelper.unwrapCause(failure);
+        if (cause instanceof EsRejectedExecutionException || cause instanceof NoNodeAvailableException
+                || cause instanceof NodeClosedException || cause instanceof ConnectTransportException
+                || cause instanceof ReceiveTimeoutTransportException || cause instanceof ElasticsearchTimeoutException)
+        {
+            return true;
+        }
+        return cause instanceof ElasticsearchException && isRetryable(((ElasticsearchException) cause).status());
+    }
+
+    public boolean canRetry(final IndexDocumentVO indexDocumentVO)
+    {
+        return indexDocumentVO.getRetries() < maxRetries;
+    }
+
+    /**
+     * Backoff before the given retry, the first retry being 0.
+     */
+    public FiniteDuration getBackoff(final int retry)
+    {
+        final long backoffMillis = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(retry, 30));
+        final long jitteredBackoffMillis = backoffMillis / 2 + (long) (random.nextDouble() * (backoffMillis / 2 + 1));
+        return Duration.create(jitteredBackoffMillis, TimeUnit.MILLISECONDS);
+    }
+}
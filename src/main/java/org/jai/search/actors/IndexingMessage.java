@@ -4,6 +4,10 @@ public enum IndexingMessage
 {
     REBUILD_ALL_INDICES,
     REBUILD_ALL_INDICES_DONE,
+    INCREMENTAL_UPDATE,
     INDEX_DONE,
-    DOCUMENTTYPE_DONE;
+    DOCUMENTTYPE_DONE,
+    FLUSH_BULK_REQUESTS,
+    DOCUMENT_GENERATION_FAILED,
+    FLUSH_EXPIRED_BULK_REQUESTS;
 }
@@ -0,0 +1,85 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Indexing progress of a document type of an index, published on the event stream of the actor system while the indices are rebuilt.
+ */
+public class IndexingProgressVO
+{
+    private ElasticSearchIndexConfig config;
+
+    private IndexDocumentType indexDocumentType;
+
+    private int documentsDone;
+
+    // Zero as long as the total is not known yet, streamed product sources only report it once exhausted.
+    private int documentsToIndex;
+
+    private boolean done;
+
+    public IndexingProgressVO config(final ElasticSearchIndexConfig config)
+    {
+        this.config = config;
+        return this;
+    }
+
+    public IndexingProgressVO documentType(final IndexDocumentType indexDocumentType)
+    {
+        this.indexDocumentType = indexDocumentType;
+        return this;
+    }
+
+    public IndexingProgressVO documentsDone(final int documentsDone)
+    {
+        this.documentsDone = documentsDone;
+        return this;
+    }
+
+    public IndexingProgressVO documentsToIndex(final int documentsToIndex)
+    {
+        this.documentsToIndex = documentsToIndex;
+        return this;
+    }
+
+    public IndexingProgressVO done(final boolean done)
+    {
+        this.done = done;
+        return this;
+    }
+
+    public ElasticSearchIndexConfig getConfig()
+    {
+        return config;
+    }
+
+    public IndexDocumentType getIndexDocumentType()
+    {
+        return indexDocumentType;
+    }
+
+    public int getDocumentsDone()
+    {
+        return documentsDone;
+    }
+
+    public int getDocumentsToIndex()
+    {
+        return documentsToIndex;
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(config).append(indexDocumentType).append(documentsDone).append(documentsToIndex)
+                .append(done).toString();
+    }
+}
@@ -0,0 +1,102 @@
+package org.jai.search.actors;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorCell;
+import akka.actor.UntypedActor;
+import akka.dispatch.Mailbox;
+import akka.dispatch.MessageDispatcher;
+import scala.Option;
+import scala.PartialFunction;
+import scala.runtime.BoxedUnit;
+
+/**
+ * Base of the actors of the indexing pipeline, records the {@link StageMetrics} of the actor class in the {@link PipelineMetrics}: the
+ * processing time of every message, restarts decided by the supervisor and, at most every sample interval or when it drains, the size
+ * of the mailbox.
+ */
+public abstract class MeteredUntypedActor extends UntypedActor
+{
+    private static final long MAILBOX_SAMPLE_INTERVAL_NANOS = 100000000L;
+
+    private final StageMetrics stageMetrics = PipelineMetrics.get(getContext().system()).getStageMetrics(getClass().getSimpleName());
+
+    private final String dispatcherId = ((MessageDispatcher) getContext().dispatcher()).id();
+
+    // Actors of a balancing dispatcher share its mailbox.
+    private final String mailboxName = isBalancingDispatcher(getContext().system().settings().config(), dispatcherId) ? dispatcherId
+            : getSelf().path().toString();
+
+    private long lastMailboxSampleTime;
+
+    @Override
+    public void aroundReceive(final PartialFunction<Object, BoxedUnit> receive, final Object message)
+    {
+        if (stageMetrics == null)
+        {
+            super.aroundReceive(receive, message);
+            return;
+        }
+        final long startTime = System.nanoTime();
+        try
+        {
+            super.aroundReceive(receive, message);
+        }
+        finally
+        {
+            final long endTime = System.nanoTime();
+            stageMetrics.messageProcessed(endTime - startTime);
+            sampleMailboxSize(endTime);
+        }
+    }
+
+    @Override
+    public void aroundPreRestart(final Throwable reason, final Option<Object> message)
+    {
+        if (stageMetrics != null)
+        {
+            stageMetrics.restarted();
+        }
+        super.aroundPreRestart(reason, message);
+    }
+
+    @Override
+    public void aroundPostStop()
+    {
+        if (stageMetrics != null)
+        {
+            stageMetrics.mailboxRemoved(mailboxName);
+        }
+        super.aroundPostStop();
+    }
+
+    private static boolean isBalancingDispatcher(final Config config, final String dispatcherId)
+    {
+        final String typePath = dispatcherId + ".type";
+        if (!config.hasPath(typePath))
+        {
+            return false;
+        }
+        final String type = config.getString(typePath);
+        return "BalancingDispatcher".equals(type) || type.endsWith(".BalancingDispatcherConfigurator");
+    }
+
+    private void sampleMailboxSize(final long now)
+    {
+        if (!(getContext() instanceof ActorCell))
+        {
+            return;
+        }
+        final Mailbox mailbox = ((ActorCell) getContext()).mailbox();
+        if (!mailbox.hasMessages())
+        {
+            stageMetrics.mailboxSize(mailboxName, 0);
+        }
+        else if (now - lastMailboxSampleTime >= MAILBOX_SAMPLE_INTERVAL_NANOS)
+        {
+            // Counting the messages walks the queue, so only sampled.
+            lastMailboxSampleTime = now;
+            stageMetrics.mailboxSize(mailboxName, mailbox.numberOfMessages());
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.IndexingSettings;
+
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.Cancellable;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * Registry of the {@link StageMetrics} of the actors of the indexing pipeline, one per actor class, recorded by
+ * {@link MeteredUntypedActor}. Each stage is registered as an MBean under "org.jai.search:type=ActorStage", and all stages are appended
+ * to pipeline-metrics.log in the metrics directory every report interval, as configured in the "indexing.metrics" section. Shared by all
+ * the actors of the system, see {@link #get(ActorSystem)}.
+ */
+public class PipelineMetrics implements Extension
+{
+    private static final Logger logger = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    private static final Id ID = new Id();
+
+    private final IndexingSettings indexingSettings;
+
+    private final String systemName;
+
+    private final ConcurrentMap<String, StageMetrics> stages = new ConcurrentHashMap<String, StageMetrics>();
+
+    private final ScheduledExecutorService tickExecutor;
+
+    private final Cancellable reportSchedule;
+
+    public PipelineMetrics(final ExtendedActorSystem system)
+    {
+        indexingSettings = new IndexingSettings(system.settings().config());
+        systemName = system.name();
+        if (!indexingSettings.isMetricsEnabled())
+        {
+            tickExecutor = null;
+            reportSchedule = null;
+            return;
+        }
+        // Ticks the message rates of the stages.
+        tickExecutor = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("pipeline-metrics"));
+        reportSchedule = indexingSettings.isMetricsFileEnabled() ? system
+                .scheduler()
+                .schedule(indexingSettings.getMetricsReportInterval(), indexingSettings.getMetricsReportInterval(), new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        report();
+                    }
+                }, system.dispatcher()) : null;
+        system.registerOnTermination(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                close();
+            }
+        });
+    }
+
+    public static PipelineMetrics get(final ActorSystem system)
+    {
+        return ID.get(system);
+    }
+
+    public boolean isEnabled()
+    {
+        return indexingSettings.isMetricsEnabled();
+    }
+
+    /**
+     * Metrics of the stage, created on first use, null if metrics are disabled.
+     */
+    public StageMetrics getStageMetrics(final String stage)
+    {
+        if (!isEnabled())
+        {
+            return null;
+        }
+        StageMetrics stageMetrics = stages.get(stage);
+        if (stageMetrics == null)
+        {
+            final StageMetrics newStageMetrics = new StageMetrics(stage, tickExecutor);
+            stageMetrics = stages.putIfAbsent(stage, newStageMetrics);
+            if (stageMetrics == null)
+            {
+                stageMetrics = newStageMetrics;
+                registerMBean(stageMetrics);
+            }
+            else
+            {
+                newStageMetrics.stop();
+            }
+        }
+        return stageMetrics;
+    }
+
+    public List<StageMetrics> getStages()
+    {
+        return new ArrayList<StageMetrics>(stages.values());
+    }
+
+    public File getReportFile()
+    {
+        return new File(indexingSettings.getMetricsDirectory(), "pipeline-metrics.log");
+    }
+
+    /**
+     * Appends the current metrics of all stages to the report file.
+     */
+    public synchronized void report()
+    {
+        if (stages.isEmpty())
+        {
+            return;
+        }
+        final File directory = new File(indexingSettings.getMetricsDirectory());
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                throw new IOException("Metrics directory could not be created: " + directory);
+            }
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(getReportFile(), true), "UTF-8");
+            try
+            {
+                final String time = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date());
+                for (final StageMetrics stageMetrics : stages.values())
+                {
+                    writer.write(time + "\t" + stageMetrics + "\n");
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch (final IOException ex)
+        {
+            logger.error("Error occurred while writing pipeline metrics to: " + getReportFile(), ex);
+        }
+    }
+
+    private void close()
+    {
+        if (reportSchedule != null)
+        {
+            reportSchedule.cancel();
+            report();
+        }
+        for (final StageMetrics stageMetrics : stages.values())
+        {
+            stageMetrics.stop();
+            unregisterMBean(stageMetrics);
+        }
+        tickExecutor.shutdownNow();
+    }
+
+    private void registerMBean(final StageMetrics stageMetrics)
+    {
+        if (!indexingSettings.isMetricsJmxEnabled())
+        {
+            return;
+        }
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            final ObjectName objectName = getObjectName(stageMetrics);
+            // Left behind by an earlier actor system of the same name in this JVM.
+            if (mBeanServer.isRegistered(objectName))
+            {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(stageMetrics, objectName);
+        }
+        catch (final JMException ex)
+        {
+            logger.error("Error occurred while registering metrics MBean of stage: " + stageMetrics.getName(), ex);
+        }
+    }
+
+    private void unregisterMBean(final StageMetrics stageMetrics)
+    {
+        if (!indexingSettings.isMetricsJmxEnabled())
+        {
+            return;
+        }
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(getObjectName(stageMetrics));
+        }
+        catch (final JMException ex)
+        {
+            logger.debug("Metrics MBean of stage {} already unregistered", stageMetrics.getName());
+        }
+    }
+
+    private ObjectName getObjectName(final StageMetrics stageMetrics) throws JMException
+    {
+        return new ObjectName("org.jai.search:type=ActorStage,system=" + ObjectName.quote(systemName) + ",name="
+                + ObjectName.quote(stageMetrics.getName()));
+    }
+
+    private static class Id extends AbstractExtensionId<PipelineMetrics> implements ExtensionIdProvider
+    {
+        @Override
+        public Id lookup()
+        {
+            return ID;
+        }
+
+        @Override
+        public PipelineMetrics createExtension(final ExtendedActorSystem system)
+        {
+            return new PipelineMetrics(system);
+        }
+    }
+}
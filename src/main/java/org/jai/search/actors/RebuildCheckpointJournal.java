@@ -0,0 +1,190 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.config.IndexingSettings;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * File backed journal of rebuild progress, one properties file per index config holding the index being built and, per document type,
+ * the highest contiguous document id acknowledged by the indexer. A rebuild restarted after a crash reuses the index and resumes after
+ * the checkpointed documents instead of starting over. Shared by all the actors of the system, see {@link #get(ActorSystem)}.
+ */
+public class RebuildCheckpointJournal implements Extension
+{
+    private static final Logger logger = LoggerFactory.getLogger(RebuildCheckpointJournal.class);
+
+    private static final String INDEX_NAME_KEY = "index";
+
+    private static final Id ID = new Id();
+
+    private final boolean enabled;
+
+    private final File directory;
+
+    public RebuildCheckpointJournal(final IndexingSettings indexingSettings)
+    {
+        enabled = indexingSettings.isCheckpointEnabled();
+        directory = new File(indexingSettings.getCheckpointDirectory());
+    }
+
+    public static RebuildCheckpointJournal get(final ActorSystem system)
+    {
+        return ID.get(system);
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Index left behind by an unfinished rebuild of the config, null if the last rebuild completed.
+     */
+    public synchronized String getIndexName(final ElasticSearchIndexConfig config)
+    {
+        return enabled ? load(config).getProperty(INDEX_NAME_KEY) : null;
+    }
+
+    /**
+     * Highest contiguous document id acknowledged for the document type of the given index, null if nothing is checkpointed.
+     */
+    public synchronized Long getCheckpoint(final ElasticSearchIndexConfig config, final String indexName,
+            final IndexDocumentType documentType)
+    {
+        if (!enabled)
+        {
+            return null;
+        }
+        final Properties checkpoints = load(config);
+        final String documentId = checkpoints.getProperty(documentType.name());
+        return indexName.equals(checkpoints.getProperty(INDEX_NAME_KEY)) && documentId != null ? Long.valueOf(documentId) : null;
+    }
+
+    public synchronized void start(final ElasticSearchIndexConfig config, final String indexName)
+    {
+        if (enabled)
+        {
+            final Properties checkpoints = new Properties();
+            checkpoints.setProperty(INDEX_NAME_KEY, indexName);
+            store(config, checkpoints);
+        }
+    }
+
+    public synchronized void checkpoint(final ElasticSearchIndexConfig config, final String indexName,
+            final IndexDocumentType documentType, final long documentId)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        final Properties checkpoints = load(config);
+        // Ignore late checkpoints of a rebuild already completed or replaced.
+        if (indexName.equals(checkpoints.getProperty(INDEX_NAME_KEY)))
+        {
+            checkpoints.setProperty(documentType.name(), String.valueOf(documentId));
+            store(config, checkpoints);
+        }
+    }
+
+    public synchronized void clear(final ElasticSearchIndexConfig config)
+    {
+        if (enabled && getFile(config).exists() && !getFile(config).delete())
+        {
+            logger.error("Rebuild checkpoint could not be deleted: {}", getFile(config));
+        }
+    }
+
+    private Properties load(final ElasticSearchIndexConfig config)
+    {
+        final Properties checkpoints = new Properties();
+        final File file = getFile(config);
+        if (file.exists())
+        {
+            try
+            {
+                final InputStream inputStream = new FileInputStream(file);
+                try
+                {
+                    checkpoints.load(inputStream);
+                }
+                finally
+                {
+                    inputStream.close();
+                }
+            }
+            catch (final IOException ex)
+            {
+                // Checkpoints are best effort, a broken journal only means the rebuild starts over.
+                logger.error("Error occurred while reading rebuild checkpoint: " + file, ex);
+            }
+        }
+        return checkpoints;
+    }
+
+    private void store(final ElasticSearchIndexConfig config, final Properties checkpoints)
+    {
+        final File file = getFile(config);
+        final File tempFile = new File(directory, file.getName() + ".tmp");
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                throw new IOException("Checkpoint directory could not be created: " + directory);
+            }
+            final OutputStream outputStream = new FileOutputStream(tempFile);
+            try
+            {
+                checkpoints.store(outputStream, "Rebuild checkpoint of " + config.name());
+            }
+            finally
+            {
+                outputStream.close();
+            }
+            // Replace in one step, a crash while writing leaves the previous checkpoint intact.
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final IOException ex)
+        {
+            logger.error("Error occurred while writing rebuild checkpoint: " + file, ex);
+        }
+    }
+
+    private File getFile(final ElasticSearchIndexConfig config)
+    {
+        return new File(directory, config.name() + ".checkpoint");
+    }
+
+    private static class Id extends AbstractExtensionId<RebuildCheckpointJournal> implements ExtensionIdProvider
+    {
+        @Override
+        public Id lookup()
+        {
+            return ID;
+        }
+
+        @Override
+        public RebuildCheckpointJournal createExtension(final ExtendedActorSystem system)
+        {
+            return new RebuildCheckpointJournal(new IndexingSettings(system.settings().config()));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.jai.search.actors;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Completion of a rebuild or incremental update of all indices, told by the setup index master actor to everyone who asked for the run,
+ * with the report of that run.
+ */
+public class RebuildDoneVO
+{
+    private final RebuildReport report;
+
+    public RebuildDoneVO(final RebuildReport report)
+    {
+        this.report = report;
+    }
+
+    public RebuildReport getReport()
+    {
+        return report;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this).append(report).toString();
+    }
+}
@@ -0,0 +1,180 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a rebuild or incremental update of all indices, created by the setup index master actor when the run completes, see
+ * {@link IndexRebuildHandle#getReport()}. One {@link DocumentTypeReport} per index config and document type indexed by the run.
+ */
+public class RebuildReport
+{
+    private final long wallTimeMillis;
+
+    private final List<DocumentTypeReport> documentTypeReports;
+
+    public RebuildReport(final long wallTimeMillis, final List<DocumentTypeReport> documentTypeReports)
+    {
+        this.wallTimeMillis = wallTimeMillis;
+        this.documentTypeReports = Collections.unmodifiableList(new ArrayList<DocumentTypeReport>(documentTypeReports));
+    }
+
+    public long getWallTimeMillis()
+    {
+        return wallTimeMillis;
+    }
+
+    public List<DocumentTypeReport> getDocumentTypeReports()
+    {
+        return documentTypeReports;
+    }
+
+    public DocumentTypeReport getDocumentTypeReport(final ElasticSearchIndexConfig config, final IndexDocumentType documentType)
+    {
+        for (final DocumentTypeReport documentTypeReport : documentTypeReports)
+        {
+            if (documentTypeReport.getConfig() == config && documentTypeReport.getDocumentType() == documentType)
+            {
+                return documentTypeReport;
+            }
+        }
+        return null;
+    }
+
+    public long getDocumentsIndexed()
+    {
+        long documentsIndexed = 0;
+        for (final DocumentTypeReport documentTypeReport : documentTypeReports)
+        {
+            documentsIndexed += documentTypeReport.getDocumentsIndexed();
+        }
+        return documentsIndexed;
+    }
+
+    public long getDocumentsFailed()
+    {
+        long documentsFailed = 0;
+        for (final DocumentTypeReport documentTypeReport : documentTypeReports)
+        {
+            documentsFailed += documentTypeReport.getDocumentsFailed();
+        }
+        return documentsFailed;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder report = new StringBuilder("Rebuild done in ").append(wallTimeMillis).append(" ms");
+        for (final DocumentTypeReport documentTypeReport : documentTypeReports)
+        {
+            report.append('\n').append(documentTypeReport);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Counts, throughput and latency percentiles of one document type of an index. Generation latencies are in microseconds per
+     * document, only documents generated by the document generator are timed, streamed products are read not generated. Bulk request
+     * latencies are in milliseconds, from handing the request to the indexers until its response, and are empty when bulk indexing is
+     * disabled.
+     */
+    public static class DocumentTypeReport
+    {
+        private final ElasticSearchIndexConfig config;
+
+        private final IndexDocumentType documentType;
+
+        private final long documentsGenerated;
+
+        private final long documentsIndexed;
+
+        private final long documentsFailed;
+
+        private final long documentsRetried;
+
+        private final long wallTimeMillis;
+
+        private final LatencyHistogram generationLatencyMicros;
+
+        private final LatencyHistogram bulkRequestLatencyMillis;
+
+        public DocumentTypeReport(final ElasticSearchIndexConfig config, final IndexDocumentType documentType,
+                final long documentsGenerated, final long documentsIndexed, final long documentsFailed, final long documentsRetried,
+                final long wallTimeMillis, final LatencyHistogram generationLatencyMicros, final LatencyHistogram bulkRequestLatencyMillis)
+        {
+            this.config = config;
+            this.documentType = documentType;
+            this.documentsGenerated = documentsGenerated;
+            this.documentsIndexed = documentsIndexed;
+            this.documentsFailed = documentsFailed;
+            this.documentsRetried = documentsRetried;
+            this.wallTimeMillis = wallTimeMillis;
+            this.generationLatencyMicros = generationLatencyMicros;
+            this.bulkRequestLatencyMillis = bulkRequestLatencyMillis;
+        }
+
+        public ElasticSearchIndexConfig getConfig()
+        {
+            return config;
+        }
+
+        public IndexDocumentType getDocumentType()
+        {
+            return documentType;
+        }
+
+        public long getDocumentsGenerated()
+        {
+            return documentsGenerated;
+        }
+
+        public long getDocumentsIndexed()
+        {
+            return documentsIndexed;
+        }
+
+        public long getDocumentsFailed()
+        {
+            return documentsFailed;
+        }
+
+        public long getDocumentsRetried()
+        {
+            return documentsRetried;
+        }
+
+        public long getWallTimeMillis()
+        {
+            return wallTimeMillis;
+        }
+
+        public double getDocumentsPerSecond()
+        {
+            return wallTimeMillis == 0 ? 0 : documentsIndexed * 1000d / wallTimeMillis;
+        }
+
+        public LatencyHistogram getGenerationLatencyMicros()
+        {
+            return generationLatencyMicros;
+        }
+
+        public LatencyHistogram getBulkRequestLatencyMillis()
+        {
+            return bulkRequestLatencyMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return config + "/" + documentType + ": generated=" + documentsGenerated + " indexed=" + documentsIndexed + " failed="
+                    + documentsFailed + " retried=" + documentsRetried + " wallTime=" + wallTimeMillis + "ms docsPerSecond="
+                    + String.format("%.1f", getDocumentsPerSecond()) + " generationLatencyMicros[" + generationLatencyMicros
+                    + "] bulkRequestLatencyMillis[" + bulkRequestLatencyMillis + "]";
+        }
+    }
+}
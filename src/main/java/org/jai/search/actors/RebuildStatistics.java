@@ -0,0 +1,156 @@
+package org.jai.search.actors;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * Statistics of the running rebuild per index config and document type, recorded by the actors doing the work and turned into a
+ * {@link RebuildReport} by the setup index master actor when the run completes. Generation latencies are recorded per range of documents
+ * from a local histogram of the document generator, so the shared histograms are not touched per document. Shared by all the actors of
+ * the system, see {@link #get(ActorSystem)}.
+ */
+public class RebuildStatistics implements Extension
+{
+    private static final Id ID = new Id();
+
+    private static final long HIGHEST_GENERATION_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final long HIGHEST_BULK_REQUEST_LATENCY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Map<ElasticSearchIndexConfig, Map<IndexDocumentType, DocumentTypeStatistics>> statistics =
+            new EnumMap<ElasticSearchIndexConfig, Map<IndexDocumentType, DocumentTypeStatistics>>(ElasticSearchIndexConfig.class);
+
+    public static RebuildStatistics get(final ActorSystem system)
+    {
+        return ID.get(system);
+    }
+
+    public static LatencyHistogram createGenerationLatencyHistogram()
+    {
+        return new LatencyHistogram(HIGHEST_GENERATION_LATENCY_MICROS);
+    }
+
+    public synchronized void recordGeneration(final ElasticSearchIndexConfig config, final IndexDocumentType documentType,
+            final LatencyHistogram generationLatencyMicros)
+    {
+        final DocumentTypeStatistics documentTypeStatistics = getStatistics(config, documentType);
+        if (documentTypeStatistics != null)
+        {
+            documentTypeStatistics.generationLatencyMicros.add(generationLatencyMicros);
+        }
+    }
+
+    public synchronized void recordBulkRequest(final ElasticSearchIndexConfig config, final IndexDocumentType documentType,
+            final long latencyMillis)
+    {
+        final DocumentTypeStatistics documentTypeStatistics = getStatistics(config, documentType);
+        if (documentTypeStatistics != null)
+        {
+            documentTypeStatistics.bulkRequestLatencyMillis.recordValue(latencyMillis);
+        }
+    }
+
+    public synchronized void recordDocumentTypeDone(final ElasticSearchIndexConfig config, final IndexDocumentType documentType,
+            final long wallTimeMillis, final long documentsIndexed)
+    {
+        final DocumentTypeStatistics documentTypeStatistics = getStatistics(config, documentType);
+        if (documentTypeStatistics != null)
+        {
+            documentTypeStatistics.wallTimeMillis = wallTimeMillis;
+            documentTypeStatistics.documentsIndexed = documentsIndexed;
+        }
+    }
+
+    /**
+     * Resets the statistics at the start of a run.
+     */
+    public synchronized void reset(final ElasticSearchIndexConfig config)
+    {
+        statistics.remove(config);
+    }
+
+    /**
+     * Report of the statistics recorded since the last reset, with the failed and retried documents counted by the dead letter journal.
+     */
+    public synchronized RebuildReport createReport(final long wallTimeMillis, final DeadLetterJournal deadLetterJournal)
+    {
+        final List<RebuildReport.DocumentTypeReport> documentTypeReports = new ArrayList<RebuildReport.DocumentTypeReport>();
+        for (final ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            if (!statistics.containsKey(config))
+            {
+                continue;
+            }
+            for (final Map.Entry<IndexDocumentType, DocumentTypeStatistics> entry : statistics.get(config).entrySet())
+            {
+                final DocumentTypeStatistics documentTypeStatistics = entry.getValue();
+                documentTypeReports.add(new RebuildReport.DocumentTypeReport(config, entry.getKey(),
+                        documentTypeStatistics.generationLatencyMicros.getTotalCount(), documentTypeStatistics.documentsIndexed,
+                        deadLetterJournal.getDocumentsFailed(config, entry.getKey()), deadLetterJournal.getDocumentsRetried(config,
+                                entry.getKey()), documentTypeStatistics.wallTimeMillis, documentTypeStatistics.generationLatencyMicros
+                                .copy(), documentTypeStatistics.bulkRequestLatencyMillis.copy()));
+            }
+        }
+        return new RebuildReport(wallTimeMillis, documentTypeReports);
+    }
+
+    private DocumentTypeStatistics getStatistics(final ElasticSearchIndexConfig config, final IndexDocumentType documentType)
+    {
+        if (config == null || documentType == null)
+        {
+            return null;
+        }
+        Map<IndexDocumentType, DocumentTypeStatistics> statisticsOfConfig = statistics.get(config);
+        if (statisticsOfConfig == null)
+        {
+            statisticsOfConfig = new EnumMap<IndexDocumentType, DocumentTypeStatistics>(IndexDocumentType.class);
+            statistics.put(config, statisticsOfConfig);
+        }
+        DocumentTypeStatistics documentTypeStatistics = statisticsOfConfig.get(documentType);
+        if (documentTypeStatistics == null)
+        {
+            documentTypeStatistics = new DocumentTypeStatistics();
+            statisticsOfConfig.put(documentType, documentTypeStatistics);
+        }
+        return documentTypeStatistics;
+    }
+
+    private static class DocumentTypeStatistics
+    {
+        private final LatencyHistogram generationLatencyMicros = createGenerationLatencyHistogram();
+
+        private final LatencyHistogram bulkRequestLatencyMillis = new LatencyHistogram(HIGHEST_BULK_REQUEST_LATENCY_MILLIS);
+
+        private long documentsIndexed;
+
+        private long wallTimeMillis;
+    }
+
+    private static class Id extends AbstractExtensionId<RebuildStatistics> implements ExtensionIdProvider
+    {
+        @Override
+        public Id lookup()
+        {
+            return ID;
+        }
+
+        @Override
+        public RebuildStatistics createExtension(final ExtendedActorSystem system)
+        {
+            return new RebuildStatistics();
+        }
+    }
+}
@@ -4,7 +4,10 @@ import static akka.actor.SupervisorStrategy.escalate;
 import static akka.actor.SupervisorStrategy.restart;
 import static akka.actor.SupervisorStrategy.stop;
 
+import org.jai.search.config.ElasticSearchIndexConfig;
 import org.jai.search.config.IndexDocumentType;
+import org.jai.search.config.IndexingSettings;
+import org.jai.search.data.ProductSource;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.exception.DocumentGenerationException;
 import org.jai.search.exception.DocumentTypeDataGenerationException;
@@ -14,6 +17,14 @@ import org.jai.search.index.IndexProductDataService;
 
 import org.springframework.util.Assert;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
 import akka.actor.ActorInitializationException;
 import akka.actor.ActorKilledException;
 import akka.actor.ActorRef;
@@ -21,14 +32,13 @@ import akka.actor.OneForOneStrategy;
 import akka.actor.Props;
 import akka.actor.SupervisorStrategy;
 import akka.actor.SupervisorStrategy.Directive;
-import akka.actor.UntypedActor;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.japi.Function;
 import akka.routing.FromConfig;
 import scala.concurrent.duration.Duration;
 
-public class SetupDocumentTypeWorkerActor extends UntypedActor
+public class SetupDocumentTypeWorkerActor extends MeteredUntypedActor
 {
     private final LoggingAdapter LOG = Logging.getLogger(getContext().system(), this);
 
@@ -38,27 +48,77 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
 
     private ActorRef indexDocumentWorkerRouter;
 
+    private ActorRef indexDocumentBulkWorker;
+
+    private final IndexingSettings indexingSettings;
+
     private int totalDocumentsToIndex = 0;
 
+    // Streamed product sources only report the total once exhausted.
+    private boolean totalDocumentsToIndexKnown = false;
+
     private int totalDocumentsToIndexDone = 0;
 
+    private int totalDocumentsDemanded = 0;
+
+    private int totalDocumentsDoneAtLastProgress = 0;
+
+    private ElasticSearchIndexConfig config;
+
     private IndexDocumentType indexDocumentType;
 
-    private String parentActorPathString = "../../";
+    private String newIndexName;
+
+    private final RebuildCheckpointJournal checkpointJournal;
+
+    private final RebuildStatistics rebuildStatistics;
+
+    private long documentTypeStartTime;
+
+    // Indexed successfully, failed documents are counted by the dead letter journal.
+    private int documentsIndexed = 0;
+
+    private boolean checkpointEnabled;
+
+    // Highest document id such that it and all documents emitted before it are indexed.
+    private Long checkpointDocumentId;
+
+    // Ranges of document ids emitted by the data generator after the checkpoint, in emission order. Ranges are generated in parallel,
+    // so completion is tracked per range and the checkpoint only moves past ranges fully indexed.
+    private final Deque<DocumentRangeProgress> documentRangesAfterCheckpoint = new ArrayDeque<DocumentRangeProgress>();
+
+    // Same ranges by first document id, to find the range of an indexed document.
+    private final TreeMap<Long, DocumentRangeProgress> documentRangesByFirstDocumentId = new TreeMap<Long, DocumentRangeProgress>();
+
+    // Documents indexed before the data generator reported them as emitted.
+    private final Set<Long> documentIdsDoneBeforeEmitted = new HashSet<Long>();
+
+    // Index worker that sent the document type, completion and failures are reported to it.
+    private ActorRef replyTo;
 
     public SetupDocumentTypeWorkerActor(final SampleDataGeneratorService sampleDataGeneratorService,
-            final IndexProductDataService indexProductDataService)
+            final IndexProductDataService indexProductDataService, final ProductSource productSource)
     {
-        dataGeneratorWorkerRouter = getContext().actorOf(Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService),
-                "dataGeneratorWorker");
+        dataGeneratorWorkerRouter = getContext().actorOf(
+                Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, productSource), "dataGeneratorWorker");
         documentGeneratorWorkerRouter = getContext().actorOf(
                 Props.create(DocumentGeneratorWorkerActor.class, sampleDataGeneratorService).withRouter(new FromConfig())
                         .withDispatcher("documentGenerateWorkerActorDispatcher"), "documentGeneratorWorker");
+        indexingSettings = new IndexingSettings(getContext().system().settings().config());
+        checkpointJournal = RebuildCheckpointJournal.get(getContext().system());
+        rebuildStatistics = RebuildStatistics.get(getContext().system());
+        // Async indexers keep per actor in-flight state, so they can not share a balancing mailbox.
+        final String indexDocumentWorkerDispatcher = indexingSettings.isAsyncEnabled() ? "indexDocumentAsyncWorkerActorDispatcher"
+                : "indexDocumentWorkerActorDispatcher";
         indexDocumentWorkerRouter = getContext().actorOf(
                 Props.create(IndexProductDataWorkerActor.class, indexProductDataService).withRouter(new FromConfig())
-                        .withDispatcher("indexDocumentWorkerActorDispatcher"), "indexDocumentWorker");
+                        .withDispatcher(indexDocumentWorkerDispatcher), "indexDocumentWorker");
+        indexDocumentBulkWorker = getContext().actorOf(
+                Props.create(IndexDocumentBulkWorkerActor.class, indexProductDataService, indexDocumentWorkerRouter),
+                "indexDocumentBulkWorker");
     }
 
+    // Restarts of the children are counted per stage in the pipeline metrics, see MeteredUntypedActor.
     private static SupervisorStrategy strategy = new OneForOneStrategy(10, Duration.create("1 minute"),
             new Function<Throwable, Directive>()
             {
@@ -119,10 +179,15 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
             {
                 handleTotalDocumentToIndex(message);
             }
-            // message from data generator, document generator and indexer
-            else if (message instanceof IndexDocumentVO)
+            // documents handed by the data generator to the document generator or indexer
+            else if (message instanceof IndexDocumentsEmittedVO)
             {
-                generateDocumentAndIndexDocument(message);
+                handleDocumentsEmitted(message);
+            }
+            // batched completion counts from the indexers
+            else if (message instanceof IndexDocumentsDoneVO)
+            {
+                handleDocumentsDone(message);
             }
             else if (message instanceof Exception)
             {
@@ -147,9 +212,26 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
     private void handleTotalDocumentToIndex(final Object message)
     {
         totalDocumentsToIndex = (Integer) message;
-        if (totalDocumentsToIndex == 0)
+        totalDocumentsToIndexKnown = true;
+        if (indexingSettings.isBulkEnabled())
         {
-            updateStateAndResetIfAllDone();
+            // Lets the bulk worker flush its last batches as soon as all documents arrived.
+            indexDocumentBulkWorker.tell(Integer.valueOf(totalDocumentsToIndex), getSelf());
+        }
+        updateStateAndResetIfAllDone();
+    }
+
+    private void demandDocumentsIfNeeded()
+    {
+        // Keep at most max outstanding documents between data generation and indexing done, demand in batches.
+        final int outstandingDocuments = totalDocumentsDemanded - totalDocumentsToIndexDone;
+        final int remainingDocuments = totalDocumentsToIndexKnown ? totalDocumentsToIndex - totalDocumentsDemanded : Integer.MAX_VALUE;
+        final int demand = Math.min(indexingSettings.getMaxOutstandingDocuments() - outstandingDocuments, remainingDocuments);
+        final int demandBatchSize = Math.min(indexingSettings.getDemandBatchSize(), indexingSettings.getMaxOutstandingDocuments());
+        if (demand > 0 && (demand >= demandBatchSize || totalDocumentsDemanded == 0 || demand == remainingDocuments))
+        {
+            totalDocumentsDemanded += demand;
+            dataGeneratorWorkerRouter.tell(new IndexDocumentDemandVO(demand), getSelf());
         }
     }
 
@@ -164,17 +246,27 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
             final DocumentTypeIndexingException documentTypeIndexingException = new DocumentTypeIndexingException(indexDocumentType,
                     "Data generation failed, failing whole document type itself!", ex);
             sendMessageToParent(documentTypeIndexingException);
+            if (indexingSettings.isBulkEnabled())
+            {
+                // No more documents will arrive, flush the last batches and let the bulk worker forget the document type.
+                indexDocumentBulkWorker.tell(IndexingMessage.FLUSH_BULK_REQUESTS, getSelf());
+            }
             resetActorState();
         }
         else if (ex instanceof DocumentGenerationException)
         {
-            // TODO: not handling failure separately , change it.
+            // Dead lettered by the worker which failed the document, counted as done.
+            if (indexingSettings.isBulkEnabled())
+            {
+                // Never reaches the bulk worker, which counts the documents of the document type to flush its last batches.
+                indexDocumentBulkWorker.tell(IndexingMessage.DOCUMENT_GENERATION_FAILED, getSelf());
+            }
             totalDocumentsToIndexDone++;
             updateStateAndResetIfAllDone();
         }
         else if (ex instanceof IndexDataException)
         {
-            // TODO: not handling failure separately , change it.
+            // Dead lettered by the worker which failed the document, counted as done.
             totalDocumentsToIndexDone++;
             updateStateAndResetIfAllDone();
         }
@@ -184,36 +276,89 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
         }
     }
 
-    private void generateDocumentAndIndexDocument(final Object message)
+    private void handleDocumentsEmitted(final Object message)
     {
-        final IndexDocumentVO indexDocumentVO = (IndexDocumentVO) message;
-        // Indexing not done, process the data further.
-        if (!indexDocumentVO.isIndexDone())
+        if (checkpointEnabled)
         {
-            // Document not generated yet
-            if (indexDocumentVO.getProduct() == null && indexDocumentVO.getProductProperty() == null
-                    && indexDocumentVO.getProductGroup() == null)
+            for (final IndexDocumentsEmittedVO.DocumentIdRange documentIdRange : ((IndexDocumentsEmittedVO) message)
+                    .getDocumentIdRanges())
             {
-                documentGeneratorWorkerRouter.tell(indexDocumentVO, getSelf());
-                // totalDocumentsToIndex++;
-                // TODO: implement supervisor strategy for failing stuff.
+                final DocumentRangeProgress documentRangeProgress = new DocumentRangeProgress(documentIdRange);
+                documentRangesAfterCheckpoint.add(documentRangeProgress);
+                documentRangesByFirstDocumentId.put(documentIdRange.getFromDocumentId(), documentRangeProgress);
             }
-            // Document generated, index it.
-            else
+            // Completions may arrive before the data generator reported the documents as emitted.
+            final Iterator<Long> documentIdsDone = documentIdsDoneBeforeEmitted.iterator();
+            while (documentIdsDone.hasNext())
             {
-                indexDocumentWorkerRouter.tell(indexDocumentVO, getSelf());
+                if (documentRangeDone(documentIdsDone.next()))
+                {
+                    documentIdsDone.remove();
+                }
             }
+            advanceCheckpoint();
         }
-        else
+    }
+
+    private void handleDocumentsDone(final Object message)
+    {
+        final IndexDocumentsDoneVO indexDocumentsDoneVO = (IndexDocumentsDoneVO) message;
+        if (indexDocumentsDoneVO.getDocumentsFailed() > 0)
         {
-            totalDocumentsToIndexDone++;
-            updateStateAndResetIfAllDone();
+            // Failed after retries of transient failures, dead lettered by the indexers.
+            LOG.error("Indexing failed for {} documents of type: {}", new Object[] { indexDocumentsDoneVO.getDocumentsFailed(),
+                    indexDocumentType });
+        }
+        totalDocumentsToIndexDone += indexDocumentsDoneVO.getDocumentsDone();
+        documentsIndexed += indexDocumentsDoneVO.getDocumentIds().size();
+        // Failed documents are not acknowledged, so a resumed rebuild retries them.
+        if (checkpointEnabled)
+        {
+            for (final Long documentId : indexDocumentsDoneVO.getDocumentIds())
+            {
+                if (!documentRangeDone(documentId))
+                {
+                    documentIdsDoneBeforeEmitted.add(documentId);
+                }
+            }
+            advanceCheckpoint();
+        }
+        updateStateAndResetIfAllDone();
+    }
+
+    private void advanceCheckpoint()
+    {
+        while (!documentRangesAfterCheckpoint.isEmpty() && documentRangesAfterCheckpoint.peek().documentsPending == 0)
+        {
+            final DocumentRangeProgress documentRangeProgress = documentRangesAfterCheckpoint.poll();
+            documentRangesByFirstDocumentId.remove(documentRangeProgress.fromDocumentId);
+            checkpointDocumentId = documentRangeProgress.toDocumentId;
+        }
+    }
+
+    private boolean documentRangeDone(final long documentId)
+    {
+        final Map.Entry<Long, DocumentRangeProgress> documentRange = documentRangesByFirstDocumentId.floorEntry(documentId);
+        if (documentRange == null || documentId > documentRange.getValue().toDocumentId)
+        {
+            return false;
+        }
+        documentRange.getValue().documentsPending--;
+        return true;
+    }
+
+    private void writeCheckpoint()
+    {
+        if (checkpointEnabled && checkpointDocumentId != null)
+        {
+            checkpointJournal.checkpoint(config, newIndexName, indexDocumentType, checkpointDocumentId);
         }
     }
 
     private void handleDocumentTypeForDataGeneration(final Object message)
     {
         final IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = (IndexDocumentTypeMessageVO) message;
+        replyTo = indexDocumentTypeMessageVO.getReplyTo();
         // Check input data
         Assert.notNull(indexDocumentTypeMessageVO.getConfig(), "Indexing config can not be null!");
         Assert.notNull(indexDocumentTypeMessageVO.getIndexDocumentType(), "Document type can not be null!");
@@ -222,15 +367,30 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
         Assert.isTrue(totalDocumentsToIndex == 0, "Existing docs to index should have been zero!");
         Assert.isTrue(totalDocumentsToIndexDone == 0, "Existing docs to indexing done should have been zero!");
         // Each actor is supposed to handle single document type.
+        config = indexDocumentTypeMessageVO.getConfig();
         indexDocumentType = indexDocumentTypeMessageVO.getIndexDocumentType();
+        newIndexName = indexDocumentTypeMessageVO.getNewIndexName();
+        documentTypeStartTime = System.currentTimeMillis();
+        // Incremental updates write into the live index, there is nothing to resume.
+        checkpointEnabled = checkpointJournal.isEnabled() && !indexDocumentTypeMessageVO.isIncrementalUpdate();
+        checkpointDocumentId = indexDocumentTypeMessageVO.getResumeAfterDocumentId();
+        // Documents flow from the data generator through the document generator to the indexers, only counts come back.
+        indexDocumentTypeMessageVO.documentGenerator(documentGeneratorWorkerRouter).documentIndexer(
+                indexingSettings.isBulkEnabled() ? indexDocumentBulkWorker : indexDocumentWorkerRouter);
+        if (indexingSettings.isBulkEnabled())
+        {
+            // Bulk worker is reused across document types, counts the documents of this one from now on.
+            indexDocumentBulkWorker.tell(indexDocumentTypeMessageVO, getSelf());
+        }
         dataGeneratorWorkerRouter.tell(indexDocumentTypeMessageVO, getSelf());
+        demandDocumentsIfNeeded();
     }
 
     private void updateStateAndResetIfAllDone()
     {
         LOG.debug("Total indexing stats for document type are: totalProductsToIndex: {}, totalProductsToIndexDone: {}", new Object[] {
                 totalDocumentsToIndex, totalDocumentsToIndexDone });
-        if (totalDocumentsToIndex == totalDocumentsToIndexDone)
+        if (totalDocumentsToIndexKnown && totalDocumentsToIndex == totalDocumentsToIndexDone)
         {
             LOG.debug("All products indexing done for total document types {} sending message {} to parent!", new Object[] {
                     indexDocumentType, indexDocumentType });
@@ -238,17 +398,49 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
             // akka://SearchIndexingSystem/user/setupIndexMasterActor/setupIndexWorkerActor/$a
             // Send the document type done for all the handling types, for now total products done means all types done, change it.
             // sendMessageToParent(IndexingMessage.DOCUMENTTYPE_DONE);
+            writeCheckpoint();
+            publishProgress(true);
+            rebuildStatistics.recordDocumentTypeDone(config, indexDocumentType, System.currentTimeMillis() - documentTypeStartTime,
+                    documentsIndexed);
             sendMessageToParent(indexDocumentType);
             resetActorState();
             stopTheActor();
         }
+        else
+        {
+            if (totalDocumentsToIndexDone - totalDocumentsDoneAtLastProgress >= indexingSettings.getDemandBatchSize())
+            {
+                writeCheckpoint();
+                publishProgress(false);
+            }
+            demandDocumentsIfNeeded();
+        }
+    }
+
+    private void publishProgress(final boolean done)
+    {
+        totalDocumentsDoneAtLastProgress = totalDocumentsToIndexDone;
+        getContext().system().eventStream().publish(new IndexingProgressVO().config(config).documentType(indexDocumentType)
+                .documentsDone(totalDocumentsToIndexDone).documentsToIndex(totalDocumentsToIndexKnown ? totalDocumentsToIndex : 0)
+                .done(done));
     }
 
     private void resetActorState()
     {
         totalDocumentsToIndex = 0;
+        totalDocumentsToIndexKnown = false;
         totalDocumentsToIndexDone = 0;
+        totalDocumentsDemanded = 0;
+        totalDocumentsDoneAtLastProgress = 0;
+        documentsIndexed = 0;
+        config = null;
         indexDocumentType = null;
+        newIndexName = null;
+        checkpointEnabled = false;
+        checkpointDocumentId = null;
+        documentRangesAfterCheckpoint.clear();
+        documentRangesByFirstDocumentId.clear();
+        documentIdsDoneBeforeEmitted.clear();
     }
 
     private void stopTheActor()
@@ -260,9 +452,13 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
 
     private void sendMessageToParent(final Object message)
     {
-        // Using actor selection to find parent , as message of indexing completion is received from child actors.
-        // To find parent, because of $val syntax and routee, using actor path for the same.
-        getContext().actorSelection(parentActorPathString).tell(message, null);
+        // Parent of a routee is the router, so reply to the index worker carried by the document type message.
+        if (replyTo == null)
+        {
+            LOG.error("No index worker to send message to: {}", message);
+            return;
+        }
+        replyTo.tell(message, getSelf());
     }
 
     private void handleUnhandledMessage(final Object message)
@@ -305,8 +501,34 @@ public class SetupDocumentTypeWorkerActor extends UntypedActor
         this.indexDocumentWorkerRouter = indexDocumentWorkerRouter;
     }
 
-    public void setParentActorPathString(final String parentActorPathString)
+    public void setIndexDocumentBulkWorker(final ActorRef indexDocumentBulkWorker)
     {
-        this.parentActorPathString = parentActorPathString;
+        this.indexDocumentBulkWorker = indexDocumentBulkWorker;
+    }
+
+    public int getTotalDocumentsDemanded()
+    {
+        return totalDocumentsDemanded;
+    }
+
+    public Long getCheckpointDocumentId()
+    {
+        return checkpointDocumentId;
+    }
+
+    private static class DocumentRangeProgress
+    {
+        private final long fromDocumentId;
+
+        private final long toDocumentId;
+
+        private int documentsPending;
+
+        private DocumentRangeProgress(final IndexDocumentsEmittedVO.DocumentIdRange documentIdRange)
+        {
+            fromDocumentId = documentIdRange.getFromDocumentId();
+            toDocumentId = documentIdRange.getToDocumentId();
+            documentsPending = documentIdRange.getSize();
+        }
     }
 }
@@ -1,6 +1,7 @@
 package org.jai.search.actors;
 
 import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.data.ProductSource;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.exception.IndexingException;
 import org.jai.search.index.IndexProductDataService;
@@ -8,18 +9,20 @@ import org.jai.search.setup.SetupIndexService;
 
 import org.apache.commons.lang.time.StopWatch;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
-import akka.actor.UntypedActor;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.routing.FromConfig;
 
-public class SetupIndexMasterActor extends UntypedActor
+public class SetupIndexMasterActor extends MeteredUntypedActor
 {
     final LoggingAdapter LOG = Logging.getLogger(getContext().system(), this);
 
@@ -33,11 +36,23 @@ public class SetupIndexMasterActor extends UntypedActor
 
     private final Map<ElasticSearchIndexConfig, Boolean> indexDone = new HashMap<ElasticSearchIndexConfig, Boolean>();
 
+    // Told RebuildDoneVO once the rebuild or incremental update they asked for is finished.
+    private final List<ActorRef> rebuildSubscribers = new ArrayList<ActorRef>();
+
+    // Products modified after the start of the last successful rebuild or incremental update are picked up by the next incremental
+    // update.
+    private Date incrementalUpdateWatermark;
+
+    private Date runStartedAt;
+
+    private boolean runFailed;
+
     public SetupIndexMasterActor(final SetupIndexService setupIndexService, final SampleDataGeneratorService sampleDataGeneratorService,
-            final IndexProductDataService indexProductDataService)
+            final IndexProductDataService indexProductDataService, final ProductSource productSource)
     {
         workerRouter = getContext().actorOf(
-                Props.create(SetupIndexWorkerActor.class, setupIndexService, sampleDataGeneratorService, indexProductDataService)
+                Props.create(SetupIndexWorkerActor.class, setupIndexService, sampleDataGeneratorService, indexProductDataService,
+                        productSource)
                         .withDispatcher("setupIndexWorkerActorDispatcher").withRouter(new FromConfig()), "setupIndexWorkerActor");
     }
 
@@ -75,6 +90,7 @@ public class SetupIndexMasterActor extends UntypedActor
         final Exception ex = (Exception) message;
         if (ex instanceof IndexingException)
         {
+            runFailed = true;
             indexDone.put(((IndexingException) ex).getIndexConfig(), true);
             updateIndexDoneState();
         }
@@ -91,9 +107,13 @@ public class SetupIndexMasterActor extends UntypedActor
         {
             handleIndexingRebuildMessage(message);
         }
+        else if (IndexingMessage.INCREMENTAL_UPDATE.equals(indexingMessage))
+        {
+            handleIncrementalUpdateMessage(message);
+        }
         else if (IndexingMessage.REBUILD_ALL_INDICES_DONE.equals(indexingMessage))
         {
-            returnAllIndicesCurrentStateAndReset();
+            returnAllIndicesCurrentState();
         }
         else
         {
@@ -103,30 +123,62 @@ public class SetupIndexMasterActor extends UntypedActor
 
     private void handleIndexingRebuildMessage(final Object message)
     {
-        // Start watch first time.
-        if (!isRebuildInProgress)
+        addRebuildSubscriber();
+        if (isRebuildInProgress)
         {
-            stopWatch.start();
+            LOG.info("Rebuilding is already in progress, notifying on completion of the running rebuild: {}", message);
         }
-        // need to validate the hanging state here
-        // All indexing done, but rebuild in progress. wait 5 min for client otherwise reset state.
-        if (allIndexingDone && isRebuildInProgress)
+        else
         {
-            if (stopWatch.getTime() > 5 * 60 * 1000)
-            {
-                isRebuildInProgress = false;
-                stopWatch.reset();
-            }
+            startRun();
+            setupIndicesForAll();
         }
+    }
+
+    private void handleIncrementalUpdateMessage(final Object message)
+    {
+        addRebuildSubscriber();
         if (isRebuildInProgress)
         {
-            LOG.error("Rebuilding is already in progress, ignoring another rebuild message: {}", message);
+            // Changes made meanwhile are after the start of the running rebuild/update, so the next incremental update picks them up.
+            LOG.info("Rebuilding is already in progress, notifying on completion of the running rebuild: {}", message);
         }
-        else
+        else if (incrementalUpdateWatermark == null)
         {
-            isRebuildInProgress = true;
+            LOG.info("No rebuild done yet to update incrementally from, rebuilding all indices: {}", message);
+            startRun();
             setupIndicesForAll();
         }
+        else
+        {
+            final Date modifiedSince = incrementalUpdateWatermark;
+            startRun();
+            updateIndicesForAll(modifiedSince);
+        }
+    }
+
+    private void addRebuildSubscriber()
+    {
+        // The sender of the rebuild message, if any, is notified on completion.
+        if (!getSender().equals(getContext().system().deadLetters()))
+        {
+            rebuildSubscribers.add(getSender());
+        }
+    }
+
+    private void startRun()
+    {
+        isRebuildInProgress = true;
+        allIndexingDone = false;
+        runFailed = false;
+        runStartedAt = new Date();
+        for (final ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            DeadLetterJournal.get(getContext().system()).reset(config);
+            RebuildStatistics.get(getContext().system()).reset(config);
+        }
+        stopWatch.reset();
+        stopWatch.start();
     }
 
     private void updateIndexDoneState()
@@ -141,32 +193,61 @@ public class SetupIndexMasterActor extends UntypedActor
                 isAllIndexDone = false;
             }
         }
-        if (isAllIndexDone)
+        if (isAllIndexDone && isRebuildInProgress)
         {
-            allIndexingDone = true;
-            // TODO: not setting it here as client still needs status
-            // isRebuildInProgress = false;
+            completeRebuild();
         }
     }
 
-    private void returnAllIndicesCurrentStateAndReset()
+    private void completeRebuild()
+    {
+        stopWatch.stop();
+        LOG.debug("Indexing setup finished for all indices in {} ms!", stopWatch.getTime());
+        logDocumentsFailedAndRetried();
+        // Handed to the subscribers of this run, a later run does not replace the report they get.
+        final RebuildReport report = RebuildStatistics.get(getContext().system()).createReport(stopWatch.getTime(),
+                DeadLetterJournal.get(getContext().system()));
+        LOG.info("{}", report);
+        allIndexingDone = true;
+        isRebuildInProgress = false;
+        indexDone.clear();
+        if (runFailed)
+        {
+            LOG.warning("Indexing failed for some index, keeping incremental update watermark: {}", incrementalUpdateWatermark);
+        }
+        else
+        {
+            incrementalUpdateWatermark = runStartedAt;
+        }
+        for (final ActorRef subscriber : rebuildSubscribers)
+        {
+            subscriber.tell(new RebuildDoneVO(report), getSelf());
+        }
+        rebuildSubscribers.clear();
+    }
+
+    private void logDocumentsFailedAndRetried()
+    {
+        final DeadLetterJournal deadLetterJournal = DeadLetterJournal.get(getContext().system());
+        for (final ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            if (deadLetterJournal.getDocumentsFailed(config) > 0)
+            {
+                LOG.warning("Indexing failed for {} documents of index {} after {} retries, dead letters written to: {}", new Object[] {
+                        deadLetterJournal.getDocumentsFailed(config), config, deadLetterJournal.getDocumentsRetried(config),
+                        deadLetterJournal.getFile(config).getAbsolutePath() });
+            }
+            else
+            {
+                LOG.debug("Indexing of index {} done after {} retries", config, deadLetterJournal.getDocumentsRetried(config));
+            }
+        }
+    }
+
+    private void returnAllIndicesCurrentState()
     {
         LOG.debug("Master Actor message received for DONE check, status is:" + allIndexingDone);
         getSender().tell(allIndexingDone, getSelf());
-        // Reset current state
-        if (allIndexingDone)
-        {
-            LOG.debug("Indexing setup finished for all indices!");
-            allIndexingDone = false;
-            indexDone.clear();
-            // Setting it here, but need to check that it will never be called, if client dies.
-            // put additional check when you receive new rebuild call, 1 min check
-            isRebuildInProgress = false;
-            stopWatch.reset();
-            // TODO as it is single instance, need not to stop it.
-            // getContext().stop(getSelf());
-            // TODO: check when the alising should be changed.
-        }
     }
 
     private void setupIndicesForAll()
@@ -178,4 +259,14 @@ public class SetupIndexMasterActor extends UntypedActor
             indexDone.put(config, false);
         }
     }
+
+    private void updateIndicesForAll(final Date modifiedSince)
+    {
+        LOG.debug("Starting incremental update of indices for products modified since {}", modifiedSince);
+        for (final ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            workerRouter.tell(new IndexDocumentTypeMessageVO().config(config).modifiedSince(modifiedSince).replyTo(getSelf()), getSelf());
+            indexDone.put(config, false);
+        }
+    }
 }
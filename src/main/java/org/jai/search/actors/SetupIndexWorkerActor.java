@@ -2,6 +2,7 @@ package org.jai.search.actors;
 
 import org.jai.search.config.ElasticSearchIndexConfig;
 import org.jai.search.config.IndexDocumentType;
+import org.jai.search.data.ProductSource;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.exception.DocumentTypeIndexingException;
 import org.jai.search.exception.IndexingException;
@@ -17,33 +18,47 @@ import java.util.Map.Entry;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
-import akka.actor.UntypedActor;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.routing.FromConfig;
 
-public class SetupIndexWorkerActor extends UntypedActor
+public class SetupIndexWorkerActor extends MeteredUntypedActor
 {
     final LoggingAdapter LOG = Logging.getLogger(getContext().system(), this);
 
     private final SetupIndexService setupIndexService;
 
+    private final IndexProductDataService indexProductDataService;
+
     private ElasticSearchIndexConfig config;
 
     private String newIndexName;
 
+    // Incremental updates write into the live alias, no new index is created and the alias is not moved.
+    private boolean incrementalUpdate;
+
     private final Map<IndexDocumentType, Boolean> documentTypesDone = new HashMap<IndexDocumentType, Boolean>();
 
     private final ActorRef workerRouter;
 
+    private final RebuildCheckpointJournal checkpointJournal;
+
+    // Master that sent the index, completion and failures are reported to it.
+    private ActorRef replyTo;
+
+    // Index left behind by an interrupted rebuild, document types resume after their checkpoint.
+    private boolean resumedRebuild;
+
     public SetupIndexWorkerActor(final SetupIndexService setupIndexService, final SampleDataGeneratorService sampleDataGeneratorService,
-            final IndexProductDataService indexProductDataService)
+            final IndexProductDataService indexProductDataService, final ProductSource productSource)
     {
         this.setupIndexService = setupIndexService;
+        this.indexProductDataService = indexProductDataService;
         workerRouter = getContext().actorOf(
-                Props.create(SetupDocumentTypeWorkerActor.class, sampleDataGeneratorService, indexProductDataService)
+                Props.create(SetupDocumentTypeWorkerActor.class, sampleDataGeneratorService, indexProductDataService, productSource)
                         .withDispatcher("setupDocumentTypeWorkerActorDispatcher").withRouter(new FromConfig()),
                 "setupDocumentTypeWorkerActor");
+        checkpointJournal = RebuildCheckpointJournal.get(getContext().system());
     }
 
     @Override
@@ -57,6 +72,10 @@ public class SetupIndexWorkerActor extends UntypedActor
             {
                 handleEachIndex(message);
             }
+            else if (message instanceof IndexDocumentTypeMessageVO)
+            {
+                handleIncrementalUpdate(message);
+            }
             else if (message instanceof IndexDocumentType)
             {
                 handleIndexDocumentType(message);
@@ -119,7 +138,20 @@ public class SetupIndexWorkerActor extends UntypedActor
         LOG.debug("Worker Actor message for initial config is  received");
         // Each worker is supposed to handle one index.
         config = (ElasticSearchIndexConfig) message;
-        newIndexName = setupIndexService.createNewIndex(config);
+        replyTo = getSender();
+        incrementalUpdate = false;
+        final String checkpointedIndexName = checkpointJournal.getIndexName(config);
+        resumedRebuild = checkpointedIndexName != null && setupIndexService.isIndexExists(checkpointedIndexName);
+        if (resumedRebuild)
+        {
+            LOG.info("Resuming interrupted rebuild of index: {}", checkpointedIndexName);
+            newIndexName = checkpointedIndexName;
+        }
+        else
+        {
+            newIndexName = setupIndexService.createNewIndex(config);
+            checkpointJournal.start(config, newIndexName);
+        }
         Assert.isTrue(StringUtils.isNotBlank(newIndexName));
         // Loop through all document types and index relevant products for those.
         // eg. you want to index products/product group/specifications separately.
@@ -132,10 +164,25 @@ public class SetupIndexWorkerActor extends UntypedActor
         indexDocumentType(config, IndexDocumentType.PRODUCT_GROUP);
     }
 
+    private void handleIncrementalUpdate(final Object message)
+    {
+        final IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = (IndexDocumentTypeMessageVO) message;
+        LOG.debug("Worker Actor message for incremental update is received: {}", indexDocumentTypeMessageVO.getModifiedSince());
+        config = indexDocumentTypeMessageVO.getConfig();
+        replyTo = indexDocumentTypeMessageVO.getReplyTo() != null ? indexDocumentTypeMessageVO.getReplyTo() : getSender();
+        incrementalUpdate = true;
+        newIndexName = config.getIndexAliasName();
+        // Only products carry a last modified date, properties and groups are refreshed by a full rebuild.
+        workerRouter.tell(new IndexDocumentTypeMessageVO().config(config).documentType(IndexDocumentType.PRODUCT)
+                .newIndexName(newIndexName).modifiedSince(indexDocumentTypeMessageVO.getModifiedSince()).replyTo(getSelf()), getSelf());
+        documentTypesDone.put(IndexDocumentType.PRODUCT, false);
+    }
+
     private void indexDocumentType(final ElasticSearchIndexConfig config, final IndexDocumentType indexDocumentType)
     {
-        workerRouter.tell(new IndexDocumentTypeMessageVO().config(config).documentType(indexDocumentType).newIndexName(newIndexName),
-                getSelf());
+        final Long resumeAfterDocumentId = resumedRebuild ? checkpointJournal.getCheckpoint(config, newIndexName, indexDocumentType) : null;
+        workerRouter.tell(new IndexDocumentTypeMessageVO().config(config).documentType(indexDocumentType).newIndexName(newIndexName)
+                .resumeAfterDocumentId(resumeAfterDocumentId).replyTo(getSelf()), getSelf());
         documentTypesDone.put(indexDocumentType, false);
     }
 
@@ -154,7 +201,16 @@ public class SetupIndexWorkerActor extends UntypedActor
         if (isAlldocumentTypeDone)
         {
             // TODO: index type should have been done. shift alising for newly created indices now.
-            setupIndexService.replaceAlias(newIndexName, config.getIndexAliasName());
+            if (!incrementalUpdate)
+            {
+                setupIndexService.replaceAlias(newIndexName, config.getIndexAliasName());
+                checkpointJournal.clear(config);
+            }
+            else
+            {
+                // Cached results of the alias may predate the updated documents.
+                indexProductDataService.indexChanged(config, newIndexName);
+            }
             // sendMessageToParent(config);
             sendMessageToParent(config);
             LOG.debug("All indexing done for the index: {} {}", new Object[] { newIndexName, config });
@@ -165,9 +221,13 @@ public class SetupIndexWorkerActor extends UntypedActor
 
     private void sendMessageToParent(final Object message)
     {
-        // Find parent actor in the hierarchy.
-        // akka://SearchIndexingSystem/user/setupIndexMasterActor/setupIndexWorkerActor/$a
-        getContext().actorSelection("../../").tell(message, null);
+        // Parent of a routee is the router, so reply to the master that sent the index.
+        if (replyTo == null)
+        {
+            LOG.error("No master to send message to: {}", message);
+            return;
+        }
+        replyTo.tell(message, getSelf());
     }
 
     private void stopTheActor()
@@ -0,0 +1,156 @@
+package org.jai.search.actors;
+
+import org.jai.search.util.LatencyHistogram;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeterMetric;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of one stage of the indexing pipeline, all the actors of a class: mailbox size, messages processed per second, processing
+ * time and restarts. The stage with a growing mailbox and a flat message rate is the bottleneck of a rebuild. Mailbox sizes are sampled
+ * per mailbox by the actors themselves, actors on a balancing dispatcher share one mailbox.
+ */
+public class StageMetrics implements StageMetricsMBean
+{
+    private static final long HIGHEST_PROCESSING_TIME_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String name;
+
+    private final MeterMetric messages;
+
+    private final LatencyHistogram processingTimeMicros = new LatencyHistogram(HIGHEST_PROCESSING_TIME_MICROS);
+
+    private final ConcurrentMap<String, Long> mailboxSizes = new ConcurrentHashMap<String, Long>();
+
+    private final CounterMetric restarts = new CounterMetric();
+
+    public StageMetrics(final String name, final ScheduledExecutorService tickExecutor)
+    {
+        this.name = name;
+        messages = new MeterMetric(tickExecutor, TimeUnit.SECONDS);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void messageProcessed(final long processingTimeNanos)
+    {
+        messages.mark();
+        synchronized (processingTimeMicros)
+        {
+            processingTimeMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(processingTimeNanos));
+        }
+    }
+
+    public void mailboxSize(final String mailbox, final long size)
+    {
+        mailboxSizes.put(mailbox, size);
+    }
+
+    public void mailboxRemoved(final String mailbox)
+    {
+        mailboxSizes.remove(mailbox);
+    }
+
+    public void restarted()
+    {
+        restarts.inc();
+    }
+
+    public void stop()
+    {
+        messages.stop();
+    }
+
+    @Override
+    public long getMailboxSize()
+    {
+        long mailboxSize = 0;
+        for (final Long size : mailboxSizes.values())
+        {
+            mailboxSize += size;
+        }
+        return mailboxSize;
+    }
+
+    @Override
+    public long getMessages()
+    {
+        return messages.count();
+    }
+
+    @Override
+    public double getMessagesPerSecond()
+    {
+        return messages.oneMinuteRate();
+    }
+
+    @Override
+    public double getMeanMessagesPerSecond()
+    {
+        return messages.meanRate();
+    }
+
+    @Override
+    public double getMeanProcessingTimeMicros()
+    {
+        synchronized (processingTimeMicros)
+        {
+            return processingTimeMicros.getMean();
+        }
+    }
+
+    @Override
+    public long getProcessingTimeMicros50thPercentile()
+    {
+        synchronized (processingTimeMicros)
+        {
+            return processingTimeMicros.getValueAtPercentile(50);
+        }
+    }
+
+    @Override
+    public long getProcessingTimeMicros99thPercentile()
+    {
+        synchronized (processingTimeMicros)
+        {
+            return processingTimeMicros.getValueAtPercentile(99);
+        }
+    }
+
+    @Override
+    public long getMaxProcessingTimeMicros()
+    {
+        synchronized (processingTimeMicros)
+        {
+            return processingTimeMicros.getMax();
+        }
+    }
+
+    @Override
+    public long getRestarts()
+    {
+        return restarts.count();
+    }
+
+    @Override
+    public String toString()
+    {
+        final String processingTime;
+        synchronized (processingTimeMicros)
+        {
+            processingTime = processingTimeMicros.toString();
+        }
+        return name + ": mailboxSize=" + getMailboxSize() + " messages=" + getMessages() + " messagesPerSecond="
+                + String.format("%.1f", getMessagesPerSecond()) + " meanMessagesPerSecond="
+                + String.format("%.1f", getMeanMessagesPerSecond()) + " restarts=" + getRestarts() + " processingTimeMicros["
+                + processingTime + "]";
+    }
+}
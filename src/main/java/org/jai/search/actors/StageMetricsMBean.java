@@ -0,0 +1,25 @@
+package org.jai.search.actors;
+
+/**
+ * JMX view of the {@link StageMetrics} of an actor stage of the indexing pipeline.
+ */
+public interface StageMetricsMBean
+{
+    long getMailboxSize();
+
+    long getMessages();
+
+    double getMessagesPerSecond();
+
+    double getMeanMessagesPerSecond();
+
+    double getMeanProcessingTimeMicros();
+
+    long getProcessingTimeMicros50thPercentile();
+
+    long getProcessingTimeMicros99thPercentile();
+
+    long getMaxProcessingTimeMicros();
+
+    long getRestarts();
+}
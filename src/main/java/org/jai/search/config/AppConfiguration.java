@@ -1,6 +1,7 @@
 package org.jai.search.config;
 
 import org.jai.search.actors.SetupIndexMasterActor;
+import org.jai.search.data.ProductSource;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.index.IndexProductDataService;
 import org.jai.search.setup.SetupIndexService;
@@ -36,6 +37,16 @@ class AppConfiguration
         return ActorSystem.create("SearchIndexingSystem", ConfigFactory.load().getConfig("SearchIndexingSystem"));
     }
 
+    /**
+     * Query settings, read from the actor system configuration.
+     */
+    @Bean(autowire = Autowire.BY_NAME, name = "querySettings")
+    @DependsOn(value = { "actorSystem" })
+    public QuerySettings querySettings()
+    {
+        return new QuerySettings(applicationContext.getBean(ActorSystem.class).settings().config());
+    }
+
     @Bean(autowire = Autowire.BY_NAME, name = "setupIndexMasterActor")
     // @Scope("prototype")
     @DependsOn(value = { "actorSystem" })
@@ -45,8 +56,9 @@ class AppConfiguration
         final SetupIndexService setupIndexService = applicationContext.getBean(SetupIndexService.class);
         final SampleDataGeneratorService sampleDataGeneratorService = applicationContext.getBean(SampleDataGeneratorService.class);
         final IndexProductDataService indexProductData = applicationContext.getBean(IndexProductDataService.class);
-        return system.actorOf(Props.create(SetupIndexMasterActor.class, setupIndexService, sampleDataGeneratorService, indexProductData)
-                .withDispatcher("setupIndexMasterActorDispatch"), "setupIndexMasterActor");
+        final ProductSource productSource = applicationContext.getBean(ProductSource.class);
+        return system.actorOf(Props.create(SetupIndexMasterActor.class, setupIndexService, sampleDataGeneratorService, indexProductData,
+                productSource).withDispatcher("setupIndexMasterActorDispatch"), "setupIndexMasterActor");
     }
     
 }
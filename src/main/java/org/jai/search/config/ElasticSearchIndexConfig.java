@@ -1,24 +1,29 @@
 package org.jai.search.config;
 
 import org.apache.commons.lang.LocaleUtils;
+import org.elasticsearch.common.xcontent.XContentType;
 
 import java.util.Locale;
 
 public enum ElasticSearchIndexConfig
 {
-    COM_WEBSITE("com", IndexDocumentType.PRODUCT.getText(), SupportedLocale.ENGLISH),
-    NL_WEBSITE("nl", IndexDocumentType.PRODUCT.getText(), SupportedLocale.DUTCH);
+    COM_WEBSITE("com", IndexDocumentType.PRODUCT.getText(), SupportedLocale.ENGLISH, XContentType.SMILE),
+    NL_WEBSITE("nl", IndexDocumentType.PRODUCT.getText(), SupportedLocale.DUTCH, XContentType.SMILE);
     private String indexName;
 
     private String documentType;
 
     private SupportedLocale supportedLocale;
 
-    private ElasticSearchIndexConfig(final String indexName, final String documentType, final SupportedLocale supportedLocale)
+    private XContentType documentContentType;
+
+    private ElasticSearchIndexConfig(final String indexName, final String documentType, final SupportedLocale supportedLocale,
+            final XContentType documentContentType)
     {
         this.indexName = indexName;
         this.documentType = documentType;
         this.supportedLocale = supportedLocale;
+        this.documentContentType = documentContentType;
     }
 
     public String getIndexAliasName()
@@ -36,6 +41,14 @@ public enum ElasticSearchIndexConfig
         return supportedLocale;
     }
 
+    /**
+     * Content type the documents are sent to elasticsearch in, JSON or the binary SMILE format which is smaller and cheaper to parse.
+     */
+    public XContentType getDocumentContentType()
+    {
+        return documentContentType;
+    }
+
     public static enum SupportedLocale
     {
         ENGLISH("en_EN", "English"),
@@ -0,0 +1,255 @@
+package org.jai.search.config;
+
+import com.typesafe.config.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Indexing pipeline settings, read from the "indexing" section of the actor system configuration.
+ */
+public class IndexingSettings
+{
+    private final boolean bulkEnabled;
+
+    private final int bulkActions;
+
+    private final long bulkSizeInBytes;
+
+    private final FiniteDuration bulkFlushInterval;
+
+    private final boolean adaptiveBulkEnabled;
+
+    private final FiniteDuration adaptiveBulkTargetLatency;
+
+    private final int adaptiveBulkMinInFlightRequests;
+
+    private final int adaptiveBulkMaxInFlightRequests;
+
+    private final int adaptiveBulkMinActions;
+
+    private final int adaptiveBulkActionsIncrement;
+
+    private final double adaptiveBulkDecreaseFactor;
+
+    private final boolean asyncEnabled;
+
+    private final int maxInFlightRequests;
+
+    private final int maxOutstandingDocuments;
+
+    private final int demandBatchSize;
+
+    private final int rangeSize;
+
+    private final FiniteDuration rebuildTimeout;
+
+    private final boolean checkpointEnabled;
+
+    private final String checkpointDirectory;
+
+    private final int maxRetries;
+
+    private final FiniteDuration retryInitialBackoff;
+
+    private final FiniteDuration retryMaxBackoff;
+
+    private final boolean deadLetterEnabled;
+
+    private final String deadLetterDirectory;
+
+    private final boolean metricsEnabled;
+
+    private final boolean metricsJmxEnabled;
+
+    private final boolean metricsFileEnabled;
+
+    private final String metricsDirectory;
+
+    private final FiniteDuration metricsReportInterval;
+
+    public IndexingSettings(final Config config)
+    {
+        final Config indexingConfig = config.getConfig("indexing");
+        bulkEnabled = indexingConfig.getBoolean("bulk.enabled");
+        bulkActions = indexingConfig.getInt("bulk.actions");
+        bulkSizeInBytes = indexingConfig.getBytes("bulk.size-in-bytes");
+        bulkFlushInterval = Duration.create(indexingConfig.getDuration("bulk.flush-interval", TimeUnit.MILLISECONDS),
+                TimeUnit.MILLISECONDS);
+        adaptiveBulkEnabled = indexingConfig.getBoolean("bulk.adaptive.enabled");
+        adaptiveBulkTargetLatency = Duration.create(indexingConfig.getDuration("bulk.adaptive.target-latency", TimeUnit.MILLISECONDS),
+                TimeUnit.MILLISECONDS);
+        adaptiveBulkMinInFlightRequests = indexingConfig.getInt("bulk.adaptive.min-in-flight-requests");
+        adaptiveBulkMaxInFlightRequests = indexingConfig.getInt("bulk.adaptive.max-in-flight-requests");
+        adaptiveBulkMinActions = indexingConfig.getInt("bulk.adaptive.min-actions");
+        adaptiveBulkActionsIncrement = indexingConfig.getInt("bulk.adaptive.actions-increment");
+        adaptiveBulkDecreaseFactor = indexingConfig.getDouble("bulk.adaptive.decrease-factor");
+        asyncEnabled = indexingConfig.getBoolean("async.enabled");
+        maxInFlightRequests = indexingConfig.getInt("async.max-in-flight-requests");
+        maxOutstandingDocuments = indexingConfig.getInt("generation.max-outstanding-documents");
+        demandBatchSize = indexingConfig.getInt("generation.demand-batch-size");
+        rangeSize = indexingConfig.getInt("generation.range-size");
+        rebuildTimeout = Duration.create(indexingConfig.getDuration("rebuild.timeout", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        checkpointEnabled = indexingConfig.getBoolean("checkpoint.enabled");
+        checkpointDirectory = indexingConfig.getString("checkpoint.directory");
+        maxRetries = indexingConfig.getInt("retry.max-retries");
+        retryInitialBackoff = Duration.create(indexingConfig.getDuration("retry.initial-backoff", TimeUnit.MILLISECONDS),
+                TimeUnit.MILLISECONDS);
+        retryMaxBackoff = Duration.create(indexingConfig.getDuration("retry.max-backoff", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        deadLetterEnabled = indexingConfig.getBoolean("dead-letter.enabled");
+        deadLetterDirectory = indexingConfig.getString("dead-letter.directory");
+        metricsEnabled = indexingConfig.getBoolean("metrics.enabled");
+        metricsJmxEnabled = indexingConfig.getBoolean("metrics.jmx");
+        metricsFileEnabled = indexingConfig.getBoolean("metrics.file");
+        metricsDirectory = indexingConfig.getString("metrics.directory");
+        metricsReportInterval = Duration.create(indexingConfig.getDuration("metrics.report-interval", TimeUnit.MILLISECONDS),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isBulkEnabled()
+    {
+        return bulkEnabled;
+    }
+
+    public int getBulkActions()
+    {
+        return bulkActions;
+    }
+
+    public long getBulkSizeInBytes()
+    {
+        return bulkSizeInBytes;
+    }
+
+    public FiniteDuration getBulkFlushInterval()
+    {
+        return bulkFlushInterval;
+    }
+
+    public boolean isAdaptiveBulkEnabled()
+    {
+        return adaptiveBulkEnabled;
+    }
+
+    public FiniteDuration getAdaptiveBulkTargetLatency()
+    {
+        return adaptiveBulkTargetLatency;
+    }
+
+    public int getAdaptiveBulkMinInFlightRequests()
+    {
+        return adaptiveBulkMinInFlightRequests;
+    }
+
+    public int getAdaptiveBulkMaxInFlightRequests()
+    {
+        return adaptiveBulkMaxInFlightRequests;
+    }
+
+    public int getAdaptiveBulkMinActions()
+    {
+        return adaptiveBulkMinActions;
+    }
+
+    public int getAdaptiveBulkActionsIncrement()
+    {
+        return adaptiveBulkActionsIncrement;
+    }
+
+    public double getAdaptiveBulkDecreaseFactor()
+    {
+        return adaptiveBulkDecreaseFactor;
+    }
+
+    public boolean isAsyncEnabled()
+    {
+        return asyncEnabled;
+    }
+
+    public int getMaxInFlightRequests()
+    {
+        return maxInFlightRequests;
+    }
+
+    public int getMaxOutstandingDocuments()
+    {
+        return maxOutstandingDocuments;
+    }
+
+    public int getDemandBatchSize()
+    {
+        return demandBatchSize;
+    }
+
+    public int getRangeSize()
+    {
+        return rangeSize;
+    }
+
+    public FiniteDuration getRebuildTimeout()
+    {
+        return rebuildTimeout;
+    }
+
+    public boolean isCheckpointEnabled()
+    {
+        return checkpointEnabled;
+    }
+
+    public String getCheckpointDirectory()
+    {
+        return checkpointDirectory;
+    }
+
+    public int getMaxRetries()
+    {
+        return maxRetries;
+    }
+
+    public FiniteDuration getRetryInitialBackoff()
+    {
+        return retryInitialBackoff;
+    }
+
+    public FiniteDuration getRetryMaxBackoff()
+    {
+        return retryMaxBackoff;
+    }
+
+    public boolean isDeadLetterEnabled()
+    {
+        return deadLetterEnabled;
+    }
+
+    public String getDeadLetterDirectory()
+    {
+        return deadLetterDirectory;
+    }
+
+    public boolean isMetricsEnabled()
+    {
+        return metricsEnabled;
+    }
+
+    public boolean isMetricsJmxEnabled()
+    {
+        return metricsJmxEnabled;
+    }
+
+    public boolean isMetricsFileEnabled()
+    {
+        return metricsFileEnabled;
+    }
+
+    public String getMetricsDirectory()
+    {
+        return metricsDirectory;
+    }
+
+    public FiniteDuration getMetricsReportInterval()
+    {
+        return metricsReportInterval;
+    }
+}
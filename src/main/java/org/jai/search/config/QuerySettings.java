@@ -0,0 +1,60 @@
+package org.jai.search.config;
+
+import com.typesafe.config.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Query settings, read from the "query" section of the actor system configuration.
+ */
+public class QuerySettings
+{
+    private final boolean multiSearchEnabled;
+
+    private final FiniteDuration multiSearchWindow;
+
+    private final int multiSearchMaxBatchSize;
+
+    private final int resultCacheMaxEntries;
+
+    private final FiniteDuration resultCacheTimeToLive;
+
+    public QuerySettings(final Config config)
+    {
+        final Config queryConfig = config.getConfig("query");
+        multiSearchEnabled = queryConfig.getBoolean("multi-search.enabled");
+        multiSearchWindow = Duration.create(queryConfig.getDuration("multi-search.window", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        multiSearchMaxBatchSize = queryConfig.getInt("multi-search.max-batch-size");
+        resultCacheMaxEntries = queryConfig.getInt("result-cache.max-entries");
+        resultCacheTimeToLive = Duration.create(queryConfig.getDuration("result-cache.time-to-live", TimeUnit.MILLISECONDS),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isMultiSearchEnabled()
+    {
+        return multiSearchEnabled;
+    }
+
+    public FiniteDuration getMultiSearchWindow()
+    {
+        return multiSearchWindow;
+    }
+
+    public int getMultiSearchMaxBatchSize()
+    {
+        return multiSearchMaxBatchSize;
+    }
+
+    public int getResultCacheMaxEntries()
+    {
+        return resultCacheMaxEntries;
+    }
+
+    public FiniteDuration getResultCacheTimeToLive()
+    {
+        return resultCacheTimeToLive;
+    }
+}
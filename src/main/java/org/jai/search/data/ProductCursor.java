@@ -0,0 +1,18 @@
+package org.jai.search.data;
+
+import org.jai.search.model.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Forward only cursor over a {@link ProductSource}.
+ */
+public interface ProductCursor extends Closeable
+{
+    /**
+     * Next page of at most maxProducts products, empty once the source is exhausted.
+     */
+    List<Product> nextPage(int maxProducts) throws IOException;
+}
@@ -0,0 +1,25 @@
+package org.jai.search.data;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Streaming source of the products to index. Products are read lazily through a {@link ProductCursor}, so catalogs larger than the
+ * heap can be indexed.
+ */
+public interface ProductSource
+{
+    /**
+     * Estimated number of products in the source, -1 if not known. Only used for progress reporting, the exact count is known once the
+     * cursor is exhausted.
+     */
+    long estimateCount();
+
+    ProductCursor openCursor() throws IOException;
+
+    /**
+     * Cursor over the products modified after the given date, used for incremental updates. Products without a last modified date are
+     * only indexed by a full rebuild.
+     */
+    ProductCursor openCursor(Date modifiedSince) throws IOException;
+}
@@ -0,0 +1,48 @@
+package org.jai.search.data.impl;
+
+import org.jai.search.model.Category;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns categories read from a product source, every category of the tree is created once with its hierarchy precomputed and is
+ * shared by all products referring to it.
+ */
+public class CategoryRegistry
+{
+    private static final char PATH_SEPARATOR = '/';
+
+    private final ConcurrentMap<String, Category> categories = new ConcurrentHashMap<String, Category>();
+
+    public Category getCategory(final String name, final Category parent, final String type)
+    {
+        final String key = getKey(name, parent, type);
+        final Category category = categories.get(key);
+        if (category != null)
+        {
+            return category;
+        }
+        final Category newCategory = new Category(name, parent, type);
+        final Category existingCategory = categories.putIfAbsent(key, newCategory);
+        return existingCategory != null ? existingCategory : newCategory;
+    }
+
+    public int size()
+    {
+        return categories.size();
+    }
+
+    private String getKey(final String name, final Category parent, final String type)
+    {
+        final StringBuilder key = new StringBuilder(type);
+        if (parent != null)
+        {
+            for (int level = 1; level <= parent.getLevel(); level++)
+            {
+                key.append(PATH_SEPARATOR).append(parent.getCategoryAtLevel(level).getName());
+            }
+        }
+        return key.append(PATH_SEPARATOR).append(name).toString();
+    }
+}
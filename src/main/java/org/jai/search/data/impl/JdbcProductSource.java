@@ -0,0 +1,226 @@
+package org.jai.search.data.impl;
+
+import org.jai.search.data.ProductCursor;
+import org.jai.search.data.ProductSource;
+import org.jai.search.model.Product;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * Product source streaming products through a forward only JDBC cursor. The select query has to return the columns id, title,
+ * description, price, keywords (comma separated), available_on, sold_out and boost_factor, optionally last_modified. Categories and
+ * specifications are not read. Incremental updates need a modified since query, returning the same columns for the products modified
+ * after its single timestamp parameter.
+ */
+public class JdbcProductSource implements ProductSource
+{
+    private static final Logger logger = LoggerFactory.getLogger(JdbcProductSource.class);
+
+    private static final String LAST_MODIFIED_COLUMN = "last_modified";
+
+    private final DataSource dataSource;
+
+    private final String countQuery;
+
+    private final String selectQuery;
+
+    private final String modifiedSinceQuery;
+
+    private final int fetchSize;
+
+    public JdbcProductSource(final DataSource dataSource, final String countQuery, final String selectQuery, final int fetchSize)
+    {
+        this(dataSource, countQuery, selectQuery, null, fetchSize);
+    }
+
+    public JdbcProductSource(final DataSource dataSource, final String countQuery, final String selectQuery,
+            final String modifiedSinceQuery, final int fetchSize)
+    {
+        this.dataSource = dataSource;
+        this.countQuery = countQuery;
+        this.selectQuery = selectQuery;
+        this.modifiedSinceQuery = modifiedSinceQuery;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public long estimateCount()
+    {
+        try
+        {
+            final Connection connection = dataSource.getConnection();
+            try
+            {
+                final Statement statement = connection.createStatement();
+                try
+                {
+                    final ResultSet resultSet = statement.executeQuery(countQuery);
+                    try
+                    {
+                        return resultSet.next() ? resultSet.getLong(1) : -1;
+                    }
+                    finally
+                    {
+                        resultSet.close();
+                    }
+                }
+                finally
+                {
+                    statement.close();
+                }
+            }
+            finally
+            {
+                connection.close();
+            }
+        }
+        catch (final SQLException ex)
+        {
+            logger.error("Error occurred while estimating product count using query: " + countQuery, ex);
+            return -1;
+        }
+    }
+
+    @Override
+    public ProductCursor openCursor() throws IOException
+    {
+        return openCursor(selectQuery, null);
+    }
+
+    @Override
+    public ProductCursor openCursor(final Date modifiedSince) throws IOException
+    {
+        if (modifiedSinceQuery == null)
+        {
+            throw new IOException("No modified since query configured, incremental updates are not supported!");
+        }
+        return openCursor(modifiedSinceQuery, modifiedSince);
+    }
+
+    private ProductCursor openCursor(final String query, final Date modifiedSince) throws IOException
+    {
+        final Connection connection;
+        try
+        {
+            connection = dataSource.getConnection();
+        }
+        catch (final SQLException ex)
+        {
+            throw new IOException("Error occurred while opening product cursor using query: " + query, ex);
+        }
+        try
+        {
+            // Some drivers, e.g. postgres, only stream the result set with auto commit off.
+            connection.setAutoCommit(false);
+            final PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            if (modifiedSince != null)
+            {
+                statement.setTimestamp(1, new Timestamp(modifiedSince.getTime()));
+            }
+            final ResultSet resultSet = statement.executeQuery();
+            final boolean hasLastModified = hasColumn(resultSet, LAST_MODIFIED_COLUMN);
+            return new ProductCursor()
+            {
+                @Override
+                public List<Product> nextPage(final int maxProducts) throws IOException
+                {
+                    final List<Product> page = new ArrayList<Product>(maxProducts);
+                    try
+                    {
+                        while (page.size() < maxProducts && resultSet.next())
+                        {
+                            page.add(toProduct(resultSet, hasLastModified));
+                        }
+                    }
+                    catch (final SQLException ex)
+                    {
+                        throw new IOException("Error occurred while reading products using query: " + query, ex);
+                    }
+                    return page;
+                }
+
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        connection.rollback();
+                        connection.close();
+                    }
+                    catch (final SQLException ex)
+                    {
+                        throw new IOException(ex);
+                    }
+                }
+            };
+        }
+        catch (final SQLException ex)
+        {
+            try
+            {
+                connection.close();
+            }
+            catch (final SQLException closeEx)
+            {
+                logger.error("Error occurred while closing connection!", closeEx);
+            }
+            throw new IOException("Error occurred while opening product cursor using query: " + query, ex);
+        }
+    }
+
+    private boolean hasColumn(final ResultSet resultSet, final String columnName) throws SQLException
+    {
+        final ResultSetMetaData metaData = resultSet.getMetaData();
+        for (int column = 1; column <= metaData.getColumnCount(); column++)
+        {
+            if (columnName.equalsIgnoreCase(metaData.getColumnLabel(column)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Product toProduct(final ResultSet resultSet, final boolean hasLastModified) throws SQLException
+    {
+        final Product product = new Product();
+        product.setId(resultSet.getLong("id"));
+        product.setTitle(resultSet.getString("title"));
+        product.setDescription(resultSet.getString("description"));
+        product.setPrice(resultSet.getBigDecimal("price"));
+        final String keywords = resultSet.getString("keywords");
+        if (StringUtils.isNotBlank(keywords))
+        {
+            for (final String keyword : StringUtils.split(keywords, ','))
+            {
+                product.addKeyword(keyword.trim());
+            }
+        }
+        product.setAvailableOn(resultSet.getTimestamp("available_on"));
+        product.setSoldOut(resultSet.getBoolean("sold_out"));
+        product.setBoostFactor(resultSet.getFloat("boost_factor"));
+        if (hasLastModified)
+        {
+            product.setLastModified(resultSet.getTimestamp(LAST_MODIFIED_COLUMN));
+        }
+        return product;
+    }
+}
@@ -0,0 +1,197 @@
+package org.jai.search.data.impl;
+
+import org.jai.search.data.ProductCursor;
+import org.jai.search.data.ProductSource;
+import org.jai.search.model.Category;
+import org.jai.search.model.Product;
+import org.jai.search.model.Specification;
+import org.jai.search.util.SearchDateUtils;
+
+import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product source reading a file with one product JSON object per line, e.g.
+ *
+ * <pre>
+ * {"id":1,"title":"Title 1","description":"Description1","price":1,"keywords":["Keyword 1"],"availableOn":"2014-05-01T10:00:00+0000",
+ *  "lastModified":"2014-05-02T08:30:00+0000",
+ *  "soldOut":false,"boostFactor":0.0001,"categories":[{"name":"Macbook Air","type":"Computer","parent":{"name":"Macbook","type":"Computer"}}],
+ *  "specifications":[{"resolution":"3200 x 1800","memory":"8 GB"}]}
+ * </pre>
+ */
+public class JsonLinesProductSource implements ProductSource
+{
+    private static final Logger logger = LoggerFactory.getLogger(JsonLinesProductSource.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int ESTIMATE_SAMPLE_LINES = 100;
+
+    private final File file;
+
+    private final CategoryRegistry categoryRegistry = new CategoryRegistry();
+
+    public JsonLinesProductSource(final File file)
+    {
+        this.file = file;
+    }
+
+    @Override
+    public long estimateCount()
+    {
+        // Estimate using the average size of the first lines.
+        try
+        {
+            final BufferedReader reader = openReader();
+            try
+            {
+                long sampledBytes = 0;
+                int sampledLines = 0;
+                String line;
+                while (sampledLines < ESTIMATE_SAMPLE_LINES && (line = reader.readLine()) != null)
+                {
+                    sampledBytes += line.getBytes(UTF_8).length + 1;
+                    sampledLines++;
+                }
+                if (sampledLines < ESTIMATE_SAMPLE_LINES)
+                {
+                    return sampledLines;
+                }
+                return file.length() * sampledLines / sampledBytes;
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (final IOException ex)
+        {
+            logger.error("Error occurred while estimating product count for file: " + file, ex);
+            return -1;
+        }
+    }
+
+    @Override
+    public ProductCursor openCursor() throws IOException
+    {
+        return openCursor(null);
+    }
+
+    @Override
+    public ProductCursor openCursor(final Date modifiedSince) throws IOException
+    {
+        final BufferedReader reader = openReader();
+        return new ProductCursor()
+        {
+            @Override
+            public List<Product> nextPage(final int maxProducts) throws IOException
+            {
+                final List<Product> page = new ArrayList<Product>(maxProducts);
+                String line;
+                while (page.size() < maxProducts && (line = reader.readLine()) != null)
+                {
+                    if (StringUtils.isNotBlank(line))
+                    {
+                        final Product product = toProduct(JsonXContent.jsonXContent.createParser(line).mapAndClose());
+                        if (isModifiedSince(product, modifiedSince))
+                        {
+                            page.add(product);
+                        }
+                    }
+                }
+                return page;
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                reader.close();
+            }
+        };
+    }
+
+    private boolean isModifiedSince(final Product product, final Date modifiedSince)
+    {
+        return modifiedSince == null || product.getLastModified() != null && product.getLastModified().after(modifiedSince);
+    }
+
+    private BufferedReader openReader() throws IOException
+    {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Product toProduct(final Map<String, Object> source)
+    {
+        final Product product = new Product();
+        product.setId(((Number) source.get("id")).longValue());
+        product.setTitle((String) source.get("title"));
+        product.setDescription((String) source.get("description"));
+        if (source.get("price") != null)
+        {
+            product.setPrice(new BigDecimal(source.get("price").toString()));
+        }
+        if (source.get("keywords") != null)
+        {
+            for (final Object keyword : (List<Object>) source.get("keywords"))
+            {
+                product.addKeyword(String.valueOf(keyword));
+            }
+        }
+        if (source.get("availableOn") != null)
+        {
+            product.setAvailableOn(SearchDateUtils.getFormattedDate((String) source.get("availableOn")));
+        }
+        if (source.get("lastModified") != null)
+        {
+            product.setLastModified(SearchDateUtils.getFormattedDate((String) source.get("lastModified")));
+        }
+        if (source.get("soldOut") != null)
+        {
+            product.setSoldOut((Boolean) source.get("soldOut"));
+        }
+        if (source.get("boostFactor") != null)
+        {
+            product.setBoostFactor(((Number) source.get("boostFactor")).floatValue());
+        }
+        if (source.get("categories") != null)
+        {
+            for (final Object category : (List<Object>) source.get("categories"))
+            {
+                product.addCategory(toCategory((Map<String, Object>) category));
+            }
+        }
+        if (source.get("specifications") != null)
+        {
+            for (final Object specification : (List<Object>) source.get("specifications"))
+            {
+                final Map<String, Object> specificationMap = (Map<String, Object>) specification;
+                product.addSpecification(new Specification((String) specificationMap.get("resolution"), (String) specificationMap
+                        .get("memory")));
+            }
+        }
+        return product;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Category toCategory(final Map<String, Object> source)
+    {
+        final Category parent = source.get("parent") != null ? toCategory((Map<String, Object>) source.get("parent")) : null;
+        return categoryRegistry.getCategory((String) source.get("name"), parent, (String) source.get("type"));
+    }
+}
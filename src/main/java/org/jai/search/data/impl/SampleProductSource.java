@@ -0,0 +1,76 @@
+package org.jai.search.data.impl;
+
+import org.jai.search.data.ProductCursor;
+import org.jai.search.data.ProductSource;
+import org.jai.search.data.SampleDataGeneratorService;
+import org.jai.search.model.Product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Default product source, streams the sample products.
+ */
+@Service
+public class SampleProductSource implements ProductSource
+{
+    @Autowired
+    private SampleDataGeneratorService sampleDataGeneratorService;
+
+    @Override
+    public long estimateCount()
+    {
+        return sampleDataGeneratorService.generateProductsSampleData().size();
+    }
+
+    @Override
+    public ProductCursor openCursor()
+    {
+        return newCursor(sampleDataGeneratorService.generateProductsSampleData());
+    }
+
+    @Override
+    public ProductCursor openCursor(final Date modifiedSince)
+    {
+        final List<Product> products = new ArrayList<Product>();
+        for (final Product product : sampleDataGeneratorService.generateProductsSampleData())
+        {
+            if (product.getLastModified() != null && product.getLastModified().after(modifiedSince))
+            {
+                products.add(product);
+            }
+        }
+        return newCursor(products);
+    }
+
+    private ProductCursor newCursor(final List<Product> products)
+    {
+        return new ProductCursor()
+        {
+            private int position = 0;
+
+            @Override
+            public List<Product> nextPage(final int maxProducts)
+            {
+                final int end = Math.min(position + maxProducts, products.size());
+                final List<Product> page = new ArrayList<Product>(products.subList(position, end));
+                position = end;
+                return page;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+    }
+
+    public void setSampleDataGeneratorService(final SampleDataGeneratorService sampleDataGeneratorService)
+    {
+        this.sampleDataGeneratorService = sampleDataGeneratorService;
+    }
+}
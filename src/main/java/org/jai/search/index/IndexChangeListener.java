@@ -0,0 +1,23 @@
+package org.jai.search.index;
+
+import org.jai.search.model.Product;
+
+import java.util.List;
+
+/**
+ * Notified by the {@link IndexProductDataService} of the products indexed by the indexing pipeline and of changes to the documents of an
+ * index or alias made outside of a rebuild, e.g. an incremental update, a delete or a file import into the live alias. Spring beans
+ * implementing it are registered automatically.
+ */
+public interface IndexChangeListener
+{
+    /**
+     * Products indexed successfully into the index or alias, reported once their index or bulk response is in.
+     */
+    void productsIndexed(String indexName, List<Product> products);
+
+    /**
+     * Documents of the index or alias were written or deleted.
+     */
+    void indexChanged(String indexName);
+}
@@ -5,6 +5,13 @@ import org.jai.search.model.Product;
 import org.jai.search.model.ProductGroup;
 import org.jai.search.model.ProductProperty;
 
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 public interface IndexProductDataService
@@ -20,4 +27,47 @@ public interface IndexProductDataService
     void deleteProduct(ElasticSearchIndexConfig config, Long productId);
 
     void indexProductGroup(ElasticSearchIndexConfig config, String indexName, ProductGroup productGroup);
+
+    BulkRequestBuilder prepareBulkRequest();
+
+    void addProductToBulkRequest(BulkRequestBuilder bulkRequestBuilder, ElasticSearchIndexConfig config, String indexName, Product product);
+
+    void addProductPropertyToBulkRequest(BulkRequestBuilder bulkRequestBuilder, ElasticSearchIndexConfig config, String indexName,
+            ProductProperty productProperty);
+
+    void addProductGroupToBulkRequest(BulkRequestBuilder bulkRequestBuilder, ElasticSearchIndexConfig config, String indexName,
+            ProductGroup productGroup);
+
+    BulkResponse executeBulkRequest(BulkRequestBuilder bulkRequestBuilder);
+
+    void indexProduct(ElasticSearchIndexConfig config, String indexName, Product product, ActionListener<IndexResponse> listener);
+
+    void indexProductPropterty(ElasticSearchIndexConfig config, String indexName, ProductProperty productProperty,
+            ActionListener<IndexResponse> listener);
+
+    void indexProductGroup(ElasticSearchIndexConfig config, String indexName, ProductGroup productGroup,
+            ActionListener<IndexResponse> listener);
+
+    void executeBulkRequest(BulkRequestBuilder bulkRequestBuilder, ActionListener<BulkResponse> listener);
+
+    /**
+     * Bulk loads a dump in the bulk API format, each index/create/update action line followed by its source line, delete action lines
+     * without one, blank lines are skipped. The file is memory mapped and sent as raw byte slices of about bulkSizeInBytes, cut between
+     * items only, actions without index or type use the given index name and the config document type. Returns the number of documents
+     * indexed successfully, fails with an IOException on a malformed or unknown action line.
+     */
+    long indexFromFile(ElasticSearchIndexConfig config, String indexName, File file, long bulkSizeInBytes) throws IOException;
+
+    /**
+     * Reports the products indexed successfully into the index, or into the config alias if none given, to the
+     * {@link IndexChangeListener}s. Called by the indexing pipeline once the index or bulk responses are in.
+     */
+    void productsIndexed(ElasticSearchIndexConfig config, String indexName, List<Product> products);
+
+    /**
+     * Reports to the {@link IndexChangeListener}s that documents of the index, or of the config alias if none given, were changed outside
+     * of a rebuild, e.g. once an incremental update into the alias is done. Deletes, file imports and bulk loads into the alias are
+     * reported by this service itself.
+     */
+    void indexChanged(ElasticSearchIndexConfig config, String indexName);
 }
@@ -1,46 +1,57 @@
 package org.jai.search.index.impl;
 
-import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
-
 import org.jai.search.client.SearchClientService;
 import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.index.IndexChangeListener;
 import org.jai.search.index.IndexProductDataService;
-import org.jai.search.model.Category;
 import org.jai.search.model.Product;
 import org.jai.search.model.ProductGroup;
 import org.jai.search.model.ProductProperty;
-import org.jai.search.model.SearchDocumentFieldName;
-import org.jai.search.model.SearchFacetName;
-import org.jai.search.model.Specification;
-import org.jai.search.util.SearchDateUtils;
 
 import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
-import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.bytes.ByteBufferBytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 @Service
 public class IndexProductDataServiceImpl implements IndexProductDataService
 {
     private static final Logger logger = LoggerFactory.getLogger(IndexProductDataServiceImpl.class);
 
+    // Largest part of the dump file mapped at a time.
+    private static final int MAX_MAPPED_FILE_WINDOW = 512 * 1024 * 1024;
+
     @Autowired
     private SearchClientService searchClientService;
 
+    @Autowired(required = false)
+    private List<IndexChangeListener> indexChangeListeners = Collections.emptyList();
+
+    private final ProductDocumentEncoder productDocumentEncoder = new ProductDocumentEncoder();
+
     @Override
     public void indexAllProducts(final ElasticSearchIndexConfig config, final List<Product> products)
     {
@@ -54,7 +65,7 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
         {
             try
             {
-                requests.add(getIndexRequestBuilderForAProduct(product, config.getIndexAliasName(), config.getDocumentType()));
+                requests.add(getIndexRequestBuilderForAProduct(product, config, config.getIndexAliasName(), config.getDocumentType()));
             }
             catch (final Exception ex)
             {
@@ -63,6 +74,7 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
             }
         }
         processBulkRequests(requests);
+        indexChanged(config, null);
     }
 
     @Override
@@ -75,7 +87,11 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
         }
         try
         {
-            getIndexRequestBuilderForAProduct(product, indexNameUsed, config.getDocumentType()).get();
+            getIndexRequestBuilderForAProduct(product, config, indexNameUsed, config.getDocumentType()).get();
+        }
+        catch (final VersionConflictEngineException ex)
+        {
+            logger.debug("Newer version of product {} already indexed, ignoring update: {}", product.getId(), ex.getMessage());
         }
         catch (final Exception ex)
         {
@@ -124,6 +140,293 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
         }
     }
 
+    @Override
+    public BulkRequestBuilder prepareBulkRequest()
+    {
+        return searchClientService.getClient().prepareBulk();
+    }
+
+    @Override
+    public void addProductToBulkRequest(final BulkRequestBuilder bulkRequestBuilder, final ElasticSearchIndexConfig config,
+            final String indexName, final Product product)
+    {
+        try
+        {
+            bulkRequestBuilder.add(getIndexRequestBuilderForAProduct(product, config, getIndexNameUsed(config, indexName),
+                    config.getDocumentType()));
+        }
+        catch (final Exception ex)
+        {
+            logger.error("Error occurred while creating bulk index document for product.", ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void addProductPropertyToBulkRequest(final BulkRequestBuilder bulkRequestBuilder, final ElasticSearchIndexConfig config,
+            final String indexName, final ProductProperty productProperty)
+    {
+        try
+        {
+            // To parent-child for now.
+            bulkRequestBuilder.add(getIndexRequestBuilderForAProductProperty(null, productProperty, config,
+                    getIndexNameUsed(config, indexName)));
+        }
+        catch (final Exception ex)
+        {
+            logger.error("Error occurred while creating bulk index document for product property.", ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void addProductGroupToBulkRequest(final BulkRequestBuilder bulkRequestBuilder, final ElasticSearchIndexConfig config,
+            final String indexName, final ProductGroup productGroup)
+    {
+        try
+        {
+            // To parent-child for now.
+            bulkRequestBuilder.add(getIndexRequestBuilderForAProductGroup(productGroup, config, getIndexNameUsed(config, indexName)));
+        }
+        catch (final Exception ex)
+        {
+            logger.error("Error occurred while creating bulk index document for product group.", ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public BulkResponse executeBulkRequest(final BulkRequestBuilder bulkRequestBuilder)
+    {
+        logger.debug("Executing bulk index request for size:" + bulkRequestBuilder.numberOfActions());
+        final BulkResponse bulkResponse = bulkRequestBuilder.execute().actionGet();
+        logger.debug("Bulk operation data index response total items is:" + bulkResponse.getItems().length);
+        if (bulkResponse.hasFailures())
+        {
+            // process failures by iterating through each bulk response item
+            logger.error("bulk operation indexing has failures:" + bulkResponse.buildFailureMessage());
+        }
+        return bulkResponse;
+    }
+
+    @Override
+    public void indexProduct(final ElasticSearchIndexConfig config, final String indexName, final Product product,
+            final ActionListener<IndexResponse> listener)
+    {
+        final IndexRequestBuilder indexRequestBuilder;
+        try
+        {
+            indexRequestBuilder = getIndexRequestBuilderForAProduct(product, config, getIndexNameUsed(config, indexName),
+                    config.getDocumentType());
+        }
+        catch (final Exception ex)
+        {
+            logger.error("Error occurred while creating index document for product.", ex);
+            throw new RuntimeException(ex);
+        }
+        indexRequestBuilder.execute(listener);
+    }
+
+    @Override
+    public void indexProductPropterty(final ElasticSearchIndexConfig config, final String indexName, final ProductProperty productProperty,
+            final ActionListener<IndexResponse> listener)
+    {
+        final IndexRequestBuilder indexRequestBuilder;
+        try
+        {
+            // To parent-child for now.
+            indexRequestBuilder = getIndexRequestBuilderForAProductProperty(null, productProperty, config,
+                    getIndexNameUsed(config, indexName));
+        }
+        catch (final Exception ex)
+        {
+            logger.error("Error occurred while creating index document for product.", ex);
+            throw new RuntimeException(ex);
+        }
+        indexRequestBuilder.execute(listener);
+    }
+
+    @Override
+    public void indexProductGroup(final ElasticSearchIndexConfig config, final String indexName, final ProductGroup productGroup,
+            final ActionListener<IndexResponse> listener)
+    {
+        final IndexRequestBuilder indexRequestBuilder;
+        try
+        {
+            // To parent-child for now.
+            indexRequestBuilder = getIndexRequestBuilderForAProductGroup(productGroup, config, getIndexNameUsed(config, indexName));
+        }
+        catch (final Exception ex)
+        {
+            logger.error("Error occurred while creating index document for product.", ex);
+            throw new RuntimeException(ex);
+        }
+        indexRequestBuilder.execute(listener);
+    }
+
+    @Override
+    public void executeBulkRequest(final BulkRequestBuilder bulkRequestBuilder, final ActionListener<BulkResponse> listener)
+    {
+        logger.debug("Executing async bulk index request for size:" + bulkRequestBuilder.numberOfActions());
+        bulkRequestBuilder.execute(listener);
+    }
+
+    @Override
+    public long indexFromFile(final ElasticSearchIndexConfig config, final String indexName, final File file, final long bulkSizeInBytes)
+            throws IOException
+    {
+        final String indexNameUsed = getIndexNameUsed(config, indexName);
+        logger.debug("Indexing bulk data from file: {}, into index: {}", new Object[] { file, indexNameUsed });
+        long documentsIndexed = 0;
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize)
+            {
+                final int windowSize = (int) Math.min(MAX_MAPPED_FILE_WINDOW, fileSize - position);
+                final boolean lastWindow = position + windowSize == fileSize;
+                final MappedByteBuffer window = channel.map(MapMode.READ_ONLY, position, windowSize);
+                int sliceStart = 0;
+                int lastItemEnd = 0;
+                int lineStart = 0;
+                boolean sourceLineExpected = false;
+                for (int i = 0; i < windowSize; i++)
+                {
+                    if (window.get(i) != '\n')
+                    {
+                        continue;
+                    }
+                    // Only cut after a complete item, an action line followed by its source line unless it is a delete.
+                    final boolean itemEnd = sourceLineExpected || !isBulkActionWithSource(window, lineStart, i, file, position);
+                    sourceLineExpected = !itemEnd;
+                    lineStart = i + 1;
+                    if (itemEnd)
+                    {
+                        lastItemEnd = i + 1;
+                        if (lastItemEnd - sliceStart >= bulkSizeInBytes)
+                        {
+                            documentsIndexed += indexFileSlice(window, sliceStart, lastItemEnd, indexNameUsed, config.getDocumentType());
+                            sliceStart = lastItemEnd;
+                        }
+                    }
+                }
+                // Rest of the last window may miss the trailing new line, rest of other windows continues in the next window.
+                final int sliceEnd = lastWindow ? windowSize : lastItemEnd;
+                if (sliceEnd > sliceStart)
+                {
+                    documentsIndexed += indexFileSlice(window, sliceStart, sliceEnd, indexNameUsed, config.getDocumentType());
+                }
+                if (!lastWindow && lastItemEnd == 0)
+                {
+                    throw new IOException("Bulk action in file " + file + " at position " + position + " is larger than "
+                            + MAX_MAPPED_FILE_WINDOW + " bytes!");
+                }
+                position += sliceEnd;
+            }
+        }
+        finally
+        {
+            randomAccessFile.close();
+            // Also after a failure, slices before it are indexed.
+            indexChanged(config, indexNameUsed);
+        }
+        logger.debug("Indexed {} documents from file: {}", new Object[] { documentsIndexed, file });
+        return documentsIndexed;
+    }
+
+    /**
+     * Reads the action of a bulk action line the way the bulk request parses it, blank lines are skipped and only deletes come without
+     * a source line.
+     */
+    private boolean isBulkActionWithSource(final MappedByteBuffer window, final int lineStart, final int lineEnd, final File file,
+            final long windowPosition) throws IOException
+    {
+        if (isBlank(window, lineStart, lineEnd))
+        {
+            return false;
+        }
+        final ByteBuffer line = window.duplicate();
+        line.position(lineStart);
+        line.limit(lineEnd);
+        String action = null;
+        XContentParser parser = null;
+        try
+        {
+            parser = XContentHelper.createParser(new ByteBufferBytesReference(line.slice()));
+            if (parser.nextToken() == XContentParser.Token.START_OBJECT && parser.nextToken() == XContentParser.Token.FIELD_NAME)
+            {
+                action = parser.currentName();
+            }
+        }
+        catch (final Exception ex)
+        {
+            throw new IOException("Malformed bulk action line in file " + file + " at position " + (windowPosition + lineStart) + "!", ex);
+        }
+        finally
+        {
+            if (parser != null)
+            {
+                parser.close();
+            }
+        }
+        if ("delete".equals(action))
+        {
+            return false;
+        }
+        if ("index".equals(action) || "create".equals(action) || "update".equals(action))
+        {
+            return true;
+        }
+        throw new IOException("Unknown bulk action " + action + " in file " + file + " at position " + (windowPosition + lineStart) + "!");
+    }
+
+    private boolean isBlank(final MappedByteBuffer window, final int start, final int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (!Character.isWhitespace(window.get(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long indexFileSlice(final MappedByteBuffer window, final int sliceStart, final int sliceEnd, final String indexName,
+            final String documentType) throws IOException
+    {
+        if (isBlank(window, sliceStart, sliceEnd))
+        {
+            // Blank lines only, the bulk request can not tell their content type.
+            return 0;
+        }
+        final ByteBuffer slice = window.duplicate();
+        slice.position(sliceStart);
+        slice.limit(sliceEnd);
+        final BulkRequestBuilder bulkRequestBuilder = prepareBulkRequest();
+        try
+        {
+            // Documents reference the mapped bytes, no copy of the source.
+            bulkRequestBuilder.request().add(new ByteBufferBytesReference(slice.slice()), false, indexName, documentType);
+        }
+        catch (final Exception ex)
+        {
+            throw new IOException("Error occurred while parsing bulk data from file!", ex);
+        }
+        long documentsIndexed = 0;
+        for (final BulkItemResponse bulkItemResponse : executeBulkRequest(bulkRequestBuilder).getItems())
+        {
+            if (!bulkItemResponse.isFailed() && !"delete".equals(bulkItemResponse.getOpType()))
+            {
+                documentsIndexed++;
+            }
+        }
+        return documentsIndexed;
+    }
+
     @Override
     public boolean isProductExists(final ElasticSearchIndexConfig config, final Long productId)
     {
@@ -136,6 +439,31 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
     {
         searchClientService.getClient().prepareDelete(config.getIndexAliasName(), config.getDocumentType(), String.valueOf(productId))
                 .get();
+        indexChanged(config, null);
+    }
+
+    @Override
+    public void productsIndexed(final ElasticSearchIndexConfig config, final String indexName, final List<Product> products)
+    {
+        if (products.isEmpty())
+        {
+            return;
+        }
+        final String indexNameUsed = getIndexNameUsed(config, indexName);
+        for (final IndexChangeListener indexChangeListener : indexChangeListeners)
+        {
+            indexChangeListener.productsIndexed(indexNameUsed, products);
+        }
+    }
+
+    @Override
+    public void indexChanged(final ElasticSearchIndexConfig config, final String indexName)
+    {
+        final String indexNameUsed = getIndexNameUsed(config, indexName);
+        for (final IndexChangeListener indexChangeListener : indexChangeListeners)
+        {
+            indexChangeListener.indexChanged(indexNameUsed);
+        }
     }
 
     public void indexAllProductGroupData(final ElasticSearchIndexConfig config, final List<ProductGroup> productGroups,
@@ -150,7 +478,7 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
                 // Index all products data also with parent
                 for (final Product product : productGroup.getProducts())
                 {
-                    final IndexRequestBuilder indexRequestBuilderForAProduct = getIndexRequestBuilderForAProduct(product,
+                    final IndexRequestBuilder indexRequestBuilderForAProduct = getIndexRequestBuilderForAProduct(product, config,
                             config.getIndexAliasName(), config.getDocumentType());
                     if (parentRelationShip)
                     {
@@ -178,192 +506,73 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
             // processBulkRequestsUsingAkka(requests);
             // requests.clear();
         }
+        indexChanged(config, null);
     }
 
-    private IndexRequestBuilder getIndexRequestBuilderForAProduct(final Product product, final String indexName, final String documentType)
-            throws IOException
+    private String getIndexNameUsed(final ElasticSearchIndexConfig config, final String indexName)
     {
-        final XContentBuilder contentBuilder = getXContentBuilderForAProduct(product);
+        if (StringUtils.isBlank(indexName))
+        {
+            return config.getIndexAliasName();
+        }
+        return indexName;
+    }
+
+    private IndexRequestBuilder getIndexRequestBuilderForAProduct(final Product product, final ElasticSearchIndexConfig config,
+            final String indexName, final String documentType) throws IOException
+    {
+        final byte[] source = productDocumentEncoder.encodeProduct(product, config.getDocumentContentType());
+        logDocumentSource(product.getId(), source);
         final IndexRequestBuilder indexRequestBuilder = searchClientService.getClient().prepareIndex(indexName, documentType,
                 String.valueOf(product.getId()));
-        indexRequestBuilder.setSource(contentBuilder);
+        indexRequestBuilder.setSource(source);
+        if (product.getLastModified() != null)
+        {
+            // Last modified time as external version, an older update can never overwrite a newer one.
+            indexRequestBuilder.setVersion(product.getLastModified().getTime()).setVersionType(VersionType.EXTERNAL);
+        }
         return indexRequestBuilder;
     }
 
     private IndexRequestBuilder getIndexRequestBuilderForAProductProperty(final Product product, final ProductProperty productProperty,
             final ElasticSearchIndexConfig config, final String indexNameUsed) throws IOException
     {
-        final XContentBuilder contentBuilder = getXContentBuilderForAProductProperty(productProperty);
+        final byte[] source = productDocumentEncoder.encodeProductProperty(productProperty, config.getDocumentContentType());
         final String documentId = (product != null ? String.valueOf(product.getId()) : "") + String.valueOf(productProperty.getId())
                 + "0000";
-        logger.debug("Generated XContentBuilder for document id {} is {}",
-                new Object[] { documentId, contentBuilder.prettyPrint().string() });
+        logDocumentSource(documentId, source);
         final IndexRequestBuilder indexRequestBuilder = searchClientService.getClient().prepareIndex(indexNameUsed,
                 config.getPropertiesDocumentType(), documentId);
-        indexRequestBuilder.setSource(contentBuilder);
+        indexRequestBuilder.setSource(source);
         return indexRequestBuilder;
     }
 
     private IndexRequestBuilder getIndexRequestBuilderForAProductGroup(final ProductGroup productGroup,
             final ElasticSearchIndexConfig config, final String indexName) throws IOException
     {
-        final XContentBuilder contentBuilder = getXContentBuilderForAProductGroup(productGroup);
-        logger.debug("Generated XContentBuilder for document id {} is {}", new Object[] { productGroup.getId(),
-                contentBuilder.prettyPrint().string() });
+        final byte[] source = productDocumentEncoder.encodeProductGroup(productGroup, config.getDocumentContentType());
+        logDocumentSource(productGroup.getId(), source);
         final IndexRequestBuilder indexRequestBuilder = searchClientService.getClient().prepareIndex(indexName,
                 config.getGroupDocumentType(), String.valueOf(productGroup.getId()));
-        indexRequestBuilder.setSource(contentBuilder);
+        indexRequestBuilder.setSource(source);
         return indexRequestBuilder;
     }
 
-    private XContentBuilder getXContentBuilderForAProduct(final Product product) throws IOException
+    private void logDocumentSource(final Object documentId, final byte[] source)
     {
-        XContentBuilder contentBuilder = null;
-        try
+        // Only render the document when it is going to be logged, binary (SMILE) sources are converted to json for readability.
+        if (logger.isDebugEnabled())
         {
-            contentBuilder = jsonBuilder().prettyPrint().startObject();
-            contentBuilder.field(SearchDocumentFieldName.TITLE.getFieldName(), product.getTitle())
-                    .field(SearchDocumentFieldName.DESCRIPTION.getFieldName(), product.getDescription())
-                    .field(SearchDocumentFieldName.PRICE.getFieldName(), product.getPrice())
-                    .field(SearchDocumentFieldName.KEYWORDS.getFieldName(), product.getKeywords())
-                    .field(SearchDocumentFieldName.AVAILABLE_DATE.getFieldName(), SearchDateUtils.formatDate(product.getAvailableOn()))
-                    .field(SearchDocumentFieldName.SOLD_OUT.getFieldName(), product.isSoldOut())
-                    .field(SearchDocumentFieldName.BOOSTFACTOR.getFieldName(), product.getBoostFactor());
-            if (product.getCategories().size() > 0)
+            try
             {
-                // Add category data
-                final Map<Integer, Set<Category>> levelMap = getContentCategoryLevelMap(product.getCategories());
-                contentBuilder.startArray(SearchDocumentFieldName.CATEGORIES_ARRAY.getFieldName());
-                for (final Entry<Integer, Set<Category>> contentCategoryEntrySet : levelMap.entrySet())
-                {
-                    for (final Category category : contentCategoryEntrySet.getValue())
-                    {
-                        final String name = category.getType() + SearchFacetName.HIERARCHICAL_DATA_LEVEL_STRING
-                                + contentCategoryEntrySet.getKey();
-                        contentBuilder
-                                .startObject()
-                                .field(name + "." + SearchDocumentFieldName.FACET.getFieldName(), category.getName())
-                                // .field(name + SearchFacetName.SEQUENCED_FIELD_SUFFIX, getSequenceNumberOrdering(contentCategory) +
-                                // categoryTranalationText)
-                                .field(name + "." + SearchDocumentFieldName.FACETFILTER.getFieldName(), category.getName().toLowerCase())
-                                .field(name + "." + SearchDocumentFieldName.SUGGEST.getFieldName(), category.getName().toLowerCase())
-                                .endObject();
-                    }
-                }
-                contentBuilder.endArray();
+                logger.debug("Generated document source for document id {} is {}",
+                        new Object[] { documentId, XContentHelper.convertToJson(source, 0, source.length, false) });
             }
-            if (product.getSpecifications().size() > 0)
+            catch (final IOException ex)
             {
-                // Index specifications
-                contentBuilder.startArray(SearchDocumentFieldName.SPECIFICATIONS.getFieldName());
-                for (final Specification specification : product.getSpecifications())
-                {
-                    contentBuilder.startObject().field(SearchDocumentFieldName.RESOLUTION.getFieldName(), specification.getResolution())
-                            .field(SearchDocumentFieldName.MEMORY.getFieldName(), specification.getMemory()).endObject();
-                }
-                contentBuilder.endArray();
+                logger.debug("Generated document source for document id {} has {} bytes", new Object[] { documentId, source.length });
             }
-            contentBuilder.endObject();
-        }
-        catch (final IOException ex)
-        {
-            logger.error(ex.getMessage());
-            throw new RuntimeException("Error occured while creating product gift json document!", ex);
         }
-        logger.debug("Generated XContentBuilder for document id {} is {}", new Object[] { product.getId(),
-                contentBuilder.prettyPrint().string() });
-        return contentBuilder;
-    }
-
-    private XContentBuilder getXContentBuilderForAProductProperty(final ProductProperty productProperty)
-    {
-        XContentBuilder contentBuilder = null;
-        try
-        {
-            contentBuilder = jsonBuilder().prettyPrint().startObject();
-            contentBuilder.field(SearchDocumentFieldName.SIZE.getFieldName(), productProperty.getSize()).field(
-                    SearchDocumentFieldName.COLOR.getFieldName(), productProperty.getColor());
-            contentBuilder.endObject();
-        }
-        catch (final IOException ex)
-        {
-            logger.error(ex.getMessage());
-            throw new RuntimeException("Error occured while creating product gift json document!", ex);
-        }
-        return contentBuilder;
-    }
-
-    private XContentBuilder getXContentBuilderForAProductGroup(final ProductGroup productGroup)
-    {
-        XContentBuilder contentBuilder = null;
-        try
-        {
-            contentBuilder = jsonBuilder().prettyPrint().startObject();
-            contentBuilder.field(SearchDocumentFieldName.TITLE.getFieldName(), productGroup.getGroupTitle()).field(
-                    SearchDocumentFieldName.DESCRIPTION.getFieldName(), productGroup.getGroupDescription());
-            contentBuilder.endObject();
-        }
-        catch (final IOException ex)
-        {
-            logger.error(ex.getMessage());
-            throw new RuntimeException("Error occured while creating product gift json document!", ex);
-        }
-        return contentBuilder;
-    }
-
-    private Map<Integer, Set<Category>> getContentCategoryLevelMap(final List<Category> categories)
-    {
-        final Map<Integer, Set<Category>> levelMap = new HashMap<Integer, Set<Category>>();
-        for (final Category contentCategory : categories)
-        {
-            final int defaultTopLevelCategoryIndex = 1;
-            final int levelInHierarchy = getCategoryLevelInHierarchy(contentCategory, defaultTopLevelCategoryIndex);
-            for (int categoryLevelCounter = levelInHierarchy; categoryLevelCounter <= levelInHierarchy
-                    && categoryLevelCounter >= defaultTopLevelCategoryIndex; categoryLevelCounter--)
-            {
-                processCategoryAtLevel(levelMap, findCategoryAtLevel(contentCategory, levelInHierarchy, categoryLevelCounter),
-                        categoryLevelCounter);
-            }
-        }
-        return levelMap;
-    }
-
-    private Category findCategoryAtLevel(final Category contentCategory, final int currentCategoryLevel, final int counter)
-    {
-        if (currentCategoryLevel == counter)
-        {
-            return contentCategory;
-        }
-        final int nextCounter = counter + 1;
-        return findCategoryAtLevel(contentCategory.getParentCategory(), currentCategoryLevel, nextCounter);
-    }
-
-    private int getCategoryLevelInHierarchy(final Category contentCategory, final int level)
-    {
-        if (contentCategory.getParentCategory() == null)
-        {
-            return level;
-        }
-        final int nextLevel = level + 1;
-        return getCategoryLevelInHierarchy(contentCategory.getParentCategory(), nextLevel);
-    }
-
-    private void processCategoryAtLevel(final Map<Integer, Set<Category>> levelMap, final Category contentCategory, final int categoryLevel)
-    {
-        final Set<Category> categoryLevelSet = getCategoryLevelSet(levelMap, categoryLevel);
-        categoryLevelSet.add(contentCategory);
-    }
-
-    private Set<Category> getCategoryLevelSet(final Map<Integer, Set<Category>> levelMap, final int level)
-    {
-        final Integer valueOf = Integer.valueOf(level);
-        Set<Category> set = levelMap.get(valueOf);
-        if (set == null)
-        {
-            set = new HashSet<Category>();
-            levelMap.put(valueOf, set);
-        }
-        return set;
     }
 
     protected BulkResponse processBulkRequests(final List<IndexRequestBuilder> requests)
@@ -375,15 +584,7 @@ public class IndexProductDataServiceImpl implements IndexProductDataService
             {
                 bulkRequest.add(indexRequestBuilder);
             }
-            logger.debug("Executing bulk index request for size:" + requests.size());
-            final BulkResponse bulkResponse = bulkRequest.execute().actionGet();
-            logger.debug("Bulk operation data index response total items is:" + bulkResponse.getItems().length);
-            if (bulkResponse.hasFailures())
-            {
-                // process failures by iterating through each bulk response item
-                logger.error("bulk operation indexing has failures:" + bulkResponse.buildFailureMessage());
-            }
-            return bulkResponse;
+            return executeBulkRequest(bulkRequest);
         }
         else
         {
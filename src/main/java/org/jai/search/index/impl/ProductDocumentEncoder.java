@@ -0,0 +1,162 @@
+package org.jai.search.index.impl;
+
+import org.jai.search.model.Category;
+import org.jai.search.model.Product;
+import org.jai.search.model.ProductGroup;
+import org.jai.search.model.ProductProperty;
+import org.jai.search.model.SearchDocumentFieldName;
+import org.jai.search.model.SearchFacetName;
+import org.jai.search.model.Specification;
+import org.jai.search.util.SearchDateUtils;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes products, product properties and product groups into compact (not pretty printed) index documents. Documents are written
+ * into a per thread reusable buffer, only the final document bytes are copied out per call, in the content type of the index config
+ * (JSON or SMILE).
+ */
+public class ProductDocumentEncoder
+{
+    private static final ThreadLocal<BytesStreamOutput> BUFFERS = new ThreadLocal<BytesStreamOutput>()
+    {
+        @Override
+        protected BytesStreamOutput initialValue()
+        {
+            return new BytesStreamOutput();
+        }
+    };
+
+    public byte[] encodeProduct(final Product product, final XContentType contentType) throws IOException
+    {
+        final BytesStreamOutput buffer = getBuffer();
+        writeProduct(new XContentBuilder(contentType.xContent(), buffer), product).flush();
+        return copyBytes(buffer);
+    }
+
+    public byte[] encodeProductProperty(final ProductProperty productProperty, final XContentType contentType) throws IOException
+    {
+        final BytesStreamOutput buffer = getBuffer();
+        writeProductProperty(new XContentBuilder(contentType.xContent(), buffer), productProperty).flush();
+        return copyBytes(buffer);
+    }
+
+    public byte[] encodeProductGroup(final ProductGroup productGroup, final XContentType contentType) throws IOException
+    {
+        final BytesStreamOutput buffer = getBuffer();
+        writeProductGroup(new XContentBuilder(contentType.xContent(), buffer), productGroup).flush();
+        return copyBytes(buffer);
+    }
+
+    public XContentBuilder writeProduct(final XContentBuilder contentBuilder, final Product product) throws IOException
+    {
+        contentBuilder.startObject();
+        contentBuilder.field(SearchDocumentFieldName.TITLE.getFieldName(), product.getTitle())
+                .field(SearchDocumentFieldName.DESCRIPTION.getFieldName(), product.getDescription())
+                .field(SearchDocumentFieldName.PRICE.getFieldName(), product.getPrice())
+                .field(SearchDocumentFieldName.KEYWORDS.getFieldName(), product.getKeywords())
+                .field(SearchDocumentFieldName.AVAILABLE_DATE.getFieldName(), SearchDateUtils.formatDate(product.getAvailableOn()))
+                .field(SearchDocumentFieldName.SOLD_OUT.getFieldName(), product.isSoldOut())
+                .field(SearchDocumentFieldName.BOOSTFACTOR.getFieldName(), product.getBoostFactor());
+        if (product.getCategories().size() > 0)
+        {
+            writeCategories(contentBuilder, product.getCategories());
+        }
+        if (product.getSpecifications().size() > 0)
+        {
+            // Index specifications
+            contentBuilder.startArray(SearchDocumentFieldName.SPECIFICATIONS.getFieldName());
+            for (final Specification specification : product.getSpecifications())
+            {
+                contentBuilder.startObject().field(SearchDocumentFieldName.RESOLUTION.getFieldName(), specification.getResolution())
+                        .field(SearchDocumentFieldName.MEMORY.getFieldName(), specification.getMemory()).endObject();
+            }
+            contentBuilder.endArray();
+        }
+        return contentBuilder.endObject();
+    }
+
+    public XContentBuilder writeProductProperty(final XContentBuilder contentBuilder, final ProductProperty productProperty)
+            throws IOException
+    {
+        return contentBuilder.startObject().field(SearchDocumentFieldName.SIZE.getFieldName(), productProperty.getSize())
+                .field(SearchDocumentFieldName.COLOR.getFieldName(), productProperty.getColor()).endObject();
+    }
+
+    public XContentBuilder writeProductGroup(final XContentBuilder contentBuilder, final ProductGroup productGroup) throws IOException
+    {
+        return contentBuilder.startObject().field(SearchDocumentFieldName.TITLE.getFieldName(), productGroup.getGroupTitle())
+                .field(SearchDocumentFieldName.DESCRIPTION.getFieldName(), productGroup.getGroupDescription()).endObject();
+    }
+
+    private BytesStreamOutput getBuffer()
+    {
+        final BytesStreamOutput buffer = BUFFERS.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    private byte[] copyBytes(final BytesStreamOutput buffer)
+    {
+        // Always a copy, BytesReference.toBytes() hands out the buffer's own array when the document fills it exactly, and the next
+        // document encoded on this thread would overwrite it while a request still holds it.
+        final BytesReference bytes = buffer.bytes();
+        return Arrays.copyOfRange(bytes.array(), bytes.arrayOffset(), bytes.arrayOffset() + bytes.length());
+    }
+
+    /**
+     * Writes the categories array, every category with all its parents, once per level, top level first. Uses the hierarchy the
+     * categories have precomputed, no maps or sets are built per product.
+     */
+    void writeCategories(final XContentBuilder contentBuilder, final List<Category> categories) throws IOException
+    {
+        int maxLevel = 0;
+        for (final Category category : categories)
+        {
+            maxLevel = Math.max(maxLevel, category.getLevel());
+        }
+        contentBuilder.startArray(SearchDocumentFieldName.CATEGORIES_ARRAY.getFieldName());
+        for (int level = 1; level <= maxLevel; level++)
+        {
+            for (int index = 0; index < categories.size(); index++)
+            {
+                final Category category = categories.get(index);
+                if (category.getLevel() >= level && !isWrittenBefore(categories, index, level))
+                {
+                    writeCategory(contentBuilder, category.getCategoryAtLevel(level), level);
+                }
+            }
+        }
+        contentBuilder.endArray();
+    }
+
+    private boolean isWrittenBefore(final List<Category> categories, final int index, final int level)
+    {
+        final Category categoryAtLevel = categories.get(index).getCategoryAtLevel(level);
+        for (int previous = 0; previous < index; previous++)
+        {
+            final Category category = categories.get(previous);
+            if (category.getLevel() >= level && category.getCategoryAtLevel(level).equals(categoryAtLevel))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeCategory(final XContentBuilder contentBuilder, final Category category, final int level) throws IOException
+    {
+        final String name = category.getType() + SearchFacetName.HIERARCHICAL_DATA_LEVEL_STRING + level;
+        final String lowerCaseName = category.getName().toLowerCase();
+        contentBuilder.startObject().field(name + "." + SearchDocumentFieldName.FACET.getFieldName(), category.getName())
+                .field(name + "." + SearchDocumentFieldName.FACETFILTER.getFieldName(), lowerCaseName)
+                .field(name + "." + SearchDocumentFieldName.SUGGEST.getFieldName(), lowerCaseName).endObject();
+    }
+}
@@ -12,11 +12,26 @@ public class Category
 
     private final Category parentCategory;
 
+    // Hierarchy is immutable, level and path from the top level category are computed once.
+    private final int level;
+
+    private final Category[] hierarchy;
+
+    private final int hashCode;
+
     public Category(final String catName, final Category parent, final String catType)
     {
         this.name = catName;
         this.parentCategory = parent;
         this.type = catType;
+        level = parent == null ? 1 : parent.getLevel() + 1;
+        hierarchy = new Category[level];
+        if (parent != null)
+        {
+            System.arraycopy(parent.hierarchy, 0, hierarchy, 0, parent.hierarchy.length);
+        }
+        hierarchy[level - 1] = this;
+        hashCode = new HashCodeBuilder().append(name).hashCode();
     }
 
     public String getName()
@@ -34,10 +49,26 @@ public class Category
         return type;
     }
 
+    /**
+     * Level in the hierarchy, top level categories are at level 1.
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Category at the given level of this category's hierarchy, the category itself at its own level.
+     */
+    public Category getCategoryAtLevel(final int categoryLevel)
+    {
+        return hierarchy[categoryLevel - 1];
+    }
+
     @Override
     public int hashCode()
     {
-        return new HashCodeBuilder().append(name).hashCode();
+        return hashCode;
     }
 
     @Override
@@ -21,6 +21,9 @@ public class Product
 
     private Date availableOn;
 
+    // Last change of the product in the catalog, used as the document version and for incremental updates.
+    private Date lastModified;
+
     private float boostFactor = 1.0f;
 
     private List<String> keywords = new ArrayList<String>();
@@ -101,6 +104,16 @@ public class Product
         this.availableOn = availableOn;
     }
 
+    public Date getLastModified()
+    {
+        return lastModified;
+    }
+
+    public void setLastModified(final Date lastModified)
+    {
+        this.lastModified = lastModified;
+    }
+
     public void addKeyword(final String keyword)
     {
         keywords.add(keyword);
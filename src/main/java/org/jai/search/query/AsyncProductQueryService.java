@@ -0,0 +1,33 @@
+package org.jai.search.query;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.model.AutoSuggestionEntry;
+import org.jai.search.model.Product;
+import org.jai.search.model.ProductSearchResult;
+import org.jai.search.model.SearchCriteria;
+
+import org.elasticsearch.action.ListenableActionFuture;
+
+import java.util.List;
+
+/**
+ * Non blocking variant of {@link ProductQueryService}: the requests are sent to the search engine and the futures are completed by its
+ * response, no thread waits for it. Listeners added to the futures are called on the thread completing them, a thread of the search
+ * engine client, so must not block. Search requests of concurrent queries are coalesced in multi search requests, or batched explicitly
+ * with {@link #newBatch()}.
+ */
+public interface AsyncProductQueryService
+{
+    ListenableActionFuture<ProductSearchResult> searchProductsAsync(SearchCriteria searchCriteria);
+
+    ListenableActionFuture<Product> getProductAsync(ElasticSearchIndexConfig config, Long productId);
+
+    ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsAsync(ElasticSearchIndexConfig config, String queryString);
+
+    ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsUsingTermsFacetAsync(ElasticSearchIndexConfig config,
+            String queryString);
+
+    ListenableActionFuture<List<Product>> findSimilarProductsAsync(ElasticSearchIndexConfig config, String[] fields, Long productId);
+
+    ProductQueryBatch newBatch();
+}
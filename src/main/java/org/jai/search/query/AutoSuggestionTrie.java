@@ -0,0 +1,197 @@
+package org.jai.search.query;
+
+import org.jai.search.model.AutoSuggestionEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie of suggestion terms with their frequencies, completing a prefix with the terms starting with it in term order, as the
+ * regex terms facet ordered by term does. Nodes are laid out breadth first in flat arrays, the children of a node next to each other in
+ * character order, so a lookup is a binary search per character of the prefix and no object is kept per node.
+ */
+public class AutoSuggestionTrie
+{
+    private static final int ROOT = 0;
+
+    // Character leading to the node from its parent.
+    private final char[] labels;
+
+    private final int[] firstChildren;
+
+    private final int[] childCounts;
+
+    // Frequency of the term ending at the node, 0 if no term ends there.
+    private final int[] counts;
+
+    private final int terms;
+
+    private AutoSuggestionTrie(final char[] labels, final int[] firstChildren, final int[] childCounts, final int[] counts,
+            final int terms)
+    {
+        this.labels = labels;
+        this.firstChildren = firstChildren;
+        this.childCounts = childCounts;
+        this.counts = counts;
+        this.terms = terms;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * At most size terms starting with the prefix, in term order.
+     */
+    public List<AutoSuggestionEntry> complete(final String prefix, final int size)
+    {
+        int node = ROOT;
+        for (int index = 0; index < prefix.length() && node >= 0; index++)
+        {
+            node = getChild(node, prefix.charAt(index));
+        }
+        if (node < 0 || size <= 0)
+        {
+            return Collections.emptyList();
+        }
+        final List<AutoSuggestionEntry> completions = new ArrayList<AutoSuggestionEntry>(Math.min(size, terms));
+        collect(node, new StringBuilder(prefix), size, completions);
+        return completions;
+    }
+
+    public int getTerms()
+    {
+        return terms;
+    }
+
+    public int getNodes()
+    {
+        return labels.length;
+    }
+
+    private int getChild(final int node, final char label)
+    {
+        int low = firstChildren[node];
+        int high = low + childCounts[node] - 1;
+        while (low <= high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (labels[middle] < label)
+            {
+                low = middle + 1;
+            }
+            else if (labels[middle] > label)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private void collect(final int node, final StringBuilder term, final int size, final List<AutoSuggestionEntry> completions)
+    {
+        if (counts[node] > 0)
+        {
+            completions.add(new AutoSuggestionEntry(term.toString(), counts[node]));
+        }
+        final int lastChild = firstChildren[node] + childCounts[node];
+        for (int child = firstChildren[node]; child < lastChild && completions.size() < size; child++)
+        {
+            term.append(labels[child]);
+            collect(child, term, size, completions);
+            term.setLength(term.length() - 1);
+        }
+    }
+
+    /**
+     * Counts the terms to build the trie from. Not thread safe.
+     */
+    public static class Builder
+    {
+        private final Map<String, Integer> counts = new HashMap<String, Integer>();
+
+        public Builder add(final String term)
+        {
+            return add(term, 1);
+        }
+
+        public Builder add(final String term, final int count)
+        {
+            if (term == null || term.isEmpty() || count <= 0)
+            {
+                return this;
+            }
+            final Integer previousCount = counts.get(term);
+            counts.put(term, previousCount == null ? count : previousCount + count);
+            return this;
+        }
+
+        public int size()
+        {
+            return counts.size();
+        }
+
+        public AutoSuggestionTrie build()
+        {
+            final Node root = new Node();
+            int nodes = 1;
+            for (final Map.Entry<String, Integer> entry : counts.entrySet())
+            {
+                Node node = root;
+                for (int index = 0; index < entry.getKey().length(); index++)
+                {
+                    final Character label = entry.getKey().charAt(index);
+                    Node child = node.children.get(label);
+                    if (child == null)
+                    {
+                        child = new Node();
+                        node.children.put(label, child);
+                        nodes++;
+                    }
+                    node = child;
+                }
+                node.count = entry.getValue();
+            }
+            // Breadth first, the children of a node get consecutive positions.
+            final char[] labels = new char[nodes];
+            final int[] firstChildren = new int[nodes];
+            final int[] childCounts = new int[nodes];
+            final int[] nodeCounts = new int[nodes];
+            final LinkedList<Node> queue = new LinkedList<Node>();
+            queue.add(root);
+            int position = 0;
+            int nextFree = 1;
+            while (!queue.isEmpty())
+            {
+                final Node node = queue.removeFirst();
+                nodeCounts[position] = node.count;
+                firstChildren[position] = nextFree;
+                childCounts[position] = node.children.size();
+                for (final Map.Entry<Character, Node> child : node.children.entrySet())
+                {
+                    labels[nextFree++] = child.getKey();
+                    queue.add(child.getValue());
+                }
+                position++;
+            }
+            return new AutoSuggestionTrie(labels, firstChildren, childCounts, nodeCounts, counts.size());
+        }
+    }
+
+    private static class Node
+    {
+        private final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+
+        private int count;
+    }
+}
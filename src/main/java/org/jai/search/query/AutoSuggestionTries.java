@@ -0,0 +1,174 @@
+package org.jai.search.query;
+
+import org.jai.search.index.IndexChangeListener;
+import org.jai.search.model.Category;
+import org.jai.search.model.Product;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Local auto suggestion tries of the index aliases. While a new index is rebuilt, the terms the products indexed successfully into it
+ * carry in the keywords and categories suggest fields, lower cased as the auto suggestion analyzer does, are counted once per product.
+ * The trie is built and replaces the one of the alias when the alias is moved to the new index, see {@link #publish(String, String)}.
+ * An alias has no trie if its index was not rebuilt by this process from the start, and loses it as soon as its documents are changed
+ * outside of a rebuild. Auto suggestions are then left to the search engine.
+ */
+@Component
+public class AutoSuggestionTries implements IndexChangeListener
+{
+    private static final Logger logger = LoggerFactory.getLogger(AutoSuggestionTries.class);
+
+    // Tries being built, by index name.
+    private final ConcurrentMap<String, TrieBuild> builds = new ConcurrentHashMap<String, TrieBuild>();
+
+    // Live tries, by alias name.
+    private final ConcurrentMap<String, AutoSuggestionTrie> tries = new ConcurrentHashMap<String, AutoSuggestionTrie>();
+
+    /**
+     * Starts counting the terms of the products indexed into the new index of the alias.
+     */
+    public void startBuild(final String indexAliasName, final String indexName)
+    {
+        builds.put(indexName, new TrieBuild(indexAliasName));
+    }
+
+    /**
+     * Counts the terms of the products, if the trie of the index is being built. Products indexed into an alias make its trie stale.
+     */
+    @Override
+    public void productsIndexed(final String indexName, final List<Product> products)
+    {
+        final TrieBuild build = builds.get(indexName);
+        if (build != null)
+        {
+            build.recordProducts(products);
+        }
+        else
+        {
+            removeTrie(indexName);
+        }
+    }
+
+    /**
+     * Documents changed outside of a rebuild: the trie of the alias is stale, the build of the index misses them.
+     */
+    @Override
+    public void indexChanged(final String indexName)
+    {
+        if (builds.remove(indexName) != null)
+        {
+            logger.debug("Auto suggestion trie build of index {} dropped, documents were indexed outside of the rebuild", indexName);
+        }
+        removeTrie(indexName);
+    }
+
+    /**
+     * Builds the trie of the index the alias was moved to and makes it the trie of the alias. Builds of other indices of the alias are
+     * dropped, as their index is.
+     */
+    public void publish(final String indexAliasName, final String indexName)
+    {
+        final TrieBuild build = builds.remove(indexName);
+        for (final Iterator<TrieBuild> iterator = builds.values().iterator(); iterator.hasNext();)
+        {
+            if (iterator.next().indexAliasName.equals(indexAliasName))
+            {
+                iterator.remove();
+            }
+        }
+        // No product reported at all, e.g. indexed by a pipeline that doesn't report them, is not taken for an empty index.
+        if (build == null || build.isEmpty())
+        {
+            tries.remove(indexAliasName);
+            logger.debug("No auto suggestion trie built for index {}, alias {} left without one", indexName, indexAliasName);
+            return;
+        }
+        final AutoSuggestionTrie trie = build.build();
+        tries.put(indexAliasName, trie);
+        logger.info("Auto suggestion trie of alias {} replaced with the one of index {}: {} terms, {} nodes", new Object[] {
+                indexAliasName, indexName, trie.getTerms(), trie.getNodes() });
+    }
+
+    /**
+     * Trie of the alias, null if none.
+     */
+    public AutoSuggestionTrie getTrie(final String indexAliasName)
+    {
+        return tries.get(indexAliasName);
+    }
+
+    private void removeTrie(final String indexAliasName)
+    {
+        if (tries.remove(indexAliasName) != null)
+        {
+            logger.info("Auto suggestion trie of alias {} dropped, its documents changed since the rebuild", indexAliasName);
+        }
+    }
+
+    private static class TrieBuild
+    {
+        private final String indexAliasName;
+
+        private final AutoSuggestionTrie.Builder builder = AutoSuggestionTrie.builder();
+
+        private final Set<String> productTerms = new HashSet<String>();
+
+        TrieBuild(final String indexAliasName)
+        {
+            this.indexAliasName = indexAliasName;
+        }
+
+        synchronized void recordProducts(final List<Product> products)
+        {
+            for (final Product product : products)
+            {
+                recordProduct(product);
+            }
+        }
+
+        synchronized boolean isEmpty()
+        {
+            return builder.size() == 0;
+        }
+
+        private void recordProduct(final Product product)
+        {
+            productTerms.clear();
+            if (product.getKeywords() != null)
+            {
+                for (final String keyword : product.getKeywords())
+                {
+                    if (keyword != null)
+                    {
+                        productTerms.add(keyword.toLowerCase());
+                    }
+                }
+            }
+            for (final Category category : product.getCategories())
+            {
+                for (int level = 1; level <= category.getLevel(); level++)
+                {
+                    productTerms.add(category.getCategoryAtLevel(level).getName().toLowerCase());
+                }
+            }
+            for (final String term : productTerms)
+            {
+                builder.add(term);
+            }
+        }
+
+        synchronized AutoSuggestionTrie build()
+        {
+            return builder.build();
+        }
+    }
+}
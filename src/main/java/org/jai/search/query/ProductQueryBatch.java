@@ -0,0 +1,26 @@
+package org.jai.search.query;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.model.AutoSuggestionEntry;
+import org.jai.search.model.ProductSearchResult;
+import org.jai.search.model.SearchCriteria;
+
+import org.elasticsearch.action.ListenableActionFuture;
+
+import java.util.List;
+
+/**
+ * Queries of a page sent together as one multi search request by {@link #execute()}, the futures are completed by the items of its
+ * response. Results found in the search result cache complete right away and are not sent.
+ */
+public interface ProductQueryBatch
+{
+    ListenableActionFuture<ProductSearchResult> searchProducts(SearchCriteria searchCriteria);
+
+    ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestions(ElasticSearchIndexConfig config, String queryString);
+
+    ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsUsingTermsFacet(ElasticSearchIndexConfig config,
+            String queryString);
+
+    void execute();
+}
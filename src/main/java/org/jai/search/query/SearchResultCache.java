@@ -0,0 +1,520 @@
+package org.jai.search.query;
+
+import org.jai.search.config.QuerySettings;
+import org.jai.search.index.IndexChangeListener;
+import org.jai.search.model.Category;
+import org.jai.search.model.FacetResult;
+import org.jai.search.model.FacetResultEntry;
+import org.jai.search.model.Product;
+import org.jai.search.model.ProductProperty;
+import org.jai.search.model.ProductSearchResult;
+import org.jai.search.model.SearchCriteria;
+import org.jai.search.model.Specification;
+import org.jai.search.util.LatencyHistogram;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In process cache of product search results, keyed by the canonical form of the search criteria (see {@link #getKey(SearchCriteria)}),
+ * bounded in number of entries, least recently used evicted first, and in time to live. Facet results are cached apart under a key
+ * without paging and sorting (see {@link #getFacetsKey(SearchCriteria)}), so the pages of a search share them. Entries searching an alias
+ * are invalidated when the alias is moved to a new index and when documents of the alias change outside of a rebuild, see
+ * {@link #invalidate(String)}. Results and facets are copied in and out of the cache, callers own what they get. Bounds are read from
+ * the "query.result-cache" section of the configuration, see {@link QuerySettings}.
+ */
+@Component
+public class SearchResultCache implements IndexChangeListener
+{
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultCache.class);
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final long timeToLiveMillis;
+
+    private final CachedEntries<ProductSearchResult> entries;
+
+    private final CachedEntries<List<FacetResult>> facetEntries;
+
+    // Moved by every invalidation, results of searches started before are not cached.
+    private long generation;
+
+    private long hits;
+
+    private long misses;
+
+    private long facetHits;
+
+    private long facetMisses;
+
+    private final LatencyHistogram hitLatencyMicros = new LatencyHistogram(HIGHEST_LATENCY_MICROS);
+
+    private final LatencyHistogram missLatencyMicros = new LatencyHistogram(HIGHEST_LATENCY_MICROS);
+
+    @Autowired
+    public SearchResultCache(final QuerySettings querySettings)
+    {
+        this(querySettings.getResultCacheMaxEntries(), querySettings.getResultCacheTimeToLive().toMillis());
+    }
+
+    public SearchResultCache(final int maxEntries, final long timeToLiveMillis)
+    {
+        this.timeToLiveMillis = timeToLiveMillis;
+        entries = new CachedEntries<ProductSearchResult>(maxEntries);
+        facetEntries = new CachedEntries<List<FacetResult>>(maxEntries);
+    }
+
+    /**
+     * Canonical form of the search criteria: criteria that only differ in the order of indices, document types or filters, all joined
+     * with "and" or "or", have the same key. Facets keep their order, the facets of the result follow it. Values are prefixed with their
+     * length so the key is unambiguous, and is used as is rather than hashed so different criteria never share a result.
+     */
+    public static String getKey(final SearchCriteria searchCriteria)
+    {
+        final StringBuilder key = getMatchKey(searchCriteria);
+        key.append(searchCriteria.getFrom()).append(',').append(searchCriteria.getSize()).append(',');
+        appendValue(key, searchCriteria.getSortOrder() != null ? searchCriteria.getSortOrder().name() : null);
+        appendValues(key, searchCriteria.isNoFacets() ? null : searchCriteria.getFacets());
+        key.append(searchCriteria.isRescoreOnSoldOut()).append(',').append(searchCriteria.isUseBoostingFactor());
+        return key.toString();
+    }
+
+    /**
+     * Canonical form of the criteria the facets depend on: the matched documents and the facets asked for, but not the page, the sort
+     * order or the scoring. Null if no facets are asked for.
+     */
+    public static String getFacetsKey(final SearchCriteria searchCriteria)
+    {
+        if (searchCriteria.isNoFacets() || searchCriteria.getFacets().isEmpty())
+        {
+            return null;
+        }
+        final StringBuilder key = getMatchKey(searchCriteria);
+        appendValues(key, searchCriteria.getFacets());
+        return key.toString();
+    }
+
+    private static StringBuilder getMatchKey(final SearchCriteria searchCriteria)
+    {
+        final StringBuilder key = new StringBuilder();
+        appendValue(key, searchCriteria.getQuery());
+        appendValues(key, sorted(searchCriteria.getIndexes() != null ? Arrays.asList(searchCriteria.getIndexes()) : null));
+        appendValues(key, sorted(searchCriteria.getDocumentTypes() != null ? Arrays.asList(searchCriteria.getDocumentTypes()) : null));
+        final List<String> singleSelectFilters = new ArrayList<String>();
+        for (final Entry<String, String> entry : searchCriteria.getSingleSelectFilters().entrySet())
+        {
+            singleSelectFilters.add(getValue(entry.getKey()) + getValue(entry.getValue()));
+        }
+        appendValues(key, sorted(singleSelectFilters));
+        final List<String> multiSelectFilters = new ArrayList<String>();
+        for (final Entry<String, List<String>> entry : searchCriteria.getMultiSelectFilters().entrySet())
+        {
+            multiSelectFilters.add(getValue(entry.getKey()) + getValue(getValues(sorted(entry.getValue()))));
+        }
+        appendValues(key, sorted(multiSelectFilters));
+        final List<String> fieldValueFilters = new ArrayList<String>();
+        for (final Map<String, Object> filterItems : searchCriteria.getFieldValueFilters())
+        {
+            final List<String> items = new ArrayList<String>();
+            for (final Entry<String, Object> entry : filterItems.entrySet())
+            {
+                items.add(getValue(entry.getKey()) + getValue(String.valueOf(entry.getValue())));
+            }
+            fieldValueFilters.add(getValues(sorted(items)));
+        }
+        appendValues(key, sorted(fieldValueFilters));
+        final List<String> productProperties = new ArrayList<String>();
+        for (final ProductProperty productProperty : searchCriteria.getProductProperties())
+        {
+            productProperties.add(getValue(productProperty.getSize()) + getValue(productProperty.getColor()));
+        }
+        appendValues(key, sorted(productProperties));
+        final List<String> specifications = new ArrayList<String>();
+        for (final Specification specification : searchCriteria.getSpecifications())
+        {
+            specifications.add(getValue(specification.getResolution()) + getValue(specification.getMemory()));
+        }
+        appendValues(key, sorted(specifications));
+        return key;
+    }
+
+    /**
+     * Cached result of the key, null if not cached or expired. Counted as a hit or a miss.
+     */
+    public synchronized ProductSearchResult get(final String key)
+    {
+        final ProductSearchResult result = entries.getValue(key);
+        if (result == null)
+        {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(result);
+    }
+
+    /**
+     * Cached facets of the facets key, null if not cached or expired. Counted as a facet hit or miss.
+     */
+    public synchronized List<FacetResult> getFacets(final String facetsKey)
+    {
+        final List<FacetResult> facets = facetEntries.getValue(facetsKey);
+        if (facets == null)
+        {
+            facetMisses++;
+            return null;
+        }
+        facetHits++;
+        return copy(facets);
+    }
+
+    /**
+     * Generation to give back to {@link #put(String, long, String[], ProductSearchResult)}, taken before the search is executed.
+     */
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Caches the result of the search on the given indices, unless the cache was invalidated since the generation was taken.
+     */
+    public synchronized void put(final String key, final long generation, final String[] indices, final ProductSearchResult result)
+    {
+        if (generation == this.generation)
+        {
+            entries.putValue(key, indices, copy(result), System.currentTimeMillis() + timeToLiveMillis);
+        }
+    }
+
+    /**
+     * Caches the facets of the search on the given indices, unless the cache was invalidated since the generation was taken.
+     */
+    public synchronized void putFacets(final String facetsKey, final long generation, final String[] indices,
+            final List<FacetResult> facets)
+    {
+        if (generation == this.generation)
+        {
+            facetEntries.putValue(facetsKey, indices, copy(facets), System.currentTimeMillis() + timeToLiveMillis);
+        }
+    }
+
+    public synchronized void recordLatency(final boolean hit, final long latencyNanos)
+    {
+        (hit ? hitLatencyMicros : missLatencyMicros).recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    /**
+     * Removes the results and facets of searches on the alias, or on all indices.
+     */
+    public synchronized void invalidate(final String indexAliasName)
+    {
+        generation++;
+        final int invalidated = entries.invalidate(indexAliasName) + facetEntries.invalidate(indexAliasName);
+        logger.info("Search result cache invalidated {} entries of alias {}, {}", new Object[] { invalidated, indexAliasName, this });
+    }
+
+    @Override
+    public void productsIndexed(final String indexName, final List<Product> products)
+    {
+        // An update of the alias is reported as a whole once done, see indexChanged.
+    }
+
+    @Override
+    public void indexChanged(final String indexName)
+    {
+        invalidate(indexName);
+    }
+
+    public synchronized void invalidateAll()
+    {
+        generation++;
+        entries.clear();
+        facetEntries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    public synchronized int getFacetsSize()
+    {
+        return facetEntries.size();
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    public synchronized long getEvictions()
+    {
+        return entries.evictions + facetEntries.evictions;
+    }
+
+    public synchronized double getHitRatio()
+    {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public synchronized long getFacetHits()
+    {
+        return facetHits;
+    }
+
+    public synchronized long getFacetMisses()
+    {
+        return facetMisses;
+    }
+
+    public synchronized double getFacetHitRatio()
+    {
+        return facetHits + facetMisses == 0 ? 0 : (double) facetHits / (facetHits + facetMisses);
+    }
+
+    public synchronized LatencyHistogram getHitLatencyMicros()
+    {
+        return hitLatencyMicros.copy();
+    }
+
+    public synchronized LatencyHistogram getMissLatencyMicros()
+    {
+        return missLatencyMicros.copy();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "size=" + entries.size() + " hits=" + hits + " misses=" + misses + " hitRatio=" + String.format("%.3f", getHitRatio())
+                + " facetsSize=" + facetEntries.size() + " facetHits=" + facetHits + " facetMisses=" + facetMisses + " facetHitRatio="
+                + String.format("%.3f", getFacetHitRatio()) + " evictions=" + getEvictions() + " hitLatencyMicros=[" + hitLatencyMicros
+                + "] missLatencyMicros=[" + missLatencyMicros + "]";
+    }
+
+    private static ProductSearchResult copy(final ProductSearchResult result)
+    {
+        final ProductSearchResult copy = new ProductSearchResult();
+        copy.setTotalCount(result.getTotalCount());
+        for (final Product product : result.getProducts())
+        {
+            copy.addProduct(copy(product));
+        }
+        for (final FacetResult facetResult : result.getFacets())
+        {
+            copy.addFacet(copy(facetResult));
+        }
+        return copy;
+    }
+
+    private static List<FacetResult> copy(final List<FacetResult> facets)
+    {
+        final List<FacetResult> copy = new ArrayList<FacetResult>(facets.size());
+        for (final FacetResult facetResult : facets)
+        {
+            copy.add(copy(facetResult));
+        }
+        return copy;
+    }
+
+    private static FacetResult copy(final FacetResult facetResult)
+    {
+        final FacetResult copy = new FacetResult();
+        copy.setCode(facetResult.getCode());
+        for (final FacetResultEntry facetResultEntry : facetResult.getFacetResultEntries())
+        {
+            final FacetResultEntry entryCopy = new FacetResultEntry();
+            entryCopy.setTerm(facetResultEntry.getTerm());
+            entryCopy.setCount(facetResultEntry.getCount());
+            copy.addFacetResultEntry(entryCopy);
+        }
+        return copy;
+    }
+
+    private static Product copy(final Product product)
+    {
+        final Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setTitle(product.getTitle());
+        copy.setDescription(product.getDescription());
+        copy.setPrice(product.getPrice());
+        copy.setSoldOut(product.isSoldOut());
+        copy.setAvailableOn(product.getAvailableOn() != null ? new Date(product.getAvailableOn().getTime()) : null);
+        copy.setLastModified(product.getLastModified() != null ? new Date(product.getLastModified().getTime()) : null);
+        copy.setBoostFactor(product.getBoostFactor());
+        copy.setKeywords(product.getKeywords() != null ? new ArrayList<String>(product.getKeywords()) : null);
+        // Categories are immutable.
+        for (final Category category : product.getCategories())
+        {
+            copy.addCategory(category);
+        }
+        for (final ProductProperty productProperty : product.getProductProperties())
+        {
+            final ProductProperty propertyCopy = new ProductProperty();
+            propertyCopy.setId(productProperty.getId());
+            propertyCopy.setSize(productProperty.getSize());
+            propertyCopy.setColor(productProperty.getColor());
+            copy.addProductProperty(propertyCopy);
+        }
+        if (product.getSpecifications() != null)
+        {
+            final List<Specification> specifications = new ArrayList<Specification>(product.getSpecifications().size());
+            for (final Specification specification : product.getSpecifications())
+            {
+                specifications.add(new Specification(specification.getResolution(), specification.getMemory()));
+            }
+            copy.setSpecifications(specifications);
+        }
+        else
+        {
+            copy.setSpecifications(null);
+        }
+        return copy;
+    }
+
+    private static List<String> sorted(final List<String> values)
+    {
+        if (values == null)
+        {
+            return null;
+        }
+        final List<String> sortedValues = new ArrayList<String>(values.size());
+        for (final String value : values)
+        {
+            sortedValues.add(value != null ? value : "");
+        }
+        Collections.sort(sortedValues);
+        return sortedValues;
+    }
+
+    private static void appendValue(final StringBuilder key, final String value)
+    {
+        key.append(getValue(value));
+    }
+
+    private static void appendValues(final StringBuilder key, final List<String> values)
+    {
+        key.append(getValue(getValues(values)));
+    }
+
+    private static String getValues(final List<String> values)
+    {
+        if (values == null)
+        {
+            return null;
+        }
+        final StringBuilder joined = new StringBuilder();
+        for (final String value : values)
+        {
+            joined.append(getValue(value));
+        }
+        return joined.toString();
+    }
+
+    private static String getValue(final String value)
+    {
+        return value == null ? "-," : value.length() + ":" + value + ",";
+    }
+
+    /**
+     * Entries of one kind, least recently used first.
+     */
+    private static class CachedEntries<V> extends LinkedHashMap<String, CachedValue<V>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        private long evictions;
+
+        CachedEntries(final int maxEntries)
+        {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        V getValue(final String key)
+        {
+            final CachedValue<V> cachedValue = get(key);
+            if (cachedValue == null)
+            {
+                return null;
+            }
+            if (cachedValue.expiryTime <= System.currentTimeMillis())
+            {
+                remove(key);
+                return null;
+            }
+            return cachedValue.value;
+        }
+
+        void putValue(final String key, final String[] indices, final V value, final long expiryTime)
+        {
+            if (maxEntries > 0)
+            {
+                put(key, new CachedValue<V>(indices != null ? indices.clone() : null, value, expiryTime));
+            }
+        }
+
+        int invalidate(final String indexAliasName)
+        {
+            int invalidated = 0;
+            for (final Iterator<CachedValue<V>> iterator = values().iterator(); iterator.hasNext();)
+            {
+                final CachedValue<V> cachedValue = iterator.next();
+                if (cachedValue.indices == null || cachedValue.indices.length == 0
+                        || Arrays.asList(cachedValue.indices).contains(indexAliasName))
+                {
+                    iterator.remove();
+                    invalidated++;
+                }
+            }
+            return invalidated;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Entry<String, CachedValue<V>> eldest)
+        {
+            if (size() > maxEntries)
+            {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class CachedValue<V>
+    {
+        private final String[] indices;
+
+        private final V value;
+
+        private final long expiryTime;
+
+        CachedValue(final String[] indices, final V value, final long expiryTime)
+        {
+            this.indices = indices;
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.jai.search.query.impl;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Search requests collected to be sent as one multi search request, the items of its response are handed to the listener of each
+ * request, in order.
+ */
+class MultiSearchBatch implements SearchRequestExecutor
+{
+    private static final Logger logger = LoggerFactory.getLogger(MultiSearchBatch.class);
+
+    private final List<SearchRequest> requests = new ArrayList<SearchRequest>();
+
+    private final List<ActionListener<SearchResponse>> listeners = new ArrayList<ActionListener<SearchResponse>>();
+
+    private boolean sent;
+
+    @Override
+    public synchronized void execute(final SearchRequestBuilder requestBuilder, final ActionListener<SearchResponse> listener)
+    {
+        if (sent)
+        {
+            throw new IllegalStateException("Search requests can't be added to a batch already sent");
+        }
+        requests.add(requestBuilder.request());
+        listeners.add(listener);
+    }
+
+    public synchronized int size()
+    {
+        return requests.size();
+    }
+
+    /**
+     * Sends the requests of the batch, a single request is sent as a plain search request.
+     */
+    public void send(final Client client)
+    {
+        final List<SearchRequest> batchRequests;
+        final List<ActionListener<SearchResponse>> batchListeners;
+        synchronized (this)
+        {
+            sent = true;
+            batchRequests = new ArrayList<SearchRequest>(requests);
+            batchListeners = new ArrayList<ActionListener<SearchResponse>>(listeners);
+        }
+        if (batchRequests.isEmpty())
+        {
+            return;
+        }
+        if (batchRequests.size() == 1)
+        {
+            client.search(batchRequests.get(0), batchListeners.get(0));
+            return;
+        }
+        final MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        for (final SearchRequest request : batchRequests)
+        {
+            multiSearchRequest.add(request);
+        }
+        logger.debug("Sending {} search requests in one multi search request", batchRequests.size());
+        client.multiSearch(multiSearchRequest, new ActionListener<MultiSearchResponse>()
+        {
+            @Override
+            public void onResponse(final MultiSearchResponse multiSearchResponse)
+            {
+                final MultiSearchResponse.Item[] items = multiSearchResponse.getResponses();
+                for (int i = 0; i < batchListeners.size(); i++)
+                {
+                    final ActionListener<SearchResponse> listener = batchListeners.get(i);
+                    try
+                    {
+                        if (i >= items.length)
+                        {
+                            listener.onFailure(new ElasticsearchException("No response to search request " + i + " of the batch"));
+                        }
+                        else if (items[i].isFailure())
+                        {
+                            listener.onFailure(new ElasticsearchException(items[i].getFailureMessage()));
+                        }
+                        else
+                        {
+                            listener.onResponse(items[i].getResponse());
+                        }
+                    }
+                    catch (final RuntimeException ex)
+                    {
+                        // The other requests of the batch still get their response.
+                        logger.error("Error occurred while handing search response " + i + " of the batch", ex);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable e)
+            {
+                for (final ActionListener<SearchResponse> listener : batchListeners)
+                {
+                    listener.onFailure(e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,197 @@
+package org.jai.search.query.impl;
+
+import org.jai.search.client.SearchClientService;
+import org.jai.search.config.QuerySettings;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Coalesces the search requests of concurrent queries: a request arriving while no other one is outstanding is sent right away, requests
+ * arriving while others are outstanding are collected and sent together as one multi search request at the end of the window of the
+ * first one of the batch, sooner if the batch is full. A window of 0 sends every request on its own. Window and batch size are read
+ * from the "query.multi-search" section of the configuration, see {@link QuerySettings}.
+ */
+@Component
+public class MultiSearchCoalescer implements SearchRequestExecutor
+{
+    private final SearchClientService searchClientService;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    private MultiSearchBatch batch;
+
+    private long batches;
+
+    private long requests;
+
+    // Requests sent or batched and not answered yet.
+    private int outstandingRequests;
+
+    @Autowired
+    public MultiSearchCoalescer(final SearchClientService searchClientService, final QuerySettings querySettings)
+    {
+        this(searchClientService, querySettings.isMultiSearchEnabled() ? querySettings.getMultiSearchWindow().toMillis() : 0,
+                querySettings.getMultiSearchMaxBatchSize());
+    }
+
+    public MultiSearchCoalescer(final SearchClientService searchClientService, final long windowMillis, final int maxBatchSize)
+    {
+        this.searchClientService = searchClientService;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        scheduler = windowMillis > 0 ? Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("multi-search-coalescer"))
+                : null;
+    }
+
+    @Override
+    public void execute(final SearchRequestBuilder requestBuilder, final ActionListener<SearchResponse> listener)
+    {
+        if (scheduler == null)
+        {
+            requestBuilder.execute(listener);
+            return;
+        }
+        final ActionListener<SearchResponse> outstandingListener = new OutstandingRequestListener(listener);
+        final boolean sendNow;
+        MultiSearchBatch fullBatch = null;
+        synchronized (this)
+        {
+            requests++;
+            // Nothing to coalesce with, no reason to wait.
+            sendNow = ++outstandingRequests == 1;
+            if (sendNow)
+            {
+                batches++;
+            }
+            else
+            {
+                if (batch == null)
+                {
+                    batch = new MultiSearchBatch();
+                    final MultiSearchBatch scheduledBatch = batch;
+                    scheduler.schedule(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            send(scheduledBatch);
+                        }
+                    }, windowMillis, TimeUnit.MILLISECONDS);
+                }
+                batch.execute(requestBuilder, outstandingListener);
+                if (batch.size() >= maxBatchSize)
+                {
+                    fullBatch = batch;
+                }
+            }
+        }
+        if (sendNow)
+        {
+            requestBuilder.execute(outstandingListener);
+        }
+        else if (fullBatch != null)
+        {
+            send(fullBatch);
+        }
+    }
+
+    /**
+     * Sends the pending batch without waiting for the end of its window.
+     */
+    public void flush()
+    {
+        final MultiSearchBatch pendingBatch;
+        synchronized (this)
+        {
+            pendingBatch = batch;
+        }
+        if (pendingBatch != null)
+        {
+            send(pendingBatch);
+        }
+    }
+
+    @PreDestroy
+    public void close()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+            flush();
+        }
+    }
+
+    public synchronized long getBatches()
+    {
+        return batches;
+    }
+
+    public synchronized long getRequests()
+    {
+        return requests;
+    }
+
+    public synchronized int getOutstandingRequests()
+    {
+        return outstandingRequests;
+    }
+
+    private void send(final MultiSearchBatch batchToSend)
+    {
+        synchronized (this)
+        {
+            // Sent already when it was full or flushed.
+            if (batch != batchToSend)
+            {
+                return;
+            }
+            batch = null;
+            batches++;
+        }
+        batchToSend.send(searchClientService.getClient());
+    }
+
+    private class OutstandingRequestListener implements ActionListener<SearchResponse>
+    {
+        private final ActionListener<SearchResponse> listener;
+
+        OutstandingRequestListener(final ActionListener<SearchResponse> listener)
+        {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onResponse(final SearchResponse response)
+        {
+            requestDone();
+            listener.onResponse(response);
+        }
+
+        @Override
+        public void onFailure(final Throwable e)
+        {
+            requestDone();
+            listener.onFailure(e);
+        }
+    }
+
+    private synchronized void requestDone()
+    {
+        outstandingRequests--;
+    }
+}
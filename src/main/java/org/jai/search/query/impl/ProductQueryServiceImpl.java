@@ -16,16 +16,21 @@ import org.jai.search.model.SearchCriteria;
 import org.jai.search.model.SearchDocumentFieldName;
 import org.jai.search.model.SearchFacetName;
 import org.jai.search.model.Specification;
+import org.jai.search.query.AsyncProductQueryService;
+import org.jai.search.query.AutoSuggestionTrie;
+import org.jai.search.query.AutoSuggestionTries;
+import org.jai.search.query.ProductQueryBatch;
 import org.jai.search.query.ProductQueryService;
+import org.jai.search.query.SearchResultCache;
 import org.jai.search.util.SearchDateUtils;
 
 import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.mlt.MoreLikeThisRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.suggest.SuggestRequestBuilder;
-import org.elasticsearch.action.suggest.SuggestResponse;
 import org.elasticsearch.index.get.GetField;
 import org.elasticsearch.index.query.AndFilterBuilder;
 import org.elasticsearch.index.query.FilterBuilder;
@@ -53,6 +58,7 @@ import org.elasticsearch.search.facet.terms.TermsFacetBuilder;
 import org.elasticsearch.search.rescore.RescoreBuilder;
 import org.elasticsearch.search.rescore.RescoreBuilder.Rescorer;
 import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.Suggest.Suggestion.Entry.Option;
 import org.elasticsearch.search.suggest.SuggestBuilder;
 import org.elasticsearch.search.suggest.term.TermSuggestion;
@@ -71,15 +77,86 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 @Service(value = "productQueryService")
-public class ProductQueryServiceImpl implements ProductQueryService
+public class ProductQueryServiceImpl implements ProductQueryService, AsyncProductQueryService
 {
     @Autowired
     private SearchClientService searchClientService;
 
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private MultiSearchCoalescer multiSearchCoalescer;
+
+    @Autowired
+    private AutoSuggestionTries autoSuggestionTries;
+
     private static final Logger logger = LoggerFactory.getLogger(ProductQueryServiceImpl.class);
 
     @Override
     public ProductSearchResult searchProducts(final SearchCriteria searchCriteria)
+    {
+        return searchProductsAsync(searchCriteria).actionGet();
+    }
+
+    @Override
+    public ListenableActionFuture<ProductSearchResult> searchProductsAsync(final SearchCriteria searchCriteria)
+    {
+        return searchProductsAsync(searchCriteria, multiSearchCoalescer);
+    }
+
+    private ListenableActionFuture<ProductSearchResult> searchProductsAsync(final SearchCriteria searchCriteria,
+            final SearchRequestExecutor searchRequestExecutor)
+    {
+        final long startTime = System.nanoTime();
+        final String cacheKey = SearchResultCache.getKey(searchCriteria);
+        final ProductSearchResult cachedResult = searchResultCache.get(cacheKey);
+        if (cachedResult != null)
+        {
+            searchResultCache.recordLatency(true, System.nanoTime() - startTime);
+            return QueryActionFuture.completed(cachedResult);
+        }
+        // Taken before the search, so a result of the index the alias was just moved away from is not cached.
+        final long cacheGeneration = searchResultCache.getGeneration();
+        final String[] indices = searchCriteria.getIndexes();
+        // Facets only depend on the matched documents, other pages of the search computed them already.
+        final String facetsKey = SearchResultCache.getFacetsKey(searchCriteria);
+        final List<FacetResult> cachedFacets = facetsKey != null ? searchResultCache.getFacets(facetsKey) : null;
+        final SearchRequestBuilder requestBuilder = prepareSearchRequest(searchCriteria, cachedFacets == null);
+        logger.debug("Executing following search request:" + requestBuilder.internalBuilder().toString());
+        final QueryActionFuture<ProductSearchResult, SearchResponse> future = new QueryActionFuture<ProductSearchResult, SearchResponse>()
+        {
+            @Override
+            protected ProductSearchResult convert(final SearchResponse searchResponse)
+            {
+                printSearchResponseForDebug(searchResponse);
+                final ProductSearchResult productSearchResult = getProductSearchResults(searchResponse);
+                if (cachedFacets != null)
+                {
+                    for (final FacetResult facetResult : cachedFacets)
+                    {
+                        productSearchResult.addFacet(facetResult);
+                    }
+                }
+                else if (facetsKey != null)
+                {
+                    searchResultCache.putFacets(facetsKey, cacheGeneration, indices, productSearchResult.getFacets());
+                }
+                searchResultCache.put(cacheKey, cacheGeneration, indices, productSearchResult);
+                searchResultCache.recordLatency(false, System.nanoTime() - startTime);
+                return productSearchResult;
+            }
+        };
+        searchRequestExecutor.execute(requestBuilder, future);
+        return future;
+    }
+
+    protected SearchRequestBuilder prepareSearchRequest(final SearchCriteria searchCriteria)
+    {
+        return prepareSearchRequest(searchCriteria, true);
+    }
+
+    private SearchRequestBuilder prepareSearchRequest(final SearchCriteria searchCriteria, final boolean withFacets)
     {
         final QueryBuilder queryBuilder = getQueryBuilder(searchCriteria);
         final SearchRequestBuilder requestBuilder = getSearchRequestBuilder(searchCriteria.getIndexes(), searchCriteria.getDocumentTypes(),
@@ -101,7 +178,7 @@ public class ProductQueryServiceImpl implements ProductQueryService
         {
             requestBuilder.setQuery(queryBuilder);
         }
-        if (!searchCriteria.isNoFacets() && searchCriteria.getFacets().size() > 0)
+        if (withFacets && !searchCriteria.isNoFacets() && searchCriteria.getFacets().size() > 0)
         {
             addFacets(searchCriteria, requestBuilder);
         }
@@ -114,19 +191,36 @@ public class ProductQueryServiceImpl implements ProductQueryService
             // then on score based
             requestBuilder.addSort(SortBuilders.scoreSort());
         }
-        logger.debug("Executing following search request:" + requestBuilder.internalBuilder().toString());
-        final SearchResponse searchResponse = requestBuilder.execute().actionGet();
-        printSearchResponseForDebug(searchResponse);
-        return getProductSearchResults(searchResponse);
+        return requestBuilder;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Product getProduct(final ElasticSearchIndexConfig config, final Long productId)
     {
-        final GetResponse getResponse = searchClientService.getClient()
+        return getProductAsync(config, productId).actionGet();
+    }
+
+    @Override
+    public ListenableActionFuture<Product> getProductAsync(final ElasticSearchIndexConfig config, final Long productId)
+    {
+        final GetRequestBuilder getRequestBuilder = searchClientService.getClient()
                 .prepareGet(config.getIndexAliasName(), config.getDocumentType(), String.valueOf(productId))
-                .setFields(SearchDocumentFieldName.productDocumentFields).get();
+                .setFields(SearchDocumentFieldName.productDocumentFields);
+        final QueryActionFuture<Product, GetResponse> future = new QueryActionFuture<Product, GetResponse>()
+        {
+            @Override
+            protected Product convert(final GetResponse getResponse)
+            {
+                return getProduct(getResponse);
+            }
+        };
+        getRequestBuilder.execute(future);
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Product getProduct(final GetResponse getResponse)
+    {
         if (getResponse.isExists())
         {
             final Product product = new Product();
@@ -159,6 +253,19 @@ public class ProductQueryServiceImpl implements ProductQueryService
 
     @Override
     public List<AutoSuggestionEntry> getAutoSuggestions(final ElasticSearchIndexConfig config, final String queryString)
+    {
+        return getAutoSuggestionsAsync(config, queryString).actionGet();
+    }
+
+    @Override
+    public ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsAsync(final ElasticSearchIndexConfig config,
+            final String queryString)
+    {
+        return getAutoSuggestionsAsync(config, queryString, multiSearchCoalescer);
+    }
+
+    private ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsAsync(final ElasticSearchIndexConfig config,
+            final String queryString, final SearchRequestExecutor searchRequestExecutor)
     {
         final TermSuggestionBuilder suggesBuilder = SuggestBuilder.termSuggestion(SearchFacetName.AUTO_SUGGESTION.getCode())
                 .field(SearchDocumentFieldName.KEYWORDS.getFieldName()).analyzer(config.getAutoSuggestionAnalyzerName()).size(20)
@@ -179,7 +286,8 @@ public class ProductQueryServiceImpl implements ProductQueryService
         // .size(10)
         // .text(queryString)
         // ;
-        final SuggestRequestBuilder addSuggestion = searchClientService.getClient().prepareSuggest(config.getIndexAliasName())
+        // Suggestions only search request, so it can be sent in a multi search request.
+        final SearchRequestBuilder addSuggestion = searchClientService.getClient().prepareSearch(config.getIndexAliasName()).setSize(0)
                 .addSuggestion(suggesBuilder);
         try
         {
@@ -191,14 +299,27 @@ public class ProductQueryServiceImpl implements ProductQueryService
             // Do nothing
             logger.error("Error in to string", e);
         }
-        final SuggestResponse suggestResponse = addSuggestion.get();
-        logger.debug("Auto Suggestion response is {}", suggestResponse);
+        final QueryActionFuture<List<AutoSuggestionEntry>, SearchResponse> future =
+                new QueryActionFuture<List<AutoSuggestionEntry>, SearchResponse>()
+                {
+                    @Override
+                    protected List<AutoSuggestionEntry> convert(final SearchResponse searchResponse)
+                    {
+                        return getAutoSuggestions(searchResponse.getSuggest());
+                    }
+                };
+        searchRequestExecutor.execute(addSuggestion, future);
+        return future;
+    }
+
+    private List<AutoSuggestionEntry> getAutoSuggestions(final Suggest suggest)
+    {
+        logger.debug("Auto Suggestion response is {}", suggest);
         final List<AutoSuggestionEntry> suggestions = new ArrayList<AutoSuggestionEntry>();
-        if (suggestResponse != null && suggestResponse.getSuggest() != null
-                && suggestResponse.getSuggest().getSuggestion(SearchFacetName.AUTO_SUGGESTION.getCode()) != null)
+        if (suggest != null && suggest.getSuggestion(SearchFacetName.AUTO_SUGGESTION.getCode()) != null)
         {
-            for (final org.elasticsearch.search.suggest.Suggest.Suggestion.Entry<? extends Option> suggestEntry : suggestResponse
-                    .getSuggest().getSuggestion(SearchFacetName.AUTO_SUGGESTION.getCode()).getEntries())
+            for (final org.elasticsearch.search.suggest.Suggest.Suggestion.Entry<? extends Option> suggestEntry : suggest.getSuggestion(
+                    SearchFacetName.AUTO_SUGGESTION.getCode()).getEntries())
             {
                 for (final Option option : suggestEntry.getOptions())
                 {
@@ -214,7 +335,25 @@ public class ProductQueryServiceImpl implements ProductQueryService
     @Override
     public List<AutoSuggestionEntry> getAutoSuggestionsUsingTermsFacet(final ElasticSearchIndexConfig config, final String queryString)
     {
-        final List<AutoSuggestionEntry> autoSuggestEntries = new ArrayList<AutoSuggestionEntry>();
+        return getAutoSuggestionsUsingTermsFacetAsync(config, queryString).actionGet();
+    }
+
+    @Override
+    public ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsUsingTermsFacetAsync(final ElasticSearchIndexConfig config,
+            final String queryString)
+    {
+        return getAutoSuggestionsUsingTermsFacetAsync(config, queryString, multiSearchCoalescer);
+    }
+
+    private ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsUsingTermsFacetAsync(final ElasticSearchIndexConfig config,
+            final String queryString, final SearchRequestExecutor searchRequestExecutor)
+    {
+        // Completed locally from the same terms when the trie of the alias was built with its index.
+        final AutoSuggestionTrie autoSuggestionTrie = autoSuggestionTries.getTrie(config.getIndexAliasName());
+        if (autoSuggestionTrie != null)
+        {
+            return QueryActionFuture.completed(autoSuggestionTrie.complete(queryString.toLowerCase(), 20));
+        }
         final SearchRequestBuilder searchRequestBuilder = searchClientService.getClient().prepareSearch(config.getIndexAliasName())
                 .setTypes(config.getDocumentType()).setSize(0).setQuery(QueryBuilders.matchAllQuery());
         final TermsFacetBuilder termsFacetBuilder = FacetBuilders.termsFacet(SearchFacetName.AUTO_SUGGESTION.getCode());
@@ -228,7 +367,22 @@ public class ProductQueryServiceImpl implements ProductQueryService
         termsFacetBuilder.regex(matchingRegExString).size(20).order(ComparatorType.TERM);
         searchRequestBuilder.addFacet(termsFacetBuilder);
         logger.debug("Auto Suggestion request is {}", searchRequestBuilder.internalBuilder().toString());
-        final SearchResponse searchResponse = searchRequestBuilder.get();
+        final QueryActionFuture<List<AutoSuggestionEntry>, SearchResponse> future =
+                new QueryActionFuture<List<AutoSuggestionEntry>, SearchResponse>()
+                {
+                    @Override
+                    protected List<AutoSuggestionEntry> convert(final SearchResponse searchResponse)
+                    {
+                        return getAutoSuggestionsUsingTermsFacet(searchResponse);
+                    }
+                };
+        searchRequestExecutor.execute(searchRequestBuilder, future);
+        return future;
+    }
+
+    private List<AutoSuggestionEntry> getAutoSuggestionsUsingTermsFacet(final SearchResponse searchResponse)
+    {
+        final List<AutoSuggestionEntry> autoSuggestEntries = new ArrayList<AutoSuggestionEntry>();
         try
         {
             logger.debug("Auto Suggestion response is {}", searchResponse.toXContent(jsonBuilder().startObject(), null).prettyPrint()
@@ -256,12 +410,38 @@ public class ProductQueryServiceImpl implements ProductQueryService
 
     @Override
     public List<Product> findSimilarProducts(final ElasticSearchIndexConfig config, final String[] fields, final Long productId)
+    {
+        return findSimilarProductsAsync(config, fields, productId).actionGet();
+    }
+
+    @Override
+    public ListenableActionFuture<List<Product>> findSimilarProductsAsync(final ElasticSearchIndexConfig config, final String[] fields,
+            final Long productId)
     {
         final MoreLikeThisRequestBuilder moreLikeThisRequestBuilder = searchClientService.getClient()
                 .prepareMoreLikeThis(config.getIndexAliasName(), config.getDocumentType(), String.valueOf(productId)).setField(fields)
                 .setMinDocFreq(1).setMinTermFreq(1).setSearchSize(10);
         logger.debug("Executing following search request, fields {}", new Object[] { moreLikeThisRequestBuilder.request().fields() });
-        final SearchResponse searchResponse = moreLikeThisRequestBuilder.get();
+        final QueryActionFuture<List<Product>, SearchResponse> future = new QueryActionFuture<List<Product>, SearchResponse>()
+        {
+            @Override
+            protected List<Product> convert(final SearchResponse searchResponse)
+            {
+                return getSimilarProducts(searchResponse);
+            }
+        };
+        moreLikeThisRequestBuilder.execute(future);
+        return future;
+    }
+
+    @Override
+    public ProductQueryBatch newBatch()
+    {
+        return new MultiSearchProductQueryBatch();
+    }
+
+    private List<Product> getSimilarProducts(final SearchResponse searchResponse)
+    {
         printSearchResponseForDebug(searchResponse);
         final List<Product> products = new ArrayList<Product>();
         for (final SearchHit searchHit : searchResponse.getHits())
@@ -277,7 +457,7 @@ public class ProductQueryServiceImpl implements ProductQueryService
         return products;
     }
 
-    private AndFilterBuilder getFilterBuilderForSearchCriteria(final SearchCriteria searchCriteria)
+    protected AndFilterBuilder getFilterBuilderForSearchCriteria(final SearchCriteria searchCriteria)
     {
         final AndFilterBuilder andFilterBuilder = FilterBuilders.andFilter();
         // process single select filters
@@ -555,7 +735,7 @@ public class ProductQueryServiceImpl implements ProductQueryService
         return termsFacetBuilder;
     }
 
-    private ProductSearchResult getProductSearchResults(final SearchResponse response)
+    protected ProductSearchResult getProductSearchResults(final SearchResponse response)
     {
         logger.debug("Total search hits returned for the query totalHits:" + response.getHits().getTotalHits());
         final ProductSearchResult productSearchResult = new ProductSearchResult();
@@ -770,4 +950,38 @@ public class ProductQueryServiceImpl implements ProductQueryService
         }
         return null;
     }
+
+    /**
+     * Batch of the queries that run as search requests, more like this queries have their own request type.
+     */
+    private class MultiSearchProductQueryBatch implements ProductQueryBatch
+    {
+        private final MultiSearchBatch multiSearchBatch = new MultiSearchBatch();
+
+        @Override
+        public ListenableActionFuture<ProductSearchResult> searchProducts(final SearchCriteria searchCriteria)
+        {
+            return searchProductsAsync(searchCriteria, multiSearchBatch);
+        }
+
+        @Override
+        public ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestions(final ElasticSearchIndexConfig config,
+                final String queryString)
+        {
+            return getAutoSuggestionsAsync(config, queryString, multiSearchBatch);
+        }
+
+        @Override
+        public ListenableActionFuture<List<AutoSuggestionEntry>> getAutoSuggestionsUsingTermsFacet(final ElasticSearchIndexConfig config,
+                final String queryString)
+        {
+            return getAutoSuggestionsUsingTermsFacetAsync(config, queryString, multiSearchBatch);
+        }
+
+        @Override
+        public void execute()
+        {
+            multiSearchBatch.send(searchClientService.getClient());
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package org.jai.search.query.impl;
+
+import org.elasticsearch.action.support.AbstractListenableActionFuture;
+
+/**
+ * Future of a query, listening to the search engine request and converting its response. Listeners are not threaded: they are called on
+ * the thread completing the future, so no thread pool is needed.
+ */
+abstract class QueryActionFuture<T, L> extends AbstractListenableActionFuture<T, L>
+{
+    QueryActionFuture()
+    {
+        super(false, null);
+    }
+
+    static <T> QueryActionFuture<T, T> completed(final T result)
+    {
+        final QueryActionFuture<T, T> future = new QueryActionFuture<T, T>()
+        {
+            @Override
+            protected T convert(final T response)
+            {
+                return response;
+            }
+        };
+        future.onResponse(result);
+        return future;
+    }
+
+    @Override
+    public void onResponse(final L response)
+    {
+        try
+        {
+            super.onResponse(response);
+        }
+        catch (final RuntimeException ex)
+        {
+            // Failed to convert the response, the future would never complete otherwise.
+            onFailure(ex);
+        }
+    }
+}
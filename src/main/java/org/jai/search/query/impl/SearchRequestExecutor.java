@@ -0,0 +1,13 @@
+package org.jai.search.query.impl;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+
+/**
+ * Sends search requests to the search engine, on their own or batched with other requests in one multi search request.
+ */
+interface SearchRequestExecutor
+{
+    void execute(SearchRequestBuilder requestBuilder, ActionListener<SearchResponse> listener);
+}
@@ -7,6 +7,8 @@ import org.jai.search.config.ElasticSearchIndexConfig;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.index.IndexProductDataService;
 import org.jai.search.model.ProductGroup;
+import org.jai.search.query.AutoSuggestionTries;
+import org.jai.search.query.SearchResultCache;
 import org.jai.search.setup.IndexSchemaBuilder;
 import org.jai.search.setup.SetupIndexService;
 
@@ -50,6 +52,12 @@ public class SetupIndexServiceImpl implements SetupIndexService
     @Autowired
     private SampleDataGeneratorService sampleDataGenerator;
 
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private AutoSuggestionTries autoSuggestionTries;
+
     @Override
     public void setupAllIndices(final boolean parentRelationship)
     {
@@ -98,6 +106,7 @@ public class SetupIndexServiceImpl implements SetupIndexService
         // create indices
         createGivenIndex(config, suffixedIndexName, false);
         updateIndexDocumentTypeMappings(config, suffixedIndexName);
+        autoSuggestionTries.startBuild(config.getIndexAliasName(), suffixedIndexName);
         return suffixedIndexName;
     }
 
@@ -136,6 +145,9 @@ public class SetupIndexServiceImpl implements SetupIndexService
         searchClientService.getClient().admin().indices().prepareAliases().addAlias(indexName, aliasName).get();
         // clean up old alias
         cleanupExistingOldIndex(indexName, aliasName);
+        // cached results and auto suggestions are of the old index
+        searchResultCache.invalidate(aliasName);
+        autoSuggestionTries.publish(aliasName, indexName);
     }
 
     @Override
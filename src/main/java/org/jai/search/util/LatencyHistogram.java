@@ -0,0 +1,138 @@
+package org.jai.search.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies with logarithmic buckets split in 64 linear sub buckets, in the manner of HdrHistogram: recording is a few
+ * shifts and one array increment, and percentiles are precise to 2 significant digits whatever the magnitude of the latencies. Values
+ * above the highest trackable value are recorded as the highest trackable value. Not thread safe.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT * 2;
+
+    private final long highestTrackableValue;
+
+    private final long[] counts;
+
+    private long totalCount;
+
+    private long totalValue;
+
+    private long max;
+
+    public LatencyHistogram(final long highestTrackableValue)
+    {
+        this.highestTrackableValue = Math.max(SUB_BUCKET_COUNT - 1, highestTrackableValue);
+        counts = new long[getIndex(this.highestTrackableValue) + 1];
+    }
+
+    public void recordValue(final long value)
+    {
+        final long trackedValue = Math.min(highestTrackableValue, Math.max(0, value));
+        counts[getIndex(trackedValue)]++;
+        totalCount++;
+        totalValue += trackedValue;
+        max = Math.max(max, trackedValue);
+    }
+
+    public void add(final LatencyHistogram other)
+    {
+        if (other.counts.length > counts.length)
+        {
+            throw new IllegalArgumentException("Histogram with a higher trackable value can not be added: " + other.highestTrackableValue);
+        }
+        for (int index = 0; index < other.counts.length; index++)
+        {
+            counts[index] += other.counts[index];
+        }
+        totalCount += other.totalCount;
+        totalValue += other.totalValue;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalValue = 0;
+        max = 0;
+    }
+
+    public LatencyHistogram copy()
+    {
+        final LatencyHistogram copy = new LatencyHistogram(highestTrackableValue);
+        copy.add(this);
+        return copy;
+    }
+
+    public long getTotalCount()
+    {
+        return totalCount;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public double getMean()
+    {
+        return totalCount == 0 ? 0 : (double) totalValue / totalCount;
+    }
+
+    /**
+     * Highest value, within the precision of the buckets, that the given percentage of the recorded values are less than or equal to.
+     */
+    public long getValueAtPercentile(final double percentile)
+    {
+        if (totalCount == 0)
+        {
+            return 0;
+        }
+        final long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * totalCount));
+        long count = 0;
+        for (int index = 0; index < counts.length; index++)
+        {
+            count += counts[index];
+            if (count >= countAtPercentile)
+            {
+                return Math.min(max, getHighestEquivalentValue(index));
+            }
+        }
+        return max;
+    }
+
+    private static int getIndex(final long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+        {
+            return (int) value;
+        }
+        // Bucket of the highest bit above the sub bucket bits, sub bucket of the next bits.
+        final int bucket = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_HALF_COUNT + bucket * SUB_BUCKET_HALF_COUNT + (int) (value >> bucket) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    private static long getHighestEquivalentValue(final int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+        {
+            return index;
+        }
+        final int bucket = (index - SUB_BUCKET_HALF_COUNT) / SUB_BUCKET_HALF_COUNT;
+        final long subBucket = (index - SUB_BUCKET_HALF_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count=" + totalCount + " p50=" + getValueAtPercentile(50) + " p90=" + getValueAtPercentile(90) + " p99="
+                + getValueAtPercentile(99) + " p99.9=" + getValueAtPercentile(99.9) + " max=" + max;
+    }
+}
@@ -0,0 +1,72 @@
+package org.jai.search.actors;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jai.search.config.IndexingSettings;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.junit.Test;
+
+public class AdaptiveBulkControllerTest
+{
+    private static final Config config = ConfigFactory.load().getConfig("TestSearchIndexingSystem");
+
+    @Test
+    public void increaseAdditivelyWhileFast()
+    {
+        AdaptiveBulkController controller = new AdaptiveBulkController(new IndexingSettings(config));
+        // Starts at the minimum in flight and the configured bulk actions
+        assertEquals(1, controller.getInFlightRequestsLimit());
+        assertEquals(500, controller.getActions());
+        controller.onBulkRequestCompleted(100, false);
+        controller.onBulkRequestCompleted(100, false);
+        assertEquals(3, controller.getInFlightRequestsLimit());
+        assertEquals(500, controller.getActions());
+        for (int i = 0; i < 20; i++)
+        {
+            controller.onBulkRequestCompleted(100, false);
+        }
+        // Capped by the maximum
+        assertEquals(8, controller.getInFlightRequestsLimit());
+    }
+
+    @Test
+    public void decreaseMultiplicativelyOnRejectionOrSlowResponse()
+    {
+        AdaptiveBulkController controller = new AdaptiveBulkController(new IndexingSettings(config));
+        for (int i = 0; i < 7; i++)
+        {
+            controller.onBulkRequestCompleted(100, false);
+        }
+        assertEquals(8, controller.getInFlightRequestsLimit());
+        controller.onBulkRequestCompleted(100, true);
+        assertEquals(4, controller.getInFlightRequestsLimit());
+        assertEquals(250, controller.getActions());
+        // Slower than the target latency of 1 second
+        controller.onBulkRequestCompleted(1500, false);
+        assertEquals(2, controller.getInFlightRequestsLimit());
+        assertEquals(125, controller.getActions());
+        controller.onBulkRequestCompleted(100, true);
+        controller.onBulkRequestCompleted(100, true);
+        // Never below the minimum
+        assertEquals(1, controller.getInFlightRequestsLimit());
+        assertEquals(50, controller.getActions());
+        // Recovers additively
+        controller.onBulkRequestCompleted(100, false);
+        assertEquals(2, controller.getInFlightRequestsLimit());
+        assertEquals(100, controller.getActions());
+    }
+
+    @Test
+    public void fixedLimitsWhenDisabled()
+    {
+        AdaptiveBulkController controller = new AdaptiveBulkController(new IndexingSettings(ConfigFactory.parseString(
+                "indexing.bulk.adaptive.enabled = off").withFallback(config)));
+        assertEquals(Integer.MAX_VALUE, controller.getInFlightRequestsLimit());
+        controller.onBulkRequestCompleted(100, true);
+        assertEquals(Integer.MAX_VALUE, controller.getInFlightRequestsLimit());
+        assertEquals(500, controller.getActions());
+    }
+}
@@ -1,5 +1,6 @@
 package org.jai.search.actors;
 
+import static org.easymock.EasyMock.anyInt;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
@@ -8,6 +9,8 @@ import static org.junit.Assert.assertEquals;
 
 import org.jai.search.config.ElasticSearchIndexConfig;
 import org.jai.search.config.IndexDocumentType;
+import org.jai.search.data.ProductCursor;
+import org.jai.search.data.ProductSource;
 import org.jai.search.data.SampleDataGeneratorService;
 import org.jai.search.exception.DocumentTypeDataGenerationException;
 import org.jai.search.model.Product;
@@ -20,7 +23,10 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -55,7 +61,7 @@ public class DataGeneratorWorkerActorTest
     @Test
     public void testProductDataGeneration()
     {
-        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService);
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
         final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
         
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
@@ -83,10 +89,13 @@ public class DataGeneratorWorkerActorTest
         Integer resultMsgCount = (Integer) sizeMessage.msg();
         assertEquals(1, resultMsgCount.intValue());
         
+        //Documents are generated only on demand
+        testProbe.expectNoMsg();
+        ref.tell(new IndexDocumentDemandVO(1), testProbe.ref());
         testProbe.expectMsgClass(IndexDocumentVO.class);     
         TestActor.Message message = testProbe.lastMessage();
         IndexDocumentVO resultMsg = (IndexDocumentVO) message.msg();
-        assertEquals(productId, resultMsg.getDocumentId());
+        assertEquals(productId.longValue(), resultMsg.getDocumentId());
         assertEquals(config, resultMsg.getConfig());
         assertEquals(documentType, resultMsg.getDocumentType());
         assertEquals(indexName, resultMsg.getNewIndexName());
@@ -95,7 +104,7 @@ public class DataGeneratorWorkerActorTest
     @Test
     public void testProductPropertyDataGeneration()
     {
-        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService);
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
         final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
         
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
@@ -125,10 +134,13 @@ public class DataGeneratorWorkerActorTest
         Integer resultMsgCount = (Integer) sizeMessage.msg();
         assertEquals(1, resultMsgCount.intValue());
         
+        //Documents are generated only on demand
+        testProbe.expectNoMsg();
+        ref.tell(new IndexDocumentDemandVO(1), testProbe.ref());
         testProbe.expectMsgClass(IndexDocumentVO.class);     
         TestActor.Message message = testProbe.lastMessage();
         IndexDocumentVO resultMsg = (IndexDocumentVO) message.msg();
-        assertEquals(productPropertyId, resultMsg.getDocumentId());
+        assertEquals(productPropertyId.longValue(), resultMsg.getDocumentId());
         assertEquals(config, resultMsg.getConfig());
         assertEquals(documentType, resultMsg.getDocumentType());
         assertEquals(indexName, resultMsg.getNewIndexName());
@@ -137,7 +149,7 @@ public class DataGeneratorWorkerActorTest
     @Test
     public void testProductGroupDataGeneration()
     {
-        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService);
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
         final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
         
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
@@ -165,19 +177,266 @@ public class DataGeneratorWorkerActorTest
         Integer resultMsgCount = (Integer) sizeMessage.msg();
         assertEquals(1, resultMsgCount.intValue());
         
+        //Documents are generated only on demand
+        testProbe.expectNoMsg();
+        ref.tell(new IndexDocumentDemandVO(1), testProbe.ref());
         testProbe.expectMsgClass(IndexDocumentVO.class);     
         TestActor.Message message = testProbe.lastMessage();
         IndexDocumentVO resultMsg = (IndexDocumentVO) message.msg();
-        assertEquals(productGroupId, resultMsg.getDocumentId());
+        assertEquals(productGroupId.longValue(), resultMsg.getDocumentId());
         assertEquals(config, resultMsg.getConfig());
         assertEquals(documentType, resultMsg.getDocumentType());
         assertEquals(indexName, resultMsg.getNewIndexName());
     }
     
+    @Test
+    public void testDataGenerationOnDemand()
+    {
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
+        final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
+        
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        IndexDocumentType documentType = IndexDocumentType.PRODUCT;
+        String indexName = "trialindexName";
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO()
+                .config(config).documentType(documentType).newIndexName(indexName);
+
+        List<Product> productsList = new ArrayList<Product>();
+        for (long productId = 1; productId <= 3; productId++)
+        {
+            Product product = new Product();
+            product.setId(productId);
+            productsList.add(product);
+        }
+        
+        expect(sampleDataGeneratorService.generateProductsSampleData()).andReturn(productsList);
+        replay(sampleDataGeneratorService);
+        
+        TestProbe testProbe = TestProbe.apply(system);
+        ref.tell(indexDocumentTypeMessageVO, testProbe.ref());
+        verify(sampleDataGeneratorService);
+        testProbe.expectMsgEquals(Integer.valueOf(3));
+        
+        //Only the demanded documents are generated
+        ref.tell(new IndexDocumentDemandVO(2), testProbe.ref());
+        IndexDocumentVO firstMsg = testProbe.expectMsgClass(IndexDocumentVO.class);
+        assertEquals(1, firstMsg.getDocumentId());
+        IndexDocumentVO secondMsg = testProbe.expectMsgClass(IndexDocumentVO.class);
+        assertEquals(2, secondMsg.getDocumentId());
+        testProbe.expectNoMsg();
+        
+        //Demand more than remaining, generation stops at the last document
+        ref.tell(new IndexDocumentDemandVO(5), testProbe.ref());
+        IndexDocumentVO thirdMsg = testProbe.expectMsgClass(IndexDocumentVO.class);
+        assertEquals(3, thirdMsg.getDocumentId());
+        testProbe.expectNoMsg();
+    }
+
+    @Test
+    public void testChainedDataGeneration()
+    {
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
+        final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
+        
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        IndexDocumentType documentType = IndexDocumentType.PRODUCT;
+        String indexName = "trialindexName";
+        TestProbe testProbeDocumentGenerator = TestProbe.apply(system);
+        TestProbe testProbeDocumentIndexer = TestProbe.apply(system);
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO()
+                .config(config).documentType(documentType).newIndexName(indexName)
+                .documentGenerator(testProbeDocumentGenerator.ref()).documentIndexer(testProbeDocumentIndexer.ref());
+
+        List<Product> productsList = new ArrayList<Product>();
+        for (long productId = 1; productId <= 2; productId++)
+        {
+            Product product = new Product();
+            product.setId(productId);
+            productsList.add(product);
+        }
+        
+        expect(sampleDataGeneratorService.generateProductsSampleData()).andReturn(productsList);
+        replay(sampleDataGeneratorService);
+        
+        TestProbe testProbe = TestProbe.apply(system);
+        ref.tell(indexDocumentTypeMessageVO, testProbe.ref());
+        verify(sampleDataGeneratorService);
+        testProbe.expectMsgEquals(Integer.valueOf(2));
+        
+        //Ids go straight to the document generator as a range, carrying the indexer and the requester
+        ref.tell(new IndexDocumentDemandVO(2), testProbe.ref());
+        IndexDocumentRangeVO rangeMsg = testProbeDocumentGenerator.expectMsgClass(IndexDocumentRangeVO.class);
+        assertEquals(1, rangeMsg.getFromDocumentId());
+        assertEquals(2, rangeMsg.getToDocumentId());
+        assertEquals(config, rangeMsg.getConfig());
+        assertEquals(documentType, rangeMsg.getDocumentType());
+        assertEquals(testProbeDocumentIndexer.ref(), rangeMsg.getDocumentIndexer());
+        assertEquals(testProbe.ref(), rangeMsg.getReplyTo());
+        
+        //Requester only gets the emitted ids, once per demand
+        IndexDocumentsEmittedVO emittedMsg = testProbe.expectMsgClass(IndexDocumentsEmittedVO.class);
+        assertEquals(1, emittedMsg.getDocumentIdRanges().size());
+        assertEquals(1, emittedMsg.getDocumentIdRanges().get(0).getFromDocumentId());
+        assertEquals(2, emittedMsg.getDocumentIdRanges().get(0).getToDocumentId());
+        testProbe.expectNoMsg();
+        testProbeDocumentIndexer.expectNoMsg();
+    }
+
+    @Test
+    public void testDataGenerationSplitIntoRanges()
+    {
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
+        final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
+        
+        TestProbe testProbeDocumentGenerator = TestProbe.apply(system);
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO()
+                .config(ElasticSearchIndexConfig.COM_WEBSITE).documentType(IndexDocumentType.PRODUCT).newIndexName("trialindexName")
+                .documentGenerator(testProbeDocumentGenerator.ref());
+
+        List<Product> productsList = new ArrayList<Product>();
+        for (long productId = 1; productId <= 120; productId++)
+        {
+            Product product = new Product();
+            product.setId(productId);
+            productsList.add(product);
+        }
+        
+        expect(sampleDataGeneratorService.generateProductsSampleData()).andReturn(productsList);
+        replay(sampleDataGeneratorService);
+        
+        TestProbe testProbe = TestProbe.apply(system);
+        ref.tell(indexDocumentTypeMessageVO, testProbe.ref());
+        testProbe.expectMsgEquals(Integer.valueOf(120));
+        
+        //Demand is split into ranges of at most range-size ids, spread over the document generators
+        ref.tell(new IndexDocumentDemandVO(120), testProbe.ref());
+        IndexDocumentRangeVO firstRange = testProbeDocumentGenerator.expectMsgClass(IndexDocumentRangeVO.class);
+        assertEquals(1, firstRange.getFromDocumentId());
+        assertEquals(50, firstRange.getToDocumentId());
+        IndexDocumentRangeVO secondRange = testProbeDocumentGenerator.expectMsgClass(IndexDocumentRangeVO.class);
+        assertEquals(51, secondRange.getFromDocumentId());
+        assertEquals(100, secondRange.getToDocumentId());
+        IndexDocumentRangeVO lastRange = testProbeDocumentGenerator.expectMsgClass(IndexDocumentRangeVO.class);
+        assertEquals(101, lastRange.getFromDocumentId());
+        assertEquals(120, lastRange.getToDocumentId());
+        testProbeDocumentGenerator.expectNoMsg();
+        
+        //Completion is tracked per range
+        IndexDocumentsEmittedVO emittedMsg = testProbe.expectMsgClass(IndexDocumentsEmittedVO.class);
+        assertEquals(3, emittedMsg.getDocumentIdRanges().size());
+        assertEquals(120, emittedMsg.getDocumentsEmitted());
+    }
+
+    @Test
+    public void testResumedDataGeneration()
+    {
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
+        final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
+        
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        IndexDocumentType documentType = IndexDocumentType.PRODUCT;
+        String indexName = "trialindexName";
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO()
+                .config(config).documentType(documentType).newIndexName(indexName).resumeAfterDocumentId(2l);
+
+        List<Product> productsList = new ArrayList<Product>();
+        for (long productId = 1; productId <= 3; productId++)
+        {
+            Product product = new Product();
+            product.setId(productId);
+            productsList.add(product);
+        }
+        
+        expect(sampleDataGeneratorService.generateProductsSampleData()).andReturn(productsList);
+        replay(sampleDataGeneratorService);
+        
+        TestProbe testProbe = TestProbe.apply(system);
+        ref.tell(indexDocumentTypeMessageVO, testProbe.ref());
+        verify(sampleDataGeneratorService);
+        //Checkpointed documents are not generated again
+        testProbe.expectMsgEquals(Integer.valueOf(1));
+        
+        ref.tell(new IndexDocumentDemandVO(5), testProbe.ref());
+        IndexDocumentVO resultMsg = testProbe.expectMsgClass(IndexDocumentVO.class);
+        assertEquals(3, resultMsg.getDocumentId());
+        testProbe.expectNoMsg();
+    }
+    
+    @Test
+    public void testProductDataStreaming() throws IOException
+    {
+        ProductSource productSource = createNiceMock(ProductSource.class);
+        ProductCursor productCursor = createNiceMock(ProductCursor.class);
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, productSource);
+        final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
+        
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        IndexDocumentType documentType = IndexDocumentType.PRODUCT;
+        String indexName = "trialindexName";
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO()
+                .config(config).documentType(documentType).newIndexName(indexName);
+
+        Product product = new Product();
+        Long productId = 7l;
+        product.setId(productId);
+        
+        expect(productSource.openCursor()).andReturn(productCursor);
+        expect(productCursor.nextPage(anyInt())).andReturn(Collections.singletonList(product));
+        expect(productCursor.nextPage(anyInt())).andReturn(Collections.<Product> emptyList());
+        productCursor.close();
+        replay(sampleDataGeneratorService, productSource, productCursor);
+        
+        TestProbe testProbe = TestProbe.apply(system);
+        ref.tell(indexDocumentTypeMessageVO, testProbe.ref());
+        //Size is not known up front for streamed products
+        testProbe.expectNoMsg();
+        
+        ref.tell(new IndexDocumentDemandVO(5), testProbe.ref());
+        IndexDocumentVO resultMsg = testProbe.expectMsgClass(IndexDocumentVO.class);
+        assertEquals(productId.longValue(), resultMsg.getDocumentId());
+        assertEquals(product, resultMsg.getProduct());
+        assertEquals(config, resultMsg.getConfig());
+        assertEquals(documentType, resultMsg.getDocumentType());
+        assertEquals(indexName, resultMsg.getNewIndexName());
+        
+        //Source exhausted, exact size sent.
+        testProbe.expectMsgEquals(Integer.valueOf(1));
+        verify(productSource, productCursor);
+    }
+    
+    @Test
+    public void testIncrementalProductDataStreaming() throws IOException
+    {
+        ProductSource productSource = createNiceMock(ProductSource.class);
+        ProductCursor productCursor = createNiceMock(ProductCursor.class);
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, productSource);
+        final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
+        
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        IndexDocumentType documentType = IndexDocumentType.PRODUCT;
+        Date modifiedSince = new Date();
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO()
+                .config(config).documentType(documentType).newIndexName(config.getIndexAliasName()).modifiedSince(modifiedSince);
+
+        //Only the products modified since are streamed
+        expect(productSource.openCursor(modifiedSince)).andReturn(productCursor);
+        expect(productCursor.nextPage(anyInt())).andReturn(Collections.<Product> emptyList());
+        productCursor.close();
+        replay(sampleDataGeneratorService, productSource, productCursor);
+        
+        TestProbe testProbe = TestProbe.apply(system);
+        ref.tell(indexDocumentTypeMessageVO, testProbe.ref());
+        ref.tell(new IndexDocumentDemandVO(5), testProbe.ref());
+        
+        //Nothing changed, exact size sent.
+        testProbe.expectMsgEquals(Integer.valueOf(0));
+        verify(productSource, productCursor);
+    }
+    
     @Test
     public void testExceptionForInvalidDocumentTypeMessage()
     {
-        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService);
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
         final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
         
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
@@ -203,7 +462,7 @@ public class DataGeneratorWorkerActorTest
     @Test
     public void testExceptionForInvalidMessage()
     {
-        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService);
+        final Props props = Props.create(DataGeneratorWorkerActor.class, sampleDataGeneratorService, null);
         final TestActorRef<DataGeneratorWorkerActor> ref = TestActorRef.create(system, props);
         
         //Subscribe first
@@ -0,0 +1,114 @@
+package org.jai.search.actors;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.index.IndexProductDataService;
+import org.jai.search.model.Product;
+import org.jai.search.model.ProductProperty;
+
+import com.typesafe.config.ConfigFactory;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.TestActorRef;
+import akka.testkit.TestProbe;
+import scala.concurrent.duration.FiniteDuration;
+
+public class IndexDocumentBulkWorkerActorTest
+{
+    private static ActorSystem system;
+
+    private IndexProductDataService indexProductDataService;
+
+    @BeforeClass
+    public static void prepareBeforeClass()
+    {
+        system = ActorSystem.create("TestSearchIndexingSystem", ConfigFactory.load().getConfig("TestSearchIndexingSystem"));
+    }
+
+    @Before
+    public void prepareTest()
+    {
+        indexProductDataService = createNiceMock(IndexProductDataService.class);
+        expect(indexProductDataService.prepareBulkRequest()).andReturn(new BulkRequestBuilder(null)).anyTimes();
+        replay(indexProductDataService);
+    }
+
+    @Test
+    public void flushLastBulkRequestOfDocumentTypeWithFailedDocument()
+    {
+        TestProbe testProbeIndexDocumentWorker = TestProbe.apply(system);
+        final Props props = Props.create(IndexDocumentBulkWorkerActor.class, indexProductDataService, testProbeIndexDocumentWorker.ref());
+        final TestActorRef<IndexDocumentBulkWorkerActor> ref = TestActorRef.create(system, props);
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        String indexName = "trialindexName";
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(IndexDocumentType.PRODUCT).newIndexName(indexName), null);
+        ref.tell(Integer.valueOf(2), null);
+        ref.tell(new IndexDocumentVO().config(config).documentType(IndexDocumentType.PRODUCT).newIndexName(indexName).documentId(1l)
+                .product(new Product()), null);
+        testProbeIndexDocumentWorker.expectNoMsg(FiniteDuration.create(100, TimeUnit.MILLISECONDS));
+        // Second document failed generation, the last batch does not wait for the flush interval.
+        ref.tell(IndexingMessage.DOCUMENT_GENERATION_FAILED, null);
+        completeBulkRequest(ref, testProbeIndexDocumentWorker, IndexDocumentType.PRODUCT, 1);
+        // Next document type on the same bulk worker is counted from zero.
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(IndexDocumentType.PRODUCT_PROPERTY).newIndexName(indexName),
+                null);
+        ref.tell(Integer.valueOf(1), null);
+        ref.tell(new IndexDocumentVO().config(config).documentType(IndexDocumentType.PRODUCT_PROPERTY).newIndexName(indexName)
+                .documentId(1l).productProperty(new ProductProperty()), null);
+        completeBulkRequest(ref, testProbeIndexDocumentWorker, IndexDocumentType.PRODUCT_PROPERTY, 1);
+    }
+
+    @Test
+    public void forgetDocumentTypeWhenDataGenerationFailed()
+    {
+        TestProbe testProbeIndexDocumentWorker = TestProbe.apply(system);
+        final Props props = Props.create(IndexDocumentBulkWorkerActor.class, indexProductDataService, testProbeIndexDocumentWorker.ref());
+        final TestActorRef<IndexDocumentBulkWorkerActor> ref = TestActorRef.create(system, props);
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        String indexName = "trialindexName";
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(IndexDocumentType.PRODUCT).newIndexName(indexName), null);
+        ref.tell(Integer.valueOf(3), null);
+        ref.tell(new IndexDocumentVO().config(config).documentType(IndexDocumentType.PRODUCT).newIndexName(indexName).documentId(1l)
+                .product(new Product()), null);
+        ref.tell(IndexingMessage.FLUSH_BULK_REQUESTS, null);
+        completeBulkRequest(ref, testProbeIndexDocumentWorker, IndexDocumentType.PRODUCT, 1);
+        // Counts of the failed document type do not carry over.
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(IndexDocumentType.PRODUCT_PROPERTY).newIndexName(indexName),
+                null);
+        ref.tell(Integer.valueOf(2), null);
+        ref.tell(new IndexDocumentVO().config(config).documentType(IndexDocumentType.PRODUCT_PROPERTY).newIndexName(indexName)
+                .documentId(1l).productProperty(new ProductProperty()), null);
+        testProbeIndexDocumentWorker.expectNoMsg(FiniteDuration.create(100, TimeUnit.MILLISECONDS));
+        ref.tell(new IndexDocumentVO().config(config).documentType(IndexDocumentType.PRODUCT_PROPERTY).newIndexName(indexName)
+                .documentId(2l).productProperty(new ProductProperty()), null);
+        completeBulkRequest(ref, testProbeIndexDocumentWorker, IndexDocumentType.PRODUCT_PROPERTY, 2);
+    }
+
+    private void completeBulkRequest(final TestActorRef<IndexDocumentBulkWorkerActor> ref, final TestProbe testProbeIndexDocumentWorker,
+            final IndexDocumentType documentType, final int documents)
+    {
+        IndexDocumentBulkVO indexDocumentBulkVO = testProbeIndexDocumentWorker.expectMsgClass(IndexDocumentBulkVO.class);
+        assertEquals(documentType, indexDocumentBulkVO.getDocumentType());
+        assertEquals(documents, indexDocumentBulkVO.getDocuments().size());
+        // Indexed, hand the bulk request back as the indexer does.
+        for (IndexDocumentVO indexDocumentVO : indexDocumentBulkVO.getDocuments())
+        {
+            indexDocumentVO.indexDone(true);
+        }
+        ref.tell(indexDocumentBulkVO, null);
+        assertEquals(0, ref.underlyingActor().getInFlightBulkRequests());
+    }
+}
@@ -0,0 +1,90 @@
+package org.jai.search.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.config.IndexingSettings;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.transport.RemoteTransportException;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+
+public class IndexRetryPolicyTest
+{
+    private static final Config config = ConfigFactory.load().getConfig("TestSearchIndexingSystem");
+
+    @Test
+    public void retryTransientFailuresOnly()
+    {
+        IndexRetryPolicy indexRetryPolicy = new IndexRetryPolicy(new IndexingSettings(config));
+        assertTrue(indexRetryPolicy.isRetryable(RestStatus.SERVICE_UNAVAILABLE));
+        assertTrue(indexRetryPolicy.isRetryable(RestStatus.GATEWAY_TIMEOUT));
+        assertFalse(indexRetryPolicy.isRetryable(RestStatus.BAD_REQUEST));
+        assertTrue(indexRetryPolicy.isRetryable(new EsRejectedExecutionException("rejected")));
+        assertTrue(indexRetryPolicy.isRetryable(new RemoteTransportException("node1", new EsRejectedExecutionException("rejected"))));
+        assertFalse(indexRetryPolicy.isRetryable(new ElasticsearchException("mapping failure")));
+        assertTrue(indexRetryPolicy.canRetry(new IndexDocumentVO().retries(4)));
+        assertFalse(indexRetryPolicy.canRetry(new IndexDocumentVO().retries(5)));
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyWithJitter()
+    {
+        IndexRetryPolicy indexRetryPolicy = new IndexRetryPolicy(new IndexingSettings(config));
+        for (int i = 0; i < 100; i++)
+        {
+            // Between half and all of 100 ms doubled per retry, up to 10 seconds
+            assertBetween(50, 100, indexRetryPolicy.getBackoff(0).toMillis());
+            assertBetween(200, 400, indexRetryPolicy.getBackoff(2).toMillis());
+            assertBetween(5000, 10000, indexRetryPolicy.getBackoff(10).toMillis());
+            assertBetween(5000, 10000, indexRetryPolicy.getBackoff(100).toMillis());
+        }
+    }
+
+    @Test
+    public void deadLetterDocumentsAndCountThem() throws Exception
+    {
+        DeadLetterJournal deadLetterJournal = new DeadLetterJournal(new IndexingSettings(config));
+        File file = deadLetterJournal.getFile(ElasticSearchIndexConfig.COM_WEBSITE);
+        file.delete();
+        deadLetterJournal.recordRetries(ElasticSearchIndexConfig.COM_WEBSITE, IndexDocumentType.PRODUCT, 5);
+        deadLetterJournal.append(new IndexDocumentVO().config(ElasticSearchIndexConfig.COM_WEBSITE).newIndexName("index1")
+                .documentType(IndexDocumentType.PRODUCT).documentId(7).retries(5), "rejected\nexecution");
+        assertEquals(1, deadLetterJournal.getDocumentsFailed(ElasticSearchIndexConfig.COM_WEBSITE));
+        assertEquals(5, deadLetterJournal.getDocumentsRetried(ElasticSearchIndexConfig.COM_WEBSITE));
+        assertEquals(0, deadLetterJournal.getDocumentsFailed(ElasticSearchIndexConfig.NL_WEBSITE));
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try
+        {
+            String[] fields = reader.readLine().split("\t");
+            assertEquals("index1", fields[1]);
+            assertEquals("PRODUCT", fields[2]);
+            assertEquals("7", fields[3]);
+            assertEquals("5", fields[4]);
+            assertEquals("rejected execution", fields[5]);
+        }
+        finally
+        {
+            reader.close();
+        }
+        deadLetterJournal.reset(ElasticSearchIndexConfig.COM_WEBSITE);
+        assertEquals(0, deadLetterJournal.getDocumentsFailed(ElasticSearchIndexConfig.COM_WEBSITE));
+    }
+
+    private void assertBetween(final long min, final long max, final long value)
+    {
+        assertTrue(value + " not in " + min + ".." + max, value >= min && value <= max);
+    }
+}
@@ -0,0 +1,76 @@
+package org.jai.search.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.ConfigFactory;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.TestProbe;
+import scala.concurrent.duration.FiniteDuration;
+
+public class PipelineMetricsTest
+{
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void prepareBeforeClass()
+    {
+        system = ActorSystem.create("PipelineMetricsTest", ConfigFactory.load().getConfig("TestSearchIndexingSystem"));
+    }
+
+    @AfterClass
+    public static void cleanupAfterClass()
+    {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    @Test
+    public void recordMessagesAndRestartsPerStage() throws Exception
+    {
+        ActorRef actor = system.actorOf(Props.create(EchoActor.class));
+        TestProbe probe = TestProbe.apply(system);
+        for (int i = 0; i < 10; i++)
+        {
+            actor.tell("message", probe.ref());
+        }
+        // Restarted by the default supervisor strategy
+        actor.tell("fail", probe.ref());
+        actor.tell("message", probe.ref());
+        probe.receiveN(11, FiniteDuration.create(5, TimeUnit.SECONDS));
+        StageMetrics stageMetrics = PipelineMetrics.get(system).getStageMetrics("EchoActor");
+        assertEquals(12, stageMetrics.getMessages());
+        assertEquals(1, stageMetrics.getRestarts());
+        assertTrue(stageMetrics.getMaxProcessingTimeMicros() >= 0);
+        assertEquals(0, stageMetrics.getMailboxSize());
+        assertEquals(12L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName("org.jai.search:type=ActorStage,system=\"PipelineMetricsTest\",name=\"EchoActor\""), "Messages"));
+        PipelineMetrics.get(system).report();
+        assertTrue(PipelineMetrics.get(system).getReportFile().length() > 0);
+    }
+
+    public static class EchoActor extends MeteredUntypedActor
+    {
+        @Override
+        public void onReceive(final Object message)
+        {
+            if ("fail".equals(message))
+            {
+                throw new IllegalStateException("Failing on purpose");
+            }
+            getSender().tell(message, getSelf());
+        }
+    }
+}
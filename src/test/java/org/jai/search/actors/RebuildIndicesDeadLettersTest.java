@@ -0,0 +1,55 @@
+package org.jai.search.actors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jai.search.config.ElasticSearchIndexConfig;
+import org.jai.search.config.IndexDocumentType;
+import org.jai.search.test.AbstractSearchJUnit4SpringContextTests;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorSystem;
+import akka.actor.DeadLetter;
+import akka.testkit.TestProbe;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+public class RebuildIndicesDeadLettersTest extends AbstractSearchJUnit4SpringContextTests
+{
+    @Autowired
+    private ActorSystem actorSystem;
+
+    @Test
+    public void rebuildWithoutDeadLetters() throws Exception
+    {
+        // Subscribe first
+        TestProbe deadLetterSubscriber = TestProbe.apply(actorSystem);
+        actorSystem.eventStream().subscribe(deadLetterSubscriber.ref(), DeadLetter.class);
+        Object result = bootStrapIndexService.rebuildIndexes().awaitCompletion(Duration.create(5, TimeUnit.MINUTES));
+        assertEquals(IndexingMessage.REBUILD_ALL_INDICES_DONE, result);
+        // All completion messages reached the workers and the master.
+        deadLetterSubscriber.expectNoMsg(FiniteDuration.create(1, TimeUnit.SECONDS));
+        actorSystem.eventStream().unsubscribe(deadLetterSubscriber.ref());
+    }
+
+    @Test
+    public void rebuildReport() throws Exception
+    {
+        RebuildReport report = bootStrapIndexService.rebuildIndexes().awaitReport(Duration.create(5, TimeUnit.MINUTES));
+        assertEquals(0, report.getDocumentsFailed());
+        for (ElasticSearchIndexConfig config : ElasticSearchIndexConfig.values())
+        {
+            RebuildReport.DocumentTypeReport productReport = report.getDocumentTypeReport(config, IndexDocumentType.PRODUCT);
+            assertTrue(productReport.getDocumentsIndexed() > 0);
+            assertEquals(productReport.getDocumentsIndexed(), productReport.getDocumentsGenerated());
+            assertEquals(productReport.getDocumentsIndexed(), productReport.getGenerationLatencyMicros().getTotalCount());
+            // Bulk indexing is enabled in the tests
+            assertTrue(productReport.getBulkRequestLatencyMillis().getTotalCount() > 0);
+            assertTrue(productReport.getDocumentsPerSecond() > 0);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.jai.search.actors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.jai.search.config.ElasticSearchIndexConfig;
 import org.jai.search.config.IndexDocumentType;
@@ -8,7 +9,6 @@ import org.jai.search.exception.DocumentGenerationException;
 import org.jai.search.exception.DocumentTypeDataGenerationException;
 import org.jai.search.exception.DocumentTypeIndexingException;
 import org.jai.search.exception.IndexDataException;
-import org.jai.search.model.Product;
 
 import com.typesafe.config.ConfigFactory;
 
@@ -44,12 +44,16 @@ public class SetupDocumentTypeWorkerActorTest
     @Test
     public void handleIndexDocumentTypeMessageVO()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
         TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
         actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
+        TestProbe testProbeDocumentGeneratorWorker = TestProbe.apply(system);
+        actor.setDocumentGeneratorWorkerRouter(testProbeDocumentGeneratorWorker.ref());
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
         IndexDocumentType documentType = IndexDocumentType.PRODUCT;
         String indexName = "trialindexName";
@@ -65,131 +69,195 @@ public class SetupDocumentTypeWorkerActorTest
         assertEquals(config, resultMsg.getConfig());
         assertEquals(documentType, resultMsg.getIndexDocumentType());
         assertEquals(indexName, resultMsg.getNewIndexName());
+        // Bulk indexing is enabled in the test configuration.
+        assertEquals(testProbeDocumentGeneratorWorker.ref(), resultMsg.getDocumentGenerator());
+        assertEquals(testProbeIndexDocumentBulkWorker.ref(), resultMsg.getDocumentIndexer());
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(indexDocumentTypeMessageVO);
         assertEquals(documentType, actor.getIndexDocumentType());
     }
 
     @Test
-    public void handleIndexDocumentVODocumentGeneration()
+    public void handleIndexDataSizeToIndex()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
-        TestProbe testProbeDocumentGeneratorWorker = TestProbe.apply(system);
-        actor.setDocumentGeneratorWorkerRouter(testProbeDocumentGeneratorWorker.ref());
-        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
-        IndexDocumentType documentType = IndexDocumentType.PRODUCT;
-        String indexName = "trialindexName";
-        Long documentId = 1l;
-        IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(config).documentType(documentType).newIndexName(indexName)
-                .documentId(documentId);
-        // Send data back to the sender, generate document
-        assertEquals(0, actor.getTotalDocumentsToIndex());
-        ref.tell(indexDocumentVO, null);
-        testProbeDocumentGeneratorWorker.expectMsgClass(IndexDocumentVO.class);
-        TestActor.Message messageDoc = testProbeDocumentGeneratorWorker.lastMessage();
-        IndexDocumentVO resultMsgDoc = (IndexDocumentVO) messageDoc.msg();
-        assertEquals(config, resultMsgDoc.getConfig());
-        assertEquals(documentType, resultMsgDoc.getDocumentType());
-        assertEquals(indexName, resultMsgDoc.getNewIndexName());
-        assertEquals(documentId, resultMsgDoc.getDocumentId());
-        assertEquals(0, actor.getTotalDocumentsToIndex());
+        TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
+        actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
+        //Let's say total data to generate to 1
+        ref.tell(Integer.valueOf(1), testProbeDataGeneratorWorker.ref());
+        assertEquals(1, actor.getTotalDocumentsToIndex());
+        assertEquals(0, actor.getTotalDocumentsToIndexDone());
+        //Documents are demanded from data generator
+        IndexDocumentDemandVO demandMsg = testProbeDataGeneratorWorker.expectMsgClass(IndexDocumentDemandVO.class);
+        assertEquals(1, demandMsg.getCount());
+        assertEquals(1, actor.getTotalDocumentsDemanded());
     }
     
     @Test
-    public void handleIndexDataSizeToIndex()
+    public void handleIndexDocumentsDone()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
         TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
         actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
-        //Let's say total data to generate to 1
-        ref.tell(Integer.valueOf(1), testProbeDataGeneratorWorker.ref());
-        assertEquals(1, actor.getTotalDocumentsToIndex());
-        assertEquals(0, actor.getTotalDocumentsToIndexDone());
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
+        IndexDocumentType documentType = IndexDocumentType.PRODUCT;
+        //Let's say total data to generate to 3
+        ref.tell(Integer.valueOf(3), testProbeDataGeneratorWorker.ref());
+        // Bulk worker flushes once all the documents arrived.
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(Integer.valueOf(3));
+        // Batched completion from the indexer, one document failed.
+        IndexDocumentsDoneVO indexDocumentsDoneVO = new IndexDocumentsDoneVO().documentType(documentType)
+                .addDocument(new IndexDocumentVO().documentId(1l)).addDocument(new IndexDocumentVO().documentId(2l).indexFailure("Testing"));
+        ref.tell(indexDocumentsDoneVO, null);
+        assertEquals(3, actor.getTotalDocumentsToIndex());
+        assertEquals(2, actor.getTotalDocumentsToIndexDone());
     }
-    
+
     @Test
-    public void handleIndexDocumentVOIndexData()
+    public void handleAllIndexDocumentsDone()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
-        TestProbe testProbeIndexDataWorker = TestProbe.apply(system);
-        actor.setIndexDocumentWorkerRouter(testProbeIndexDataWorker.ref());
+        TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
+        actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
         IndexDocumentType documentType = IndexDocumentType.PRODUCT;
         String indexName = "trialindexName";
-        Long documentId = 1l;
-        Product product = new Product();
-        product.setId(documentId);
-        IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(config).documentType(documentType).newIndexName(indexName)
-                .documentId(documentId);
-        // send data back, index document.
-        indexDocumentVO.product(product);
-        // This is controlled for doc generation, won;t change here.
-        assertEquals(0, actor.getTotalDocumentsToIndex());
-        ref.tell(indexDocumentVO, null);
-        testProbeIndexDataWorker.expectMsgClass(IndexDocumentVO.class);
-        TestActor.Message messageDocIndex = testProbeIndexDataWorker.lastMessage();
-        IndexDocumentVO resultMsgDocIndex = (IndexDocumentVO) messageDocIndex.msg();
-        assertEquals(config, resultMsgDocIndex.getConfig());
-        assertEquals(documentType, resultMsgDocIndex.getDocumentType());
-        assertEquals(indexName, resultMsgDocIndex.getNewIndexName());
-        assertEquals(documentId, resultMsgDocIndex.getDocumentId());
-        assertEquals(product, resultMsgDocIndex.getProduct());
+        TestProbe testProbeParent = TestProbe.apply(system);
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO().config(config).documentType(documentType)
+                .newIndexName(indexName).replyTo(testProbeParent.ref());
+        ref.tell(indexDocumentTypeMessageVO, null);
+        testProbeDataGeneratorWorker.expectMsgClass(IndexDocumentTypeMessageVO.class);
+        testProbeIndexDocumentBulkWorker.expectMsgClass(IndexDocumentTypeMessageVO.class);
+        //Let's say total data to generate to 2
+        ref.tell(Integer.valueOf(2), testProbeDataGeneratorWorker.ref());
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(Integer.valueOf(2));
+        TestProbe testProbeProgressSubscriber = TestProbe.apply(system);
+        system.eventStream().subscribe(testProbeProgressSubscriber.ref(), IndexingProgressVO.class);
+        // Bulk indexed, one document failed.
+        IndexDocumentsDoneVO indexDocumentsDoneVO = new IndexDocumentsDoneVO().documentType(documentType)
+                .addDocument(new IndexDocumentVO().documentId(1l)).addDocument(new IndexDocumentVO().documentId(2l).indexFailure("Testing"));
+        ref.tell(indexDocumentsDoneVO, null);
+        // Failed documents are also done, state is set back to initial and message sent to parent.
+        testProbeParent.expectMsgEquals(documentType);
+        // Completion of the document type is published as progress.
+        IndexingProgressVO progressMsg = testProbeProgressSubscriber.expectMsgClass(IndexingProgressVO.class);
+        system.eventStream().unsubscribe(testProbeProgressSubscriber.ref());
+        assertEquals(config, progressMsg.getConfig());
+        assertEquals(documentType, progressMsg.getIndexDocumentType());
+        assertEquals(2, progressMsg.getDocumentsDone());
+        assertEquals(2, progressMsg.getDocumentsToIndex());
+        assertTrue(progressMsg.isDone());
         assertEquals(0, actor.getTotalDocumentsToIndex());
+        assertEquals(0, actor.getTotalDocumentsToIndexDone());
+        assertEquals(null, actor.getIndexDocumentType());
     }
 
     @Test
-    public void handleIndexDocumentVOIndexDone()
+    public void handleCheckpointOfIndexedDocuments()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
-        TestProbe testProbeIndexDataWorker = TestProbe.apply(system);
-        actor.setIndexDocumentWorkerRouter(testProbeIndexDataWorker.ref());
+        TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
+        actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
         IndexDocumentType documentType = IndexDocumentType.PRODUCT;
         String indexName = "trialindexName";
-        Long documentId = 1l;
-        Product product = new Product();
-        product.setId(documentId);
-        IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(config).documentType(documentType).newIndexName(indexName)
-                .documentId(documentId);
-        // send data back, index document.
-        indexDocumentVO.product(product);
-        indexDocumentVO.indexDone(true);
-        // Actor state check
-        assertEquals(0, actor.getTotalDocumentsToIndexDone());
-        ref.tell(indexDocumentVO, null);
-        testProbeIndexDataWorker.expectNoMsg();
-        ;
-        assertEquals(1, actor.getTotalDocumentsToIndexDone());
+        RebuildCheckpointJournal checkpointJournal = RebuildCheckpointJournal.get(system);
+        checkpointJournal.start(config, indexName);
+        TestProbe testProbeParent = TestProbe.apply(system);
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(documentType).newIndexName(indexName)
+                .replyTo(testProbeParent.ref()), null);
+        testProbeDataGeneratorWorker.expectMsgClass(IndexDocumentTypeMessageVO.class);
+        ref.tell(Integer.valueOf(3), testProbeDataGeneratorWorker.ref());
+        // Completion may arrive before the emitted documents are reported.
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(2l)), null);
+        ref.tell(new IndexDocumentsEmittedVO().addDocumentRange(1l, 2l).addDocumentRange(3l, 3l), testProbeDataGeneratorWorker.ref());
+        // Checkpoint only moves past ranges fully indexed without gaps.
+        assertEquals(null, actor.getCheckpointDocumentId());
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(1l)), null);
+        assertEquals(Long.valueOf(2), actor.getCheckpointDocumentId());
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(3l)), null);
+        testProbeParent.expectMsgEquals(documentType);
+        // Checkpoint journaled once the document type is done.
+        assertEquals(Long.valueOf(3), checkpointJournal.getCheckpoint(config, indexName, documentType));
+        assertEquals(indexName, checkpointJournal.getIndexName(config));
+        checkpointJournal.clear(config);
+        assertEquals(null, checkpointJournal.getIndexName(config));
+    }
+
+    @Test
+    public void handleCheckpointOfDocumentRangesGeneratedInParallel()
+    {
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
+        final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
+        final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
+        // Mock the behavior of child/worker actors.
+        TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
+        actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        IndexDocumentType documentType = IndexDocumentType.PRODUCT_PROPERTY;
+        String indexName = "trialindexName";
+        RebuildCheckpointJournal checkpointJournal = RebuildCheckpointJournal.get(system);
+        checkpointJournal.start(config, indexName);
+        TestProbe testProbeParent = TestProbe.apply(system);
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(documentType).newIndexName(indexName)
+                .replyTo(testProbeParent.ref()), null);
+        testProbeDataGeneratorWorker.expectMsgClass(IndexDocumentTypeMessageVO.class);
+        ref.tell(Integer.valueOf(6), testProbeDataGeneratorWorker.ref());
+        ref.tell(new IndexDocumentsEmittedVO().addDocumentRange(1l, 2l).addDocumentRange(3l, 4l).addDocumentRange(5l, 6l),
+                testProbeDataGeneratorWorker.ref());
+        // Later ranges are generated and indexed first.
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(5l))
+                .addDocument(new IndexDocumentVO().documentId(6l)).addDocument(new IndexDocumentVO().documentId(3l)), null);
+        assertEquals(null, actor.getCheckpointDocumentId());
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(2l))
+                .addDocument(new IndexDocumentVO().documentId(1l)), null);
+        // Range 3 to 4 is not complete yet.
+        assertEquals(Long.valueOf(2), actor.getCheckpointDocumentId());
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(4l)), null);
+        testProbeParent.expectMsgEquals(documentType);
+        assertEquals(Long.valueOf(6), checkpointJournal.getCheckpoint(config, indexName, documentType));
+        checkpointJournal.clear(config);
     }
 
     @Test
     public void handleFullFlow()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
         TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
         TestProbe testProbeDocumentGeneratorWorker = TestProbe.apply(system);
         TestProbe testProbeIndexDataWorker = TestProbe.apply(system);
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
         actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
         actor.setDocumentGeneratorWorkerRouter(testProbeDocumentGeneratorWorker.ref());
         actor.setIndexDocumentWorkerRouter(testProbeIndexDataWorker.ref());
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
         IndexDocumentType documentType = IndexDocumentType.PRODUCT;
         String indexName = "trialindexName";
+        TestProbe testProbeParent = TestProbe.apply(system);
         IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO().config(config).documentType(documentType)
-                .newIndexName(indexName);
+                .newIndexName(indexName).replyTo(testProbeParent.ref());
         assertEquals(0, actor.getTotalDocumentsToIndex());
         assertEquals(0, actor.getTotalDocumentsToIndexDone());
         assertEquals(null, actor.getIndexDocumentType());
@@ -201,53 +269,27 @@ public class SetupDocumentTypeWorkerActorTest
         assertEquals(config, resultMsg.getConfig());
         assertEquals(documentType, resultMsg.getIndexDocumentType());
         assertEquals(indexName, resultMsg.getNewIndexName());
+        // Documents are chained through the generator and the bulk worker, not through this actor.
+        assertEquals(testProbeDocumentGeneratorWorker.ref(), resultMsg.getDocumentGenerator());
+        assertEquals(testProbeIndexDocumentBulkWorker.ref(), resultMsg.getDocumentIndexer());
+        //Documents are demanded from data generator
+        testProbeDataGeneratorWorker.expectMsgClass(IndexDocumentDemandVO.class);
         //updated actor state
         assertEquals(0, actor.getTotalDocumentsToIndex());
         assertEquals(0, actor.getTotalDocumentsToIndexDone());
         assertEquals(documentType, actor.getIndexDocumentType());
+        // Bulk worker counts the documents of the document type from now on.
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(indexDocumentTypeMessageVO);
         //Let's say total data to generate to 1
         ref.tell(Integer.valueOf(1), testProbeDataGeneratorWorker.ref());
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(Integer.valueOf(1));
         assertEquals(1, actor.getTotalDocumentsToIndex());
         assertEquals(0, actor.getTotalDocumentsToIndexDone());
         assertEquals(documentType, actor.getIndexDocumentType());
-        Long documentId = 1l;
-        IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(resultMsg.getConfig())
-                .documentType(indexDocumentTypeMessageVO.getIndexDocumentType()).newIndexName(indexDocumentTypeMessageVO.getNewIndexName())
-                .documentId(documentId);
-        // Send data back to the sender, generate document
-        ref.tell(indexDocumentVO, testProbeDataGeneratorWorker.ref());
-        testProbeDocumentGeneratorWorker.expectMsgClass(IndexDocumentVO.class);
-        TestActor.Message messageDoc = testProbeDocumentGeneratorWorker.lastMessage();
-        IndexDocumentVO resultMsgDoc = (IndexDocumentVO) messageDoc.msg();
-        assertEquals(config, resultMsgDoc.getConfig());
-        assertEquals(documentType, resultMsgDoc.getDocumentType());
-        assertEquals(indexName, resultMsgDoc.getNewIndexName());
-        assertEquals(documentId, resultMsgDoc.getDocumentId());
-        assertEquals(1, actor.getTotalDocumentsToIndex());
-        assertEquals(0, actor.getTotalDocumentsToIndexDone());
-        assertEquals(documentType, actor.getIndexDocumentType());
-        // send data back, index document.
-        Product product = new Product();
-        product.setId(documentId);
-        resultMsgDoc.product(product);
-        ref.tell(resultMsgDoc, testProbeDocumentGeneratorWorker.ref());
-        testProbeIndexDataWorker.expectMsgClass(IndexDocumentVO.class);
-        TestActor.Message messageDocIndex = testProbeIndexDataWorker.lastMessage();
-        IndexDocumentVO resultMsgDocIndex = (IndexDocumentVO) messageDocIndex.msg();
-        assertEquals(config, resultMsgDocIndex.getConfig());
-        assertEquals(documentType, resultMsgDocIndex.getDocumentType());
-        assertEquals(indexName, resultMsgDocIndex.getNewIndexName());
-        assertEquals(documentId, resultMsgDocIndex.getDocumentId());
-        assertEquals(product, resultMsgDocIndex.getProduct());
-        assertEquals(1, actor.getTotalDocumentsToIndex());
-        assertEquals(0, actor.getTotalDocumentsToIndexDone());
-        assertEquals(documentType, actor.getIndexDocumentType());
+        ref.tell(new IndexDocumentsEmittedVO().addDocumentId(1l), testProbeDataGeneratorWorker.ref());
         // Send back message, indexdone.
-        resultMsgDocIndex.indexDone(true);
-        TestProbe testProbeParent = TestProbe.apply(system);
-        String string = testProbeParent.ref().path().toString();
-        actor.setParentActorPathString(string);
-        ref.tell(resultMsgDocIndex, null);
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(1l)),
+                testProbeIndexDataWorker.ref());
         // state is set back to initial and message sent to parent.
         testProbeParent.expectMsgClass(IndexDocumentType.class);
         TestActor.Message messageDocIndexDone = testProbeParent.lastMessage();
@@ -257,12 +299,55 @@ public class SetupDocumentTypeWorkerActorTest
         assertEquals(0, actor.getTotalDocumentsToIndex());
         assertEquals(0, actor.getTotalDocumentsToIndexDone());
         assertEquals(null, actor.getIndexDocumentType());
+        // No document went through this actor.
+        testProbeDocumentGeneratorWorker.expectNoMsg();
+        testProbeIndexDataWorker.expectNoMsg();
+    }
+
+    @Test
+    public void handleFailedDocumentBeforeNextDocumentType()
+    {
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
+        final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
+        final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
+        // Mock the behavior of child/worker actors.
+        TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
+        TestProbe testProbeDocumentGeneratorWorker = TestProbe.apply(system);
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
+        actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
+        actor.setDocumentGeneratorWorkerRouter(testProbeDocumentGeneratorWorker.ref());
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        String indexName = "trialindexName";
+        TestProbe testProbeParent = TestProbe.apply(system);
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(IndexDocumentType.PRODUCT).newIndexName(indexName)
+                .replyTo(testProbeParent.ref()), null);
+        testProbeIndexDocumentBulkWorker.expectMsgClass(IndexDocumentTypeMessageVO.class);
+        ref.tell(Integer.valueOf(2), testProbeDataGeneratorWorker.ref());
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(Integer.valueOf(2));
+        // Failed document never reaches the bulk worker, it is told so to flush its last batch.
+        ref.tell(new DocumentGenerationException("Error generation document!"), testProbeDocumentGeneratorWorker.ref());
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(IndexingMessage.DOCUMENT_GENERATION_FAILED);
+        ref.tell(new IndexDocumentsDoneVO().documentType(IndexDocumentType.PRODUCT).addDocument(new IndexDocumentVO().documentId(1l)),
+                null);
+        testProbeParent.expectMsgEquals(IndexDocumentType.PRODUCT);
+        // Next document type starts counting on the bulk worker.
+        ref.tell(new IndexDocumentTypeMessageVO().config(config).documentType(IndexDocumentType.PRODUCT_PROPERTY).newIndexName(indexName)
+                .replyTo(testProbeParent.ref()), null);
+        IndexDocumentTypeMessageVO resultMsg = testProbeIndexDocumentBulkWorker.expectMsgClass(IndexDocumentTypeMessageVO.class);
+        assertEquals(IndexDocumentType.PRODUCT_PROPERTY, resultMsg.getIndexDocumentType());
+        // Data generation failure ends the document type on the bulk worker too.
+        ref.tell(new DocumentTypeDataGenerationException(IndexDocumentType.PRODUCT_PROPERTY, "Testing", new RuntimeException()),
+                testProbeDataGeneratorWorker.ref());
+        testProbeParent.expectMsgClass(DocumentTypeIndexingException.class);
+        testProbeIndexDocumentBulkWorker.expectMsgEquals(IndexingMessage.FLUSH_BULK_REQUESTS);
+        assertEquals(null, actor.getIndexDocumentType());
     }
 
     @Test
     public void handleUnhandledMessage()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
@@ -289,20 +374,24 @@ public class SetupDocumentTypeWorkerActorTest
     @Test
     public void handleChildActorsException()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
         TestProbe testProbeDataGeneratorWorker = TestProbe.apply(system);
         TestProbe testProbeDocumentGeneratorWorker = TestProbe.apply(system);
         TestProbe testProbeIndexDataWorker = TestProbe.apply(system);
+        TestProbe testProbeIndexDocumentBulkWorker = TestProbe.apply(system);
         actor.setDataGeneratorWorkerRouter(testProbeDataGeneratorWorker.ref());
         actor.setDocumentGeneratorWorkerRouter(testProbeDocumentGeneratorWorker.ref());
         actor.setIndexDocumentWorkerRouter(testProbeIndexDataWorker.ref());
+        actor.setIndexDocumentBulkWorker(testProbeIndexDocumentBulkWorker.ref());
         ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
         IndexDocumentType documentType = IndexDocumentType.PRODUCT;
         String indexName = "trialindexName";
-        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO().config(config).newIndexName(indexName).documentType(documentType);
+        TestProbe testProbeParentActor = TestProbe.apply(system);
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO().config(config).newIndexName(indexName).documentType(documentType)
+                .replyTo(testProbeParentActor.ref());
         //initial actor state
         assertEquals(0, actor.getTotalDocumentsToIndex());
         assertEquals(0, actor.getTotalDocumentsToIndexDone());
@@ -324,10 +413,6 @@ public class SetupDocumentTypeWorkerActorTest
         //send Data generate error from child
         DocumentTypeDataGenerationException documentTypeDataGenerationException = new DocumentTypeDataGenerationException(documentType, "Testing", new RuntimeException());
         // parent Exception, tell parent that exception occurred.
-        TestProbe testProbeParentActor = TestProbe.apply(system);
-        String parentString = testProbeParentActor.ref().path().toString();
-        actor.setParentActorPathString(parentString);
-
         ref.tell(documentTypeDataGenerationException, testProbeDataGeneratorWorker.ref());
         
         //Updated actor state, state reset
@@ -346,24 +431,8 @@ public class SetupDocumentTypeWorkerActorTest
         assertEquals(0, actor.getTotalDocumentsToIndexDone());
         assertEquals(documentType, actor.getIndexDocumentType());
         
-        Long documentId = 1l;
-        IndexDocumentVO indexDocumentVO = new IndexDocumentVO().config(resultMsg.getConfig())
-                .documentType(indexDocumentTypeMessageVO.getIndexDocumentType()).newIndexName(indexDocumentTypeMessageVO.getNewIndexName())
-                .documentId(documentId);
-        // Send data back to the sender, generate document
-        ref.tell(indexDocumentVO, testProbeDataGeneratorWorker.ref());
-        testProbeDocumentGeneratorWorker.expectMsgClass(IndexDocumentVO.class);
-        TestActor.Message messageDoc = testProbeDocumentGeneratorWorker.lastMessage();
-        IndexDocumentVO resultMsgDoc = (IndexDocumentVO) messageDoc.msg();
-        assertEquals(config, resultMsgDoc.getConfig());
-        assertEquals(documentType, resultMsgDoc.getDocumentType());
-        assertEquals(indexName, resultMsgDoc.getNewIndexName());
-        assertEquals(documentId, resultMsgDoc.getDocumentId());
-        //updated actor state
-        assertEquals(1, actor.getTotalDocumentsToIndex());
-        assertEquals(0, actor.getTotalDocumentsToIndexDone());
-        assertEquals(documentType, actor.getIndexDocumentType());
-
+        // Documents themselves are chained from the data generator through the document generator to the indexer.
+        testProbeDocumentGeneratorWorker.expectNoMsg();
         DocumentGenerationException documentGenerationException = new DocumentGenerationException("Error generation document!");
         ref.tell(documentGenerationException, testProbeDocumentGeneratorWorker.ref());
         
@@ -382,22 +451,6 @@ public class SetupDocumentTypeWorkerActorTest
         //Let's say total data to generate to 1
         ref.tell(indexDocumentTypeMessageVO, null);
         ref.tell(Integer.valueOf(1), testProbeDataGeneratorWorker.ref());
-        Product product = new Product();
-        product.setId(documentId);
-        resultMsgDoc.product(product);
-        ref.tell(resultMsgDoc, testProbeDocumentGeneratorWorker.ref());
-        testProbeIndexDataWorker.expectMsgClass(IndexDocumentVO.class);
-        TestActor.Message messageDocIndex = testProbeIndexDataWorker.lastMessage();
-        IndexDocumentVO resultMsgDocIndex = (IndexDocumentVO) messageDocIndex.msg();
-        assertEquals(config, resultMsgDocIndex.getConfig());
-        assertEquals(documentType, resultMsgDocIndex.getDocumentType());
-        assertEquals(indexName, resultMsgDocIndex.getNewIndexName());
-        assertEquals(documentId, resultMsgDocIndex.getDocumentId());
-        assertEquals(product, resultMsgDocIndex.getProduct());
-        assertEquals(1, actor.getTotalDocumentsToIndex());
-        assertEquals(0, actor.getTotalDocumentsToIndexDone());
-        assertEquals(documentType, actor.getIndexDocumentType());
-        
         IndexDataException indexDataException = new IndexDataException("Error while indexing document!");
         ref.tell(indexDataException, testProbeIndexDataWorker.ref());
         //Updated actor state, decreases doc count by 1.
@@ -419,8 +472,8 @@ public class SetupDocumentTypeWorkerActorTest
         //Let's say total data to generate to 1
         ref.tell(indexDocumentTypeMessageVO, null);
         ref.tell(Integer.valueOf(1), testProbeDataGeneratorWorker.ref());
-        resultMsgDocIndex.indexDone(true);
-        ref.tell(resultMsgDocIndex, null);
+        ref.tell(new IndexDocumentsDoneVO().documentType(documentType).addDocument(new IndexDocumentVO().documentId(1l)),
+                testProbeIndexDataWorker.ref());
         // state is set back to initial and message sent to parent.
         testProbeParentActor.expectMsgClass(IndexDocumentType.class);
         testProbeParentActorMessage = testProbeParentActor.lastMessage();
@@ -434,7 +487,7 @@ public class SetupDocumentTypeWorkerActorTest
     @Test
     public void sendExceptionToParent()
     {
-        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null);
+        final Props props = Props.create(SetupDocumentTypeWorkerActor.class, null, null, null);
         final TestActorRef<SetupDocumentTypeWorkerActor> ref = TestActorRef.create(system, props);
         final SetupDocumentTypeWorkerActor actor = ref.underlyingActor();
         // Mock the behavior of child/worker actors.
@@ -448,14 +501,13 @@ public class SetupDocumentTypeWorkerActorTest
         IndexDocumentType documentType = IndexDocumentType.PRODUCT;
         String indexName = "trialindexName";
         // no document type
-        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO().config(config).newIndexName(indexName).documentType(documentType);
+        TestProbe testProbeParentActor = TestProbe.apply(system);
+        IndexDocumentTypeMessageVO indexDocumentTypeMessageVO = new IndexDocumentTypeMessageVO().config(config).newIndexName(indexName).documentType(documentType)
+                .replyTo(testProbeParentActor.ref());
         assertEquals(0, actor.getTotalDocumentsToIndex());
         assertEquals(0, actor.getTotalDocumentsToIndexDone());
         assertEquals(null, actor.getIndexDocumentType());
         // parent Exception, NPE in data generator
-        TestProbe testProbeParentActor = TestProbe.apply(system);
-        String parentString = testProbeParentActor.ref().path().toString();
-        actor.setParentActorPathString(parentString);
         ref.tell(indexDocumentTypeMessageVO, null);
         testProbeParentActor.expectMsgClass(DocumentTypeIndexingException.class);
         TestActor.Message testProbeParentActorMessage = testProbeParentActor.lastMessage();
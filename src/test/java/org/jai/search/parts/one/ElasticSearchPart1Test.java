@@ -7,6 +7,9 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Date;
 import java.util.HashMap;
@@ -14,6 +17,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import org.elasticsearch.action.admin.cluster.node.info.NodesInfoRequest;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.client.Client;
 
 import org.jai.search.config.ElasticSearchIndexConfig;
@@ -138,6 +142,59 @@ public class ElasticSearchPart1Test extends AbstractSearchJUnit4SpringContextTes
         assertFalse(indexProductData.isProductExists(config, productId));
     }
     
+    @Test
+    public void versionedIndexDocumentHandling()
+    {
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        
+        Long productId = 323456l;
+        Product product = new Product();
+        product.setId(productId);
+        product.setTitle("newer title");
+        product.setPrice(BigDecimal.valueOf(5));
+        product.setLastModified(new Date(2000));
+        indexProductData.indexProduct(config, null, product);
+        
+        //Older update is ignored
+        product.setTitle("older title");
+        product.setLastModified(new Date(1000));
+        indexProductData.indexProduct(config, null, product);
+        
+        GetResponse getResponse = searchClientService.getClient().prepareGet(config.getIndexAliasName(), config.getDocumentType(), String.valueOf(productId))
+                .get();
+        assertEquals(2000, getResponse.getVersion());
+        assertEquals("newer title", getResponse.getSource().get("title"));
+        
+        indexProductData.deleteProduct(config, productId);
+    }
+    
+    @Test
+    public void indexFromFileHandling() throws IOException
+    {
+        ElasticSearchIndexConfig config = ElasticSearchIndexConfig.COM_WEBSITE;
+        
+        Long firstProductId = 223456l;
+        Long secondProductId = 223457l;
+        assertFalse(indexProductData.isProductExists(config, firstProductId));
+        assertFalse(indexProductData.isProductExists(config, secondProductId));
+        
+        File file = File.createTempFile("products", ".ndjson");
+        file.deleteOnExit();
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(("{\"index\":{\"_id\":\"" + firstProductId + "\"}}\n{\"title\":\"blah blah\",\"price\":5}\n"
+                + "{\"index\":{\"_id\":\"" + secondProductId + "\"}}\n{\"title\":\"blah blah blah\",\"price\":6}").getBytes("UTF-8"));
+        outputStream.close();
+        
+        //Small bulk size, each document in its own bulk request
+        assertEquals(2, indexProductData.indexFromFile(config, null, file, 10));
+
+        assertTrue(indexProductData.isProductExists(config, firstProductId));
+        assertTrue(indexProductData.isProductExists(config, secondProductId));
+        
+        indexProductData.deleteProduct(config, firstProductId);
+        indexProductData.deleteProduct(config, secondProductId);
+    }
+    
     @Test
     public void aliasHandling()
     {
@@ -0,0 +1,104 @@
+package org.jai.search.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jai.search.model.AutoSuggestionEntry;
+import org.jai.search.model.Category;
+import org.jai.search.model.Product;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class AutoSuggestionTrieTest
+{
+    @Test
+    public void completePrefixInTermOrder()
+    {
+        AutoSuggestionTrie trie = AutoSuggestionTrie.builder().add("television").add("tv").add("tv", 2).add("tab").add("audio").build();
+        assertEquals(4, trie.getTerms());
+        List<AutoSuggestionEntry> completions = trie.complete("t", 10);
+        assertEquals(3, completions.size());
+        assertEquals("tab", completions.get(0).getTerm());
+        assertEquals("television", completions.get(1).getTerm());
+        assertEquals("tv", completions.get(2).getTerm());
+        assertEquals(3, completions.get(2).getCount());
+        assertEquals(2, trie.complete("t", 2).size());
+        assertEquals(1, trie.complete("tv", 10).size());
+        assertEquals(4, trie.complete("", 10).size());
+        assertTrue(trie.complete("tx", 10).isEmpty());
+        assertTrue(trie.complete("televisions", 10).isEmpty());
+    }
+
+    @Test
+    public void publishTrieOfRebuiltIndex()
+    {
+        AutoSuggestionTries tries = new AutoSuggestionTries();
+        tries.startBuild("com", "com_1");
+        Category electronics = new Category("Electronics", null, "main");
+        Product product = new Product();
+        product.setId(1L);
+        product.addKeyword("HD");
+        product.addKeyword("hd");
+        product.addCategory(new Category("Televisions", electronics, "main"));
+        tries.productsIndexed("com_1", Collections.singletonList(product));
+        assertNull(tries.getTrie("com"));
+        tries.publish("com", "com_1");
+        AutoSuggestionTrie trie = tries.getTrie("com");
+        assertEquals(3, trie.getTerms());
+        assertEquals(1, trie.complete("hd", 10).get(0).getCount());
+        assertEquals("electronics", trie.complete("e", 10).get(0).getTerm());
+        // Alias moved to an index that was not rebuilt from the start
+        tries.publish("com", "com_2");
+        assertNull(tries.getTrie("com"));
+        // Nothing reported for the index
+        tries.startBuild("com", "com_3");
+        tries.publish("com", "com_3");
+        assertNull(tries.getTrie("com"));
+    }
+
+    @Test
+    public void dropStaleTrieOfAlias()
+    {
+        AutoSuggestionTries tries = new AutoSuggestionTries();
+        Product product = new Product();
+        product.addKeyword("hd");
+        tries.startBuild("com", "com_1");
+        tries.productsIndexed("com_1", Collections.singletonList(product));
+        tries.publish("com", "com_1");
+        // Incremental update into the alias
+        tries.productsIndexed("com", Collections.singletonList(product));
+        assertNull(tries.getTrie("com"));
+        tries.startBuild("com", "com_2");
+        tries.productsIndexed("com_2", Collections.singletonList(product));
+        tries.publish("com", "com_2");
+        tries.indexChanged("com");
+        assertNull(tries.getTrie("com"));
+        // File import into the index being rebuilt
+        tries.startBuild("com", "com_3");
+        tries.productsIndexed("com_3", Collections.singletonList(product));
+        tries.indexChanged("com_3");
+        tries.publish("com", "com_3");
+        assertNull(tries.getTrie("com"));
+    }
+
+    @Test
+    public void publishOnlyDropsBuildsOfSameAlias()
+    {
+        AutoSuggestionTries tries = new AutoSuggestionTries();
+        Product product = new Product();
+        product.addKeyword("hd");
+        tries.startBuild("com", "com_1");
+        tries.startBuild("comx", "comx_1");
+        tries.productsIndexed("com_1", Collections.singletonList(product));
+        tries.productsIndexed("comx_1", Collections.singletonList(product));
+        tries.publish("com", "com_1");
+        tries.publish("comx", "comx_1");
+        assertNotNull(tries.getTrie("com"));
+        assertNotNull(tries.getTrie("comx"));
+    }
+}
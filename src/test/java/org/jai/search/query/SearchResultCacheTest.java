@@ -0,0 +1,136 @@
+package org.jai.search.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.jai.search.model.FacetResult;
+import org.jai.search.model.Product;
+import org.jai.search.model.ProductSearchResult;
+import org.jai.search.model.SearchCriteria;
+
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchResultCacheTest
+{
+    @Test
+    public void keyIgnoresOrderOfIndicesAndFilters()
+    {
+        SearchCriteria searchCriteria = new SearchCriteria().query("hd").indices("a", "b").from(10).size(20).sortOrder(SortOrder.DESC)
+                .addSingleSelectFilter("color", "red").addSingleSelectFilter("size", "xl").addMultiSelectFilter("category", "tv")
+                .addMultiSelectFilter("category", "audio");
+        SearchCriteria reordered = new SearchCriteria().query("hd").indices("b", "a").from(10).size(20).sortOrder(SortOrder.DESC)
+                .addSingleSelectFilter("size", "xl").addSingleSelectFilter("color", "red").addMultiSelectFilter("category", "audio")
+                .addMultiSelectFilter("category", "tv");
+        assertEquals(SearchResultCache.getKey(searchCriteria), SearchResultCache.getKey(reordered));
+        assertFalse(SearchResultCache.getKey(searchCriteria).equals(SearchResultCache.getKey(reordered.from(20))));
+        assertFalse(SearchResultCache.getKey(new SearchCriteria().query("a,b")).equals(
+                SearchResultCache.getKey(new SearchCriteria().query("a").indices("b"))));
+    }
+
+    @Test
+    public void countHitsAndMisses()
+    {
+        SearchResultCache cache = new SearchResultCache(10, 60000);
+        String key = SearchResultCache.getKey(new SearchCriteria().query("hd"));
+        assertNull(cache.get(key));
+        ProductSearchResult result = new ProductSearchResult();
+        Product product = new Product();
+        product.setId(1L);
+        product.setTitle("hd tv");
+        result.addProduct(product);
+        cache.put(key, cache.getGeneration(), new String[] { "a" }, result);
+        product.setTitle("changed");
+        ProductSearchResult cachedResult = cache.get(key);
+        assertNotSame(result, cachedResult);
+        assertEquals("hd tv", cachedResult.getProducts().get(0).getTitle());
+        // Callers get their own copy
+        cachedResult.getProducts().get(0).setTitle("changed");
+        cachedResult.getProducts().clear();
+        assertEquals("hd tv", cache.get(key).getProducts().get(0).getTitle());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2.0 / 3, cache.getHitRatio(), 0.001);
+        cache.recordLatency(true, 5000);
+        assertEquals(1, cache.getHitLatencyMicros().getTotalCount());
+    }
+
+    @Test
+    public void facetsKeyIgnoresPagingAndSorting()
+    {
+        SearchCriteria searchCriteria = new SearchCriteria().query("hd").indices("a").facets("category").addSingleSelectFilter("color",
+                "red");
+        String facetsKey = SearchResultCache.getFacetsKey(searchCriteria);
+        assertNotNull(facetsKey);
+        assertEquals(facetsKey, SearchResultCache.getFacetsKey(searchCriteria.from(10).size(20).sortOrder(SortOrder.ASC)));
+        assertFalse(facetsKey.equals(SearchResultCache.getFacetsKey(searchCriteria.addSingleSelectFilter("size", "xl"))));
+        assertNull(SearchResultCache.getFacetsKey(searchCriteria.noFacets(true)));
+        assertNull(SearchResultCache.getFacetsKey(new SearchCriteria().query("hd")));
+    }
+
+    @Test
+    public void cacheFacetsApartFromPages()
+    {
+        SearchResultCache cache = new SearchResultCache(10, 60000);
+        String facetsKey = SearchResultCache.getFacetsKey(new SearchCriteria().query("hd").facets("category"));
+        assertNull(cache.getFacets(facetsKey));
+        List<FacetResult> facets = new ArrayList<FacetResult>();
+        FacetResult facetResult = new FacetResult();
+        facetResult.setCode("category");
+        facets.add(facetResult);
+        cache.putFacets(facetsKey, cache.getGeneration(), new String[] { "a" }, facets);
+        facets.clear();
+        assertEquals("category", cache.getFacets(facetsKey).get(0).getCode());
+        assertEquals(1, cache.getFacetHits());
+        assertEquals(1, cache.getFacetMisses());
+        assertEquals(0, cache.size());
+        cache.invalidate("a");
+        assertNull(cache.getFacets(facetsKey));
+        assertEquals(0, cache.getFacetsSize());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedAndExpired() throws Exception
+    {
+        SearchResultCache cache = new SearchResultCache(2, 60000);
+        cache.put("1", cache.getGeneration(), null, new ProductSearchResult());
+        cache.put("2", cache.getGeneration(), null, new ProductSearchResult());
+        cache.get("1");
+        cache.put("3", cache.getGeneration(), null, new ProductSearchResult());
+        assertNull(cache.get("2"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        SearchResultCache expiringCache = new SearchResultCache(2, 10);
+        expiringCache.put("1", expiringCache.getGeneration(), null, new ProductSearchResult());
+        Thread.sleep(50);
+        assertNull(expiringCache.get("1"));
+        assertEquals(0, expiringCache.size());
+    }
+
+    @Test
+    public void invalidateResultsOfAlias()
+    {
+        SearchResultCache cache = new SearchResultCache(10, 60000);
+        long generation = cache.getGeneration();
+        cache.put("a", generation, new String[] { "a" }, new ProductSearchResult());
+        cache.put("b", generation, new String[] { "b" }, new ProductSearchResult());
+        cache.put("all", generation, null, new ProductSearchResult());
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertNull(cache.get("all"));
+        assertEquals(1, cache.size());
+        // Search started before the alias was moved
+        cache.put("a", generation, new String[] { "a" }, new ProductSearchResult());
+        assertNull(cache.get("a"));
+        // Documents of the alias changed by an incremental update
+        cache.put("b", cache.getGeneration(), new String[] { "b" }, new ProductSearchResult());
+        cache.indexChanged("b");
+        assertNull(cache.get("b"));
+    }
+}
@@ -0,0 +1,211 @@
+package org.jai.search.query.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jai.search.client.SearchClientService;
+import org.jai.search.config.QuerySettings;
+
+import com.typesafe.config.ConfigFactory;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.internal.InternalClient;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MultiSearchCoalescerTest
+{
+    private final List<Integer> multiSearchSizes = new ArrayList<Integer>();
+
+    private final AtomicInteger searches = new AtomicInteger();
+
+    // Plain search requests are answered once released, so the requests sent after them are outstanding together.
+    private final List<ActionListener<SearchResponse>> heldSearches = new ArrayList<ActionListener<SearchResponse>>();
+
+    private final Client client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { InternalClient.class },
+            new InvocationHandler()
+            {
+                @SuppressWarnings("unchecked")
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args)
+                {
+                    if ("multiSearch".equals(method.getName()) && args.length == 2)
+                    {
+                        final int size = ((MultiSearchRequest) args[0]).requests().size();
+                        synchronized (multiSearchSizes)
+                        {
+                            multiSearchSizes.add(size);
+                        }
+                        final MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[size];
+                        for (int i = 0; i < size; i++)
+                        {
+                            // Last request of the batch fails
+                            items[i] = i < size - 1 ? new MultiSearchResponse.Item(new SearchResponse(), null)
+                                    : new MultiSearchResponse.Item(null, "failed");
+                        }
+                        ((ActionListener<MultiSearchResponse>) args[1]).onResponse(new MultiSearchResponse(items));
+                    }
+                    else if ("search".equals(method.getName()) && args.length == 2)
+                    {
+                        searches.incrementAndGet();
+                        synchronized (heldSearches)
+                        {
+                            heldSearches.add((ActionListener<SearchResponse>) args[1]);
+                        }
+                    }
+                    return null;
+                }
+            });
+
+    private final SearchClientService searchClientService = new SearchClientService()
+    {
+        @Override
+        public Client getClient()
+        {
+            return client;
+        }
+
+        @Override
+        public void addNewNode(final String name)
+        {
+        }
+
+        @Override
+        public void removeNode(final String nodeName)
+        {
+        }
+    };
+
+    @Test
+    public void sendRequestRightAwayWhenNoneOutstanding()
+    {
+        MultiSearchCoalescer coalescer = new MultiSearchCoalescer(searchClientService, TimeUnit.MINUTES.toMillis(1), 10);
+        CountingListener listener = new CountingListener(2);
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        assertEquals(1, searches.get());
+        assertEquals(1, coalescer.getOutstandingRequests());
+        releaseSearches();
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        assertEquals(2, searches.get());
+        releaseSearches();
+        assertEquals(0, listener.done.getCount());
+        assertEquals(0, coalescer.getOutstandingRequests());
+        assertTrue(multiSearchSizes.isEmpty());
+        coalescer.close();
+    }
+
+    @Test
+    public void coalesceOutstandingRequestsWithinWindow() throws Exception
+    {
+        MultiSearchCoalescer coalescer = new MultiSearchCoalescer(searchClientService, 100, 10);
+        CountingListener listener = new CountingListener(4);
+        for (int i = 0; i < 4; i++)
+        {
+            coalescer.execute(new SearchRequestBuilder(client), listener);
+        }
+        // First one went out on its own, the others waited for the window.
+        assertEquals(1, searches.get());
+        releaseSearches();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, multiSearchSizes.size());
+        assertEquals(Integer.valueOf(3), multiSearchSizes.get(0));
+        assertEquals(3, listener.responses.get());
+        assertEquals(1, listener.failures.get());
+        assertEquals(2, coalescer.getBatches());
+        assertEquals(4, coalescer.getRequests());
+        assertEquals(0, coalescer.getOutstandingRequests());
+        coalescer.close();
+    }
+
+    @Test
+    public void sendFullBatchRightAway()
+    {
+        MultiSearchCoalescer coalescer = new MultiSearchCoalescer(searchClientService, TimeUnit.MINUTES.toMillis(1), 2);
+        CountingListener listener = new CountingListener(4);
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        assertEquals(1, multiSearchSizes.size());
+        assertEquals(2, listener.done.getCount());
+        // A single request is sent as a plain search request.
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        coalescer.flush();
+        assertEquals(2, searches.get());
+        releaseSearches();
+        assertEquals(0, listener.done.getCount());
+        assertEquals(3, coalescer.getBatches());
+        coalescer.close();
+    }
+
+    @Test
+    public void executeEveryRequestOnItsOwnWhenDisabled()
+    {
+        MultiSearchCoalescer coalescer = new MultiSearchCoalescer(searchClientService, new QuerySettings(ConfigFactory.parseString(
+                "query { multi-search { enabled = off, window = 2 ms, max-batch-size = 20 }, "
+                        + "result-cache { max-entries = 1000, time-to-live = 5 minutes } }")));
+        CountingListener listener = new CountingListener(2);
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        coalescer.execute(new SearchRequestBuilder(client), listener);
+        assertEquals(2, searches.get());
+        assertTrue(multiSearchSizes.isEmpty());
+        assertEquals(0, coalescer.getRequests());
+        releaseSearches();
+        assertEquals(0, listener.done.getCount());
+        coalescer.close();
+    }
+
+    private void releaseSearches()
+    {
+        final List<ActionListener<SearchResponse>> released;
+        synchronized (heldSearches)
+        {
+            released = new ArrayList<ActionListener<SearchResponse>>(heldSearches);
+            heldSearches.clear();
+        }
+        for (final ActionListener<SearchResponse> listener : released)
+        {
+            listener.onResponse(new SearchResponse());
+        }
+    }
+
+    private static class CountingListener implements ActionListener<SearchResponse>
+    {
+        private final CountDownLatch done;
+
+        private final AtomicInteger responses = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        CountingListener(final int expected)
+        {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onResponse(final SearchResponse response)
+        {
+            responses.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(final Throwable e)
+        {
+            failures.incrementAndGet();
+            done.countDown();
+        }
+    }
+}
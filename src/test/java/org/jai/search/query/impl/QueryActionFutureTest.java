@@ -0,0 +1,71 @@
+package org.jai.search.query.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class QueryActionFutureTest
+{
+    @Test
+    public void convertResponseAndNotifyListeners()
+    {
+        QueryActionFuture<Integer, String> future = new QueryActionFuture<Integer, String>()
+        {
+            @Override
+            protected Integer convert(final String response)
+            {
+                return Integer.valueOf(response);
+            }
+        };
+        final AtomicReference<Integer> notified = new AtomicReference<Integer>();
+        future.addListener(new ActionListener<Integer>()
+        {
+            @Override
+            public void onResponse(final Integer response)
+            {
+                notified.set(response);
+            }
+
+            @Override
+            public void onFailure(final Throwable e)
+            {
+                fail();
+            }
+        });
+        future.onResponse("42");
+        assertEquals(Integer.valueOf(42), future.actionGet());
+        assertEquals(Integer.valueOf(42), notified.get());
+        assertSame("cached", QueryActionFuture.completed("cached").actionGet());
+    }
+
+    @Test
+    public void failWhenResponseCannotBeConverted()
+    {
+        QueryActionFuture<Integer, String> future = new QueryActionFuture<Integer, String>()
+        {
+            @Override
+            protected Integer convert(final String response)
+            {
+                return Integer.valueOf(response);
+            }
+        };
+        future.onResponse("not a number");
+        assertTrue(future.isDone());
+        try
+        {
+            future.actionGet();
+            fail();
+        }
+        catch (final ElasticsearchException ex)
+        {
+            assertTrue(ex.getRootCause() instanceof NumberFormatException);
+        }
+    }
+}
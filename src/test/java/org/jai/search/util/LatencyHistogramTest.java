@@ -0,0 +1,64 @@
+package org.jai.search.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void percentilesOfSmallValuesAreExact()
+    {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        for (int value = 1; value <= 100; value++)
+        {
+            histogram.recordValue(value);
+        }
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void percentilesOfLargeValuesWithinTwoSignificantDigits()
+    {
+        LatencyHistogram histogram = new LatencyHistogram(3600000000L);
+        for (long value = 1; value <= 100000; value++)
+        {
+            histogram.recordValue(value * 1000);
+        }
+        assertWithinPrecision(50000000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(99000000, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(99900000, histogram.getValueAtPercentile(99.9));
+        assertEquals(100000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void addAndReset()
+    {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        LatencyHistogram other = new LatencyHistogram(1000);
+        histogram.recordValue(10);
+        other.recordValue(20);
+        // Clamped to the highest trackable value
+        other.recordValue(5000);
+        histogram.add(other);
+        assertEquals(3, histogram.getTotalCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(20, histogram.getValueAtPercentile(50));
+        LatencyHistogram copy = histogram.copy();
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(3, copy.getTotalCount());
+    }
+
+    private void assertWithinPrecision(final long expected, final long value)
+    {
+        assertTrue(value + " not within 2% of " + expected, Math.abs(value - expected) <= expected / 50);
+    }
+}